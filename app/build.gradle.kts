@@ -29,12 +29,19 @@ android {
 
     buildTypes {
         release {
-            isMinifyEnabled = false
+            isMinifyEnabled = true
+            isShrinkResources = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
             )
         }
+        // Release code, signed with the debug key so :macrobenchmark can install and profile it
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_17
@@ -46,6 +53,19 @@ android {
         freeCompilerArgs += listOf("-Xjvm-default=all")
     }
 
+    sourceSets {
+        // DAO benchmark datasets and operations, shared with the :benchmark module
+        getByName("test").java.srcDir("../benchmark/src/shared/java")
+    }
+
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+        unitTests.all {
+            // Opt-in for long-running benchmark tests: ./gradlew test -Dwhatsuit.benchmark=true
+            it.systemProperty("whatsuit.benchmark", System.getProperty("whatsuit.benchmark") ?: "false")
+        }
+    }
+
     kapt {
         correctErrorTypes = true
         useBuildCache = true
@@ -86,10 +106,16 @@ dependencies {
     // Gemini AI
     implementation("com.google.ai.client.generativeai:generativeai:0.9.0")
     
+    // WorkManager
+    implementation("androidx.work:work-runtime:2.9.0")
+
     // Kotlin Coroutines
     implementation("org.jetbrains.kotlinx:kotlinx-coroutines-android:1.7.3")
     implementation("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.7.3")
     
+    // Installs the bundled baseline profile (src/main/baseline-prof.txt) on sideloaded builds
+    implementation(libs.profileinstaller)
+
     // Splash Screen & Animations
     implementation("androidx.core:core-splashscreen:1.0.1")
     implementation("androidx.core:core-animation:1.0.0-alpha02")
@@ -97,6 +123,8 @@ dependencies {
     
     // Testing
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
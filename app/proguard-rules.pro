@@ -18,4 +18,30 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Room's generated *_Impl classes are kept by room-runtime's consumer rules.
+
+# Gson (2.10 ships no rules): generic field types and TypeToken subclasses need their signatures
+-keepattributes Signature, *Annotation*, EnclosingMethod, InnerClasses
+-keep class com.google.gson.reflect.TypeToken { *; }
+-keep class * extends com.google.gson.reflect.TypeToken
+
+# Serialized by field name into backups, archives and conversation history JSON; renaming
+# fields would make existing backups unreadable
+-keepclassmembers class com.example.whatsuit.data.** {
+    <fields>;
+    <init>(...);
+}
+-keep class com.example.whatsuit.util.BackupRestoreManager$* {
+    <fields>;
+    <init>(...);
+}
+-keep class com.example.whatsuit.util.NotificationArchiver$ArchivedNotification {
+    <fields>;
+    <init>(...);
+}
+
+# Gemini SDK: request and response models are (de)serialized by kotlinx.serialization
+-keep class com.google.ai.client.generativeai.** { *; }
+-dontwarn org.slf4j.impl.StaticLoggerBinder
@@ -0,0 +1,65 @@
+package com.example.whatsuit.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares notification ingestion throughput of Room's default configuration with
+ * {@link DatabaseConfig}. Each notification is written with upsertNotification in its own
+ * transaction, as NotificationService does. Results are logged under the DatabaseThroughput tag.
+ *
+ * Run on a device with
+ * ./gradlew connectedDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.example.whatsuit.data.DatabaseIngestionThroughputTest
+ * and read the result with adb logcat -s DatabaseThroughput. Changes to {@link DatabaseConfig}
+ * should quote its numbers.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseIngestionThroughputTest {
+    private static final String TAG = "DatabaseThroughput";
+    private static final int NOTIFICATION_COUNT = 5000;
+
+    @Test
+    public void tunedConfigurationIngestsNotifications() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        double defaultRate = measure(context, "throughput_default", false);
+        double tunedRate = measure(context, "throughput_tuned", true);
+
+        Log.i(TAG, String.format("default: %.0f upserts/s, tuned: %.0f upserts/s (%.2fx)",
+                defaultRate, tunedRate, tunedRate / defaultRate));
+    }
+
+    private double measure(Context context, String name, boolean tuned) {
+        context.deleteDatabase(name);
+        RoomDatabase.Builder<AppDatabase> builder = Room.databaseBuilder(context, AppDatabase.class, name);
+        AppDatabase database = (tuned ? DatabaseConfig.configure(builder) : builder).build();
+        try {
+            NotificationDao dao = database.notificationDao();
+            long start = System.nanoTime();
+            for (int i = 0; i < NOTIFICATION_COUNT; i++) {
+                // Half of the conversations receive a second message, exercising the update path
+                String title = "Contact " + (i % (NOTIFICATION_COUNT / 2));
+                NotificationEntity notification = new NotificationEntity("com.whatsapp", "WhatsApp", title,
+                        "Message number " + i + " with some typical chat text in it",
+                        "com.whatsapp_" + title, System.currentTimeMillis(), null);
+                dao.upsertNotification(notification);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertEquals(NOTIFICATION_COUNT / 2, dao.getAllNotificationsSync().size());
+            return NOTIFICATION_COUNT / seconds;
+        } finally {
+            database.close();
+            context.deleteDatabase(name);
+        }
+    }
+}
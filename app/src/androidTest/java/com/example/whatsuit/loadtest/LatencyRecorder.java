@@ -0,0 +1,56 @@
+package com.example.whatsuit.loadtest;
+
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * Thread-safe collection of latency samples in milliseconds with percentile reporting.
+ */
+public class LatencyRecorder {
+    private final String name;
+    private long[] samples = new long[256];
+    private int count;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long millis) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = millis;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    public String summary() {
+        return String.format("%s: n=%d p50=%dms p90=%dms p99=%dms max=%dms",
+                name, count(), percentile(50), percentile(90), percentile(99), percentile(100));
+    }
+
+    /**
+     * Adds the percentiles to an instrumentation status bundle, so they show up in
+     * `am instrument -r` output
+     */
+    public void addTo(Bundle bundle) {
+        bundle.putInt(name + "_count", count());
+        bundle.putLong(name + "_p50_ms", percentile(50));
+        bundle.putLong(name + "_p90_ms", percentile(90));
+        bundle.putLong(name + "_p99_ms", percentile(99));
+        bundle.putLong(name + "_max_ms", percentile(100));
+    }
+}
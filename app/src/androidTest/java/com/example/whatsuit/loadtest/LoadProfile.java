@@ -0,0 +1,74 @@
+package com.example.whatsuit.loadtest;
+
+/**
+ * Shape of a synthetic notification burst.
+ */
+public class LoadProfile {
+    public enum Distribution {
+        /** Every conversation is equally likely */
+        UNIFORM,
+        /** A few conversations receive most messages, as in a busy group or support queue */
+        ZIPF
+    }
+
+    int notificationCount = 500;
+    double notificationsPerSecond = 20;
+    int conversationCount = 50;
+    Distribution distribution = Distribution.ZIPF;
+    double zipfExponent = 1.1;
+    double groupFraction = 0.2;
+    double whatsappFraction = 0.7;
+    long replyLatencyMillis = 300;
+    long seed = 42;
+
+    public LoadProfile notificationCount(int count) {
+        this.notificationCount = count;
+        return this;
+    }
+
+    public LoadProfile rate(double notificationsPerSecond) {
+        this.notificationsPerSecond = notificationsPerSecond;
+        return this;
+    }
+
+    public LoadProfile conversations(int count, Distribution distribution) {
+        this.conversationCount = count;
+        this.distribution = distribution;
+        return this;
+    }
+
+    public LoadProfile zipfExponent(double exponent) {
+        this.zipfExponent = exponent;
+        return this;
+    }
+
+    public LoadProfile groupFraction(double fraction) {
+        this.groupFraction = fraction;
+        return this;
+    }
+
+    public LoadProfile whatsappFraction(double fraction) {
+        this.whatsappFraction = fraction;
+        return this;
+    }
+
+    /**
+     * Simulated time for the reply model to answer
+     */
+    public LoadProfile replyLatencyMillis(long millis) {
+        this.replyLatencyMillis = millis;
+        return this;
+    }
+
+    public LoadProfile seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return notificationCount + " notifications at " + notificationsPerSecond + "/s over " +
+                conversationCount + " conversations (" + distribution + "), " +
+                Math.round(groupFraction * 100) + "% group, reply latency " + replyLatencyMillis + "ms";
+    }
+}
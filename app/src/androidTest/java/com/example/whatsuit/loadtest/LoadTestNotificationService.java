@@ -0,0 +1,45 @@
+package com.example.whatsuit.loadtest;
+
+import android.content.Context;
+import android.service.notification.StatusBarNotification;
+
+import com.example.whatsuit.NotificationService;
+import com.example.whatsuit.data.NotificationEntity;
+import com.example.whatsuit.service.ReplyGenerator;
+
+/**
+ * NotificationService driven directly by the load test instead of the system: it is attached to
+ * the instrumentation context, uses a stub reply model and records pipeline latencies.
+ */
+public class LoadTestNotificationService extends NotificationService {
+    final LatencyRecorder postToCommit = new LatencyRecorder("post_to_commit");
+    final LatencyRecorder postToReply = new LatencyRecorder("post_to_reply");
+    private final long replyLatencyMillis;
+
+    public LoadTestNotificationService(Context context, long replyLatencyMillis) {
+        this.replyLatencyMillis = replyLatencyMillis;
+        attachBaseContext(context);
+        onCreate();
+    }
+
+    @Override
+    protected ReplyGenerator createReplyGenerator() {
+        return new StubReplyGenerator(replyLatencyMillis);
+    }
+
+    @Override
+    protected void onNotificationStored(StatusBarNotification sbn, long notificationId) {
+        postToCommit.record(System.currentTimeMillis() - sbn.getPostTime());
+    }
+
+    @Override
+    protected void onReplySent(NotificationEntity notification, String replyText) {
+        // The entity carries the post time of the notification that triggered the reply
+        postToReply.record(System.currentTimeMillis() - notification.getTimestamp());
+    }
+
+    @Override
+    protected void requestRebind() {
+        // Not bound by the system, nothing to rebind
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.whatsuit.loadtest;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.AppSettingEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * End-to-end throughput test: posts synthetic notification bursts through NotificationService
+ * at a fixed rate and reports latency percentiles from post to database commit and from post to
+ * reply sent. Results are logged under the NotificationLoadTest tag and reported as
+ * instrumentation status (visible with `adb shell am instrument -r`).
+ *
+ * Runs against the app's real database and settings; everything it creates uses the load test
+ * package names and is removed afterwards, and the settings it changes are restored.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationLoadTest {
+    private static final String TAG = "NotificationLoadTest";
+    private static final long DRAIN_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+
+    private Context context;
+    private AppDatabase database;
+    private SharedPreferences prefs;
+    private boolean savedAutoReplyEnabled;
+    private int savedReplyLimit;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = AppDatabase.getDatabase(context);
+        prefs = context.getSharedPreferences("whatsuit_settings", Context.MODE_PRIVATE);
+        savedAutoReplyEnabled = prefs.getBoolean("auto_reply_enabled", false);
+        savedReplyLimit = prefs.getInt("auto_reply_limit", 4);
+
+        // Every conversation may reply to every message, so replies are limited by the pipeline only
+        prefs.edit()
+                .putBoolean("auto_reply_enabled", true)
+                .putInt("auto_reply_limit", Integer.MAX_VALUE)
+                .commit();
+        for (String packageName : new String[]{SyntheticNotificationFactory.WHATSAPP_PACKAGE,
+                SyntheticNotificationFactory.TELEGRAM_PACKAGE}) {
+            database.appSettingDao().insert(new AppSettingEntity(packageName, packageName, true, true));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        prefs.edit()
+                .putBoolean("auto_reply_enabled", savedAutoReplyEnabled)
+                .putInt("auto_reply_limit", savedReplyLimit)
+                .commit();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        Object[] packages = {SyntheticNotificationFactory.WHATSAPP_PACKAGE, SyntheticNotificationFactory.TELEGRAM_PACKAGE};
+        db.execSQL("DELETE FROM notifications WHERE packageName IN (?, ?)", packages);
+        db.execSQL("DELETE FROM app_settings WHERE packageName IN (?, ?)", packages);
+        // Conversation ids are the package name followed by "_" and the sender
+        Object[] conversations = {SyntheticNotificationFactory.WHATSAPP_PACKAGE + "_%",
+                SyntheticNotificationFactory.TELEGRAM_PACKAGE + "_%"};
+        db.execSQL("DELETE FROM conversation_reply_count WHERE conversationId LIKE ? OR conversationId LIKE ?",
+                conversations);
+        db.execSQL("DELETE FROM messages WHERE conversationId LIKE ? OR conversationId LIKE ?", conversations);
+    }
+
+    @Test
+    public void steadyRate() throws InterruptedException {
+        run("steady", new LoadProfile()
+                .notificationCount(300)
+                .rate(10)
+                .conversations(100, LoadProfile.Distribution.UNIFORM));
+    }
+
+    @Test
+    public void burstIntoFewConversations() throws InterruptedException {
+        run("burst", new LoadProfile()
+                .notificationCount(500)
+                .rate(100)
+                .conversations(30, LoadProfile.Distribution.ZIPF));
+    }
+
+    private void run(String name, LoadProfile profile) throws InterruptedException {
+        LoadTestNotificationService service = new LoadTestNotificationService(context, profile.replyLatencyMillis);
+        SyntheticNotificationFactory factory = new SyntheticNotificationFactory(context, profile);
+        try {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / profile.notificationsPerSecond);
+            long start = System.nanoTime();
+            for (int i = 0; i < profile.notificationCount; i++) {
+                long due = start + i * intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                service.onNotificationPosted(factory.next());
+            }
+
+            // Group replies are enabled for the load test apps, so every notification gets a reply
+            int expectedReplies = profile.notificationCount;
+            long deadline = SystemClock.uptimeMillis() + DRAIN_TIMEOUT_MS;
+            while ((service.postToCommit.count() < profile.notificationCount
+                    || service.postToReply.count() < expectedReplies)
+                    && SystemClock.uptimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+
+            Log.i(TAG, name + ": " + profile);
+            Log.i(TAG, name + ": " + service.postToCommit.summary());
+            Log.i(TAG, name + ": " + service.postToReply.summary());
+            Bundle results = new Bundle();
+            service.postToCommit.addTo(results);
+            service.postToReply.addTo(results);
+            InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+
+            assertEquals("notifications committed", profile.notificationCount, service.postToCommit.count());
+            assertEquals("replies sent", expectedReplies, service.postToReply.count());
+        } finally {
+            service.onDestroy();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.whatsuit.loadtest
+
+import com.example.whatsuit.service.GeminiService
+import com.example.whatsuit.service.ReplyGenerator
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+
+/**
+ * Reply model stand-in that answers after a fixed delay, so load runs measure the app's own
+ * pipeline instead of network latency.
+ */
+class StubReplyGenerator(private val latencyMillis: Long) : ReplyGenerator {
+    private val scope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+
+    override suspend fun initialize(): Boolean = true
+
+    override fun generateReply(
+        notificationId: Long,
+        message: String,
+        callback: GeminiService.ResponseCallback
+    ): Job = scope.launch {
+        delay(latencyMillis)
+        callback.onComplete("Thanks for your message, I'll get back to you shortly.")
+    }
+}
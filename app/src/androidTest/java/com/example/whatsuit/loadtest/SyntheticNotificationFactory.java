@@ -0,0 +1,127 @@
+package com.example.whatsuit.loadtest;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.RemoteInput;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.drawable.Icon;
+import android.os.Process;
+import android.service.notification.StatusBarNotification;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.Random;
+
+/**
+ * Builds StatusBarNotifications that look like messaging app notifications: WhatsApp chats
+ * titled with phone numbers, group conversations, and a reply action with a RemoteInput.
+ *
+ * Notifications use dedicated package names so the rows they create can be told apart from real
+ * data and removed afterwards; the names still contain "whatsapp"/"telegram" so they take the
+ * same code paths as the real apps.
+ */
+public class SyntheticNotificationFactory {
+    public static final String WHATSAPP_PACKAGE = "com.whatsapp.loadtest";
+    public static final String TELEGRAM_PACKAGE = "org.telegram.loadtest";
+    static final String REPLY_ACTION = "com.example.whatsuit.loadtest.REPLY";
+    private static final String CHANNEL_ID = "loadtest";
+    private static final String RESULT_KEY = "reply_text";
+
+    private final Context context;
+    private final LoadProfile profile;
+    private final Random random;
+    private final double[] cumulativeWeights;
+    private final PendingIntent replyIntent;
+    private int nextId = 1;
+
+    public SyntheticNotificationFactory(Context context, LoadProfile profile) {
+        this.context = context;
+        this.profile = profile;
+        this.random = new Random(profile.seed);
+        this.cumulativeWeights = buildWeights(profile);
+        // Replies are delivered as a broadcast nobody listens for; the harness only measures
+        // when the service hands the reply over
+        this.replyIntent = PendingIntent.getBroadcast(context, 0,
+                new Intent(REPLY_ACTION).setPackage(context.getPackageName()),
+                PendingIntent.FLAG_MUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    /**
+     * The next notification, posted now, for a conversation drawn from the profile's distribution.
+     */
+    public StatusBarNotification next() {
+        int conversation = pickConversation();
+        boolean group = isGroup(conversation);
+        String packageName = isWhatsApp(conversation) ? WHATSAPP_PACKAGE : TELEGRAM_PACKAGE;
+        int id = nextId++;
+
+        String title = group ? "Group " + conversation : conversationTitle(packageName, conversation);
+        String text = group ? "Member " + random.nextInt(20) + ": message " + id
+                : "Hi, message " + id + " - are you available later today?";
+
+        RemoteInput remoteInput = new RemoteInput.Builder(RESULT_KEY).setLabel("Reply").build();
+        Notification.Action reply = new Notification.Action.Builder(
+                Icon.createWithResource(context, android.R.drawable.ic_menu_send), "Reply", replyIntent)
+                .addRemoteInput(remoteInput)
+                .build();
+
+        Notification.Builder builder = new Notification.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_action_chat)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setCategory(Notification.CATEGORY_MESSAGE)
+                .addAction(reply);
+        builder.getExtras().putBoolean(NotificationCompat.EXTRA_IS_GROUP_CONVERSATION, group);
+
+        long postTime = System.currentTimeMillis();
+        return new StatusBarNotification(packageName, packageName, id, "loadtest",
+                Process.myUid(), Process.myPid(), builder.build(), Process.myUserHandle(), null, postTime);
+    }
+
+    private boolean isGroup(int conversation) {
+        // Stable per conversation: the first groupFraction of conversations are groups
+        return conversation < Math.round(profile.groupFraction * profile.conversationCount);
+    }
+
+    private boolean isWhatsApp(int conversation) {
+        return (conversation * 0.618034) % 1.0 < profile.whatsappFraction;
+    }
+
+    private static String conversationTitle(String packageName, int conversation) {
+        if (WHATSAPP_PACKAGE.equals(packageName)) {
+            // 11 digits once formatting is stripped, like a saved-number-less WhatsApp chat
+            String digits = String.format("234%08d", conversation);
+            return "+" + digits.substring(0, 3) + " " + digits.substring(3, 6) + " " +
+                    digits.substring(6, 9) + " " + digits.substring(9);
+        }
+        return "Contact " + conversation;
+    }
+
+    private int pickConversation() {
+        double target = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (target <= cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    private static double[] buildWeights(LoadProfile profile) {
+        double[] weights = new double[profile.conversationCount];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = profile.distribution == LoadProfile.Distribution.ZIPF
+                    ? 1.0 / Math.pow(i + 1, profile.zipfExponent)
+                    : 1.0;
+            total += weights[i];
+        }
+        double cumulative = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cumulative += weights[i] / total;
+            weights[i] = cumulative;
+        }
+        return weights;
+    }
+}
@@ -16,6 +16,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.whatsuit.adapter.AppSettingsAdapter;
 import com.example.whatsuit.data.AppDatabase;
 import com.example.whatsuit.data.AppSettingEntity;
+import com.example.whatsuit.util.DeepLinkNotifier;
+import com.example.whatsuit.util.NotificationArchiver;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -24,7 +26,9 @@ import java.util.concurrent.Executors;
 public class AutoReplySettingsActivity extends AppCompatActivity {
     private Switch autoReplySwitch;
     private Switch autoReplyGroupsSwitch;
+    private Switch deepLinkSwitch;
     private EditText replyLimitEditText;
+    private EditText retentionDaysEditText;
     private RecyclerView defaultAppsRecyclerView;
     private RecyclerView appSettingsRecyclerView;
     private AppSettingsAdapter defaultAppsAdapter;
@@ -59,7 +63,9 @@ public class AutoReplySettingsActivity extends AppCompatActivity {
         setupToolbar();
         autoReplySwitch = findViewById(R.id.switch_auto_reply);
         autoReplyGroupsSwitch = findViewById(R.id.switch_auto_reply_groups);
+        deepLinkSwitch = findViewById(R.id.switch_deep_link_notifications);
         replyLimitEditText = findViewById(R.id.edit_reply_limit);
+        retentionDaysEditText = findViewById(R.id.edit_retention_days);
 
         // Enable auto-reply by default if not set
         if (!prefs.contains("auto_reply_enabled")) {
@@ -87,8 +93,19 @@ public class AutoReplySettingsActivity extends AppCompatActivity {
                 Toast.LENGTH_SHORT).show();
         });
 
+        // Deep link notifications are opt-in
+        deepLinkSwitch.setChecked(prefs.getBoolean(DeepLinkNotifier.PREF_ENABLED, false));
+
+        deepLinkSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            prefs.edit().putBoolean(DeepLinkNotifier.PREF_ENABLED, isChecked).apply();
+            Toast.makeText(this,
+                isChecked ? "Deep link notifications enabled" : "Deep link notifications disabled",
+                Toast.LENGTH_SHORT).show();
+        });
+
         // Setup reply limit setting
         setupReplyLimitSetting();
+        setupRetentionSetting();
 
         // Setup RecyclerViews
         defaultAppsRecyclerView = findViewById(R.id.recycler_default_apps);
@@ -145,6 +162,39 @@ public class AutoReplySettingsActivity extends AppCompatActivity {
         });
     }
 
+    private void setupRetentionSetting() {
+        int currentDays = prefs.getInt(NotificationArchiver.PREF_RETENTION_DAYS,
+                NotificationArchiver.DEFAULT_RETENTION_DAYS);
+        retentionDaysEditText.setText(String.valueOf(currentDays));
+
+        retentionDaysEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                try {
+                    String text = s.toString().trim();
+                    if (!text.isEmpty()) {
+                        int days = Integer.parseInt(text);
+                        if (days >= 0 && days <= 3650) { // 0 keeps everything in the main list
+                            prefs.edit().putInt(NotificationArchiver.PREF_RETENTION_DAYS, days).apply();
+                        } else if (days > 3650) {
+                            retentionDaysEditText.setText("3650");
+                            Toast.makeText(AutoReplySettingsActivity.this,
+                                "Maximum retention is 3650 days", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    // Invalid number, ignore
+                }
+            }
+        });
+    }
+
     private void loadAppSettings() {
         executorService.execute(() -> {
             List<AppSettingEntity> allApps = getMessagingApps();
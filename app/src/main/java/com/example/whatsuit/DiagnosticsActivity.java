@@ -0,0 +1,71 @@
+package com.example.whatsuit;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.Switch;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.whatsuit.metrics.MetricsRegistry;
+import com.example.whatsuit.metrics.PipelineTrace;
+import com.example.whatsuit.util.VerboseLog;
+
+/**
+ * Shows the pipeline metrics collected since the process started (or the last reset) and
+ * toggles verbose logging and Perfetto trace sections. The same metrics are available from
+ * `adb shell dumpsys activity service com.example.whatsuit/.NotificationService`.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+    private TextView metricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        androidx.appcompat.widget.Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        toolbar.setNavigationOnClickListener(v -> onBackPressed());
+
+        metricsTextView = findViewById(R.id.text_metrics);
+        Button refreshButton = findViewById(R.id.button_refresh_metrics);
+        Button resetButton = findViewById(R.id.button_reset_metrics);
+        Switch verboseLoggingSwitch = findViewById(R.id.switch_verbose_logging);
+        Switch traceSwitch = findViewById(R.id.switch_trace_sections);
+
+        refreshButton.setOnClickListener(v -> refreshMetrics());
+        resetButton.setOnClickListener(v -> {
+            MetricsRegistry.get().reset();
+            refreshMetrics();
+        });
+
+        VerboseLog.init(this);
+        verboseLoggingSwitch.setChecked(VerboseLog.isEnabled());
+        verboseLoggingSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            VerboseLog.setEnabled(this, isChecked);
+            Toast.makeText(this,
+                isChecked ? "Verbose logging enabled" : "Verbose logging disabled",
+                Toast.LENGTH_SHORT).show();
+        });
+
+        PipelineTrace.init(this);
+        traceSwitch.setChecked(PipelineTrace.isSettingEnabled());
+        traceSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            PipelineTrace.setEnabled(this, isChecked);
+            Toast.makeText(this,
+                isChecked ? "Trace sections enabled" : "Trace sections disabled",
+                Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refreshMetrics();
+    }
+
+    private void refreshMetrics() {
+        metricsTextView.setText(MetricsRegistry.get().dumpToString());
+    }
+}
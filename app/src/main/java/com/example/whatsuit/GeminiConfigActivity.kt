@@ -17,6 +17,7 @@ import com.example.whatsuit.data.AppDatabase
 import com.example.whatsuit.data.GeminiConfig
 import com.example.whatsuit.data.PromptTemplate
 import com.example.whatsuit.service.GeminiService
+import com.example.whatsuit.util.PromptBuilder
 import com.google.android.material.button.MaterialButton
 import com.google.android.material.textfield.TextInputEditText
 import com.google.android.material.textfield.TextInputLayout
@@ -36,13 +37,15 @@ import kotlin.coroutines.resumeWithException
     private lateinit var testButton: MaterialButton
     private lateinit var saveButton: MaterialButton
     private lateinit var maxHistoryInput: TextInputEditText
+    private lateinit var promptTokenBudgetLayout: TextInputLayout
+    private lateinit var promptTokenBudgetInput: TextInputEditText
     private lateinit var promptTemplateInput: TextInputEditText
     private lateinit var templateNameInput: TextInputEditText
     private lateinit var templatesRecyclerView: RecyclerView
     
     private val database by lazy { AppDatabase.getDatabase(this) }
     private val geminiDao by lazy { database.geminiDao() }
-    private val geminiService by lazy { GeminiService(this) }
+    private val geminiService by lazy { GeminiService.getInstance(this) }
     
     private lateinit var templateAdapter: PromptTemplateAdapter
 
@@ -71,6 +74,8 @@ import kotlin.coroutines.resumeWithException
         testButton = findViewById(R.id.testButton)
         saveButton = findViewById(R.id.saveButton)
         maxHistoryInput = findViewById(R.id.maxHistoryInput)
+        promptTokenBudgetLayout = findViewById(R.id.promptTokenBudgetLayout)
+        promptTokenBudgetInput = findViewById(R.id.promptTokenBudgetInput)
         promptTemplateInput = findViewById(R.id.promptTemplateInput)
         templateNameInput = findViewById(R.id.templateNameInput)
         templatesRecyclerView = findViewById(R.id.templatesRecyclerView)
@@ -148,6 +153,7 @@ import kotlin.coroutines.resumeWithException
                     Log.d(TAG, "Loading existing config")
                     apiKeyInput.setText(config.apiKey)
                     maxHistoryInput.setText(config.maxHistoryPerThread.toString())
+                    showPromptTokenBudget(config)
                 }
  else {
                     Log.d(TAG, "Creating default config with default API key")
@@ -155,6 +161,7 @@ import kotlin.coroutines.resumeWithException
                     geminiDao.insertConfig(defaultConfig)
                     apiKeyInput.setText(DEFAULT_API_KEY)
                     maxHistoryInput.setText(defaultConfig.maxHistoryPerThread.toString())
+                    showPromptTokenBudget(defaultConfig)
                 }
 
                 val template = geminiDao.getActiveTemplate()
@@ -198,11 +205,12 @@ import kotlin.coroutines.resumeWithException
                 
                 // Initialize service and test in IO context
                 withContext(Dispatchers.IO) {
+                    geminiService.reloadConfig()
                     geminiService.initialize()
                     
                     // Test with sample message
                     kotlinx.coroutines.suspendCancellableCoroutine<Unit> { continuation ->
-                        geminiService.generateReply(
+                        val job = geminiService.generateReply(
                             notificationId = -1,
                             message = "Test message",
                             object : GeminiService.ResponseCallback {
@@ -217,6 +225,8 @@ import kotlin.coroutines.resumeWithException
                                 }
                             }
                         )
+                        // Leaving the screen cancels lifecycleScope and with it the request
+                        continuation.invokeOnCancellation { job.cancel() }
                     }
                 }
                 
@@ -242,6 +252,13 @@ import kotlin.coroutines.resumeWithException
         }
     }
 
+    private fun showPromptTokenBudget(config: GeminiConfig) {
+        promptTokenBudgetInput.setText(
+            if (config.promptTokenBudget > 0) config.promptTokenBudget.toString() else "")
+        promptTokenBudgetLayout.helperText = "Leave empty for the ${config.modelName} default " +
+            "(${PromptBuilder.defaultBudgetFor(config.modelName)} tokens)"
+    }
+
     private fun saveConfig() {
         val apiKey = apiKeyInput.text?.toString()
         if (apiKey.isNullOrBlank()) {
@@ -250,6 +267,9 @@ import kotlin.coroutines.resumeWithException
         }
 
         val maxHistory = maxHistoryInput.text?.toString()?.toIntOrNull() ?: 10
+        // Empty keeps the model's default budget
+        val promptTokenBudget = promptTokenBudgetInput.text?.toString()?.toIntOrNull()
+            ?.takeIf { it > 0 } ?: 0
         val templateName = templateNameInput.text?.toString()
         val templateContent = promptTemplateInput.text?.toString()
 
@@ -258,7 +278,8 @@ import kotlin.coroutines.resumeWithException
                 // Save config
                 val config = GeminiConfig(
                     apiKey = apiKey,
-                    maxHistoryPerThread = maxHistory
+                    maxHistoryPerThread = maxHistory,
+                    promptTokenBudget = promptTokenBudget
                 )
                 geminiDao.insertConfig(config)
 
@@ -272,8 +293,9 @@ import kotlin.coroutines.resumeWithException
                     geminiDao.setActiveTemplate(templateId)
                 }
 
-                // Initialize service with new config in IO context
+                // Rebuild the shared model with the new config in IO context
                 withContext(Dispatchers.IO) {
+                    geminiService.reloadConfig()
                     geminiService.initialize()
                 }
 
@@ -1,9 +1,5 @@
 package com.example.whatsuit;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.app.DatePickerDialog;
 import android.widget.ImageButton;
 import android.content.ClipData;
@@ -22,14 +18,10 @@ import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.view.ViewAnimationUtils;
-import android.view.ViewTreeObserver;
 import android.view.animation.AccelerateInterpolator;
-import android.view.animation.DecelerateInterpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.Button;
-import android.widget.ImageView;
-import android.widget.ProgressBar;
+import android.widget.EditText;
 import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -37,6 +29,7 @@ import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.SearchView;
@@ -51,13 +44,16 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.whatsuit.data.AppDatabase;
 import com.example.whatsuit.data.AppInfo;
+import com.example.whatsuit.data.ConversationAnalysisEntity;
 import com.example.whatsuit.data.ConversationHistory;
 import com.example.whatsuit.service.GeminiService;
 import com.example.whatsuit.data.NotificationDao;
 import com.example.whatsuit.data.NotificationEntity;
 import com.example.whatsuit.data.ConversationHistoryDao;
+import com.example.whatsuit.metrics.PipelineTrace;
 import com.example.whatsuit.util.AutoReplyManager;
 import com.example.whatsuit.util.BackupRestoreManager;
+import com.example.whatsuit.util.NotificationArchiver;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
@@ -69,15 +65,15 @@ import com.google.android.material.floatingactionbutton.ExtendedFloatingActionBu
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class MainActivity extends AppCompatActivity {
     // Animation related fields
     private boolean isAppReady = false;
-    private View splashOverlay;
-    private ImageView splashIcon;
-    private ProgressBar splashProgress;
-    private TextView splashText;
+    // Newest rows read while the launch screen is up; the grouped LiveData query replaces them
+    private static final int FIRST_PAGE_SIZE = 30;
     private RecyclerView recyclerView;
     private GroupedNotificationAdapter notificationAdapter;
     private TextView emptyView;
@@ -98,6 +94,9 @@ public class MainActivity extends AppCompatActivity {
     private BackupRestoreManager backupRestoreManager;
     private ActivityResultLauncher<String> createBackupLauncher;
     private ActivityResultLauncher<String[]> selectBackupLauncher;
+    // Backup type chosen before the file picker opened; kept if the activity is recreated meanwhile
+    private boolean pendingIncrementalBackup;
+    private static final String STATE_PENDING_INCREMENTAL_BACKUP = "pending_incremental_backup";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -106,37 +105,37 @@ public class MainActivity extends AppCompatActivity {
         splashScreen.setKeepOnScreenCondition(() -> !isAppReady);
 
         super.onCreate(savedInstanceState);
+        PipelineTrace.init(this);
+        if (savedInstanceState != null) {
+            pendingIncrementalBackup = savedInstanceState.getBoolean(STATE_PENDING_INCREMENTAL_BACKUP);
+        }
 
         // Initialize backup/restore functionality
         initializeBackupRestore();
 
-        // Set up our custom splash overlay first
+        // Placeholder behind the system splash screen until the database is open
         setContentView(R.layout.splash_screen_overlay);
 
-        // Initialize splash screen views
-        splashOverlay = findViewById(android.R.id.content);
-        splashIcon = findViewById(R.id.splash_icon);
-        splashProgress = findViewById(R.id.splash_progress);
-        splashText = findViewById(R.id.splash_text);
-
         // Start initialization process in background
         initializeApp();
     }
 
     private void initializeApp() {
-        // Simulate app initialization in background thread
+        // Open the database and read the first page off the main thread
         new Thread(() -> {
             try {
-                // Initialize database with error handling
                 AppDatabase db = null;
+                List<NotificationEntity> firstPage = null;
                 int retryCount = 0;
                 final int MAX_RETRIES = 3;
 
                 while (retryCount < MAX_RETRIES && db == null) {
                     try {
-                        db = AppDatabase.getDatabase(this);
-                        // Test database connection
-                        db.notificationDao().getCount();
+                        AppDatabase opened = AppDatabase.getDatabase(this);
+                        // The first query doubles as the connection check
+                        firstPage = newestPerConversation(
+                                opened.notificationDao().getLatestNotificationsSync(FIRST_PAGE_SIZE));
+                        db = opened;
                     } catch (Exception e) {
                         Log.e("MainActivity", "Database initialization attempt " + (retryCount + 1) + " failed", e);
                         retryCount++;
@@ -153,23 +152,8 @@ public class MainActivity extends AppCompatActivity {
                 notificationDao = db.notificationDao();
                 conversationHistoryDao = db.conversationHistoryDao();
 
-                // Initialize managers with error handling
-                try {
-                    autoReplyManager = new AutoReplyManager(this);
-                } catch (Exception e) {
-                    Log.e("MainActivity", "AutoReplyManager initialization failed", e);
-                    // Continue without auto-reply functionality
-                }
-
-                // Delay for splash animation
-                Thread.sleep(1200);
-
-                // Signal successful completion
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    startSplashAnimations();
-                    // Show success message
-                    Toast.makeText(this, "Initialization successful", Toast.LENGTH_SHORT).show();
-                });
+                final List<NotificationEntity> cachedGroups = firstPage;
+                new Handler(Looper.getMainLooper()).post(() -> switchToMainContent(cachedGroups));
             } catch (Exception e) {
                 Log.e("MainActivity", "Critical error during initialization", e);
                 // Show error dialog on main thread
@@ -191,49 +175,26 @@ public class MainActivity extends AppCompatActivity {
         }).start();
     }
 
-    private void startSplashAnimations() {
-        // Mark app as ready (this removes the system splash screen)
-        isAppReady = true;
-
-        // Start pulse animation on icon
-        ObjectAnimator scaleX = ObjectAnimator.ofFloat(splashIcon, View.SCALE_X, 1f, 1.2f, 1f);
-        ObjectAnimator scaleY = ObjectAnimator.ofFloat(splashIcon, View.SCALE_Y, 1f, 1.2f, 1f);
-
-        AnimatorSet pulseSet = new AnimatorSet();
-        pulseSet.playTogether(scaleX, scaleY);
-        pulseSet.setDuration(1000);
-
-        // After pulse, trigger particle animation
-        pulseSet.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                // Hide progress and text
-                splashProgress.animate().alpha(0f).setDuration(300).start();
-                splashText.animate().alpha(0f).setDuration(300).start();
-
-                // Create particle animation
-                createParticleEffect();
+    /**
+     * Keeps the newest row of each conversation, so the first page looks like the grouped list
+     * without running the grouping query.
+     */
+    private static List<NotificationEntity> newestPerConversation(List<NotificationEntity> latest) {
+        Set<String> seen = new HashSet<>();
+        List<NotificationEntity> newest = new ArrayList<>(latest.size());
+        for (NotificationEntity notification : latest) {
+            String conversationId = notification.getConversationId();
+            if (conversationId == null || seen.add(conversationId)) {
+                newest.add(notification);
             }
-        });
-
-        // Start the animation sequence
-        pulseSet.start();
+        }
+        return newest;
     }
 
-    private void createParticleEffect() {
-        // Simple fade out animation
-        ObjectAnimator fadeOut = ObjectAnimator.ofFloat(splashIcon, View.ALPHA, 1f, 0f);
-        fadeOut.setDuration(700);
-        fadeOut.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                switchToMainContent();
-            }
-        });
-        fadeOut.start();
-    }
+    private void switchToMainContent(List<NotificationEntity> firstPage) {
+        // Mark app as ready (this removes the system splash screen)
+        isAppReady = true;
 
-    private void switchToMainContent() {
         // Enable edge-to-edge and set main layout
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
@@ -256,37 +217,9 @@ public class MainActivity extends AppCompatActivity {
             fab.setScaleY(0f);
         }
 
-        // Get the center point for circular reveal
-        View rootView = findViewById(android.R.id.content);
-
-        // Wait for layout to be ready
-        rootView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-            @Override
-            public boolean onPreDraw() {
-                rootView.getViewTreeObserver().removeOnPreDrawListener(this);
-
-                // Perform circular reveal animation
-                int cx = rootView.getWidth() / 2;
-                int cy = rootView.getHeight() / 2;
-                float finalRadius = (float) Math.hypot(cx, cy);
-
-                Animator circularReveal = ViewAnimationUtils.createCircularReveal(
-                        rootView, cx, cy, 0f, finalRadius);
-                circularReveal.setDuration(800);
-                circularReveal.setInterpolator(new DecelerateInterpolator());
-
-                circularReveal.addListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        // Start staggered animations for UI elements
-                        animateUIElements();
-                    }
-                });
-
-                circularReveal.start();
-                return true;
-            }
-        });
+        // Bind the cached first page before the first frame; the animations run alongside
+        finishMainActivityInitialization(firstPage);
+        animateUIElements();
     }
 
     private void animateUIElements() {
@@ -302,6 +235,8 @@ public class MainActivity extends AppCompatActivity {
             .translationY(0f)
             .setDuration(500)
             .setStartDelay(150)
+            // Time to full display for startup benchmarks: the cached content is now visible
+            .withEndAction(this::reportFullyDrawn)
             .start();
 
         // Animate FAB with additional delay and overshoot
@@ -314,16 +249,16 @@ public class MainActivity extends AppCompatActivity {
                 .setInterpolator(new OvershootInterpolator())
                 .start();
         }
-
-        // Continue with regular MainActivity initialization
-        finishMainActivityInitialization();
     }
 
-    private void finishMainActivityInitialization() {
+    private void finishMainActivityInitialization(List<NotificationEntity> firstPage) {
         // Set up notifications RecyclerView
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        notificationAdapter = new GroupedNotificationAdapter(getPackageManager(), autoReplyManager);
+        notificationAdapter = new GroupedNotificationAdapter(getPackageManager(), this::getAutoReplyManager);
         recyclerView.setAdapter(notificationAdapter);
+        if (firstPage != null) {
+            showNotifications(firstPage);
+        }
 
         // Set up swipe to refresh
         swipeRefresh.setOnRefreshListener(() -> {
@@ -433,6 +368,9 @@ public class MainActivity extends AppCompatActivity {
         } else if (itemId == R.id.action_gemini_config) {
             startActivity(new Intent(this, GeminiConfigActivity.class));
             return true;
+        } else if (itemId == R.id.action_search_archive) {
+            showArchiveSearchDialog();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -608,15 +546,7 @@ public class MainActivity extends AppCompatActivity {
             // Observe the new LiveData
             currentNotificationsLiveData.observe(this, notifications -> {
                 try {
-                    if (notifications != null && !notifications.isEmpty()) {
-                        notificationAdapter.updateNotifications(notifications);
-                        emptyView.setVisibility(View.GONE);
-                        recyclerView.setVisibility(View.VISIBLE);
-                    } else {
-                        notificationAdapter.updateNotifications(new ArrayList<>());
-                        emptyView.setVisibility(View.VISIBLE);
-                        recyclerView.setVisibility(View.GONE);
-                    }
+                    showNotifications(notifications);
                 } catch (Exception e) {
                     Log.e("MainActivity", "Error updating notifications", e);
                     Toast.makeText(this, "Error loading notifications. Please try again.", Toast.LENGTH_SHORT).show();
@@ -628,6 +558,18 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void showNotifications(List<NotificationEntity> notifications) {
+        if (notifications != null && !notifications.isEmpty()) {
+            notificationAdapter.updateNotifications(notifications);
+            emptyView.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+        } else {
+            notificationAdapter.updateNotifications(new ArrayList<>());
+            emptyView.setVisibility(View.VISIBLE);
+            recyclerView.setVisibility(View.GONE);
+        }
+    }
+
     private boolean isNotificationServiceEnabled() {
         String packageName = getPackageName();
         String flat = Settings.Secure.getString(getContentResolver(),
@@ -651,6 +593,12 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_PENDING_INCREMENTAL_BACKUP, pendingIncrementalBackup);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -726,43 +674,35 @@ public class MainActivity extends AppCompatActivity {
         negotiationView.setText("");
         timestampView.setText("");
 
-        // Function to update analysis UI
+        // Function to update analysis UI from the stored, already split analysis
         Runnable updateAnalysis = () -> {
             // Use background thread for database operation
             new Thread(() -> {
                 try {
-                    final ConversationHistory history = AppDatabase.getDatabase(this)
-                        .getConversationHistoryDao()
-                        .getLatestHistoryForConversationSync(notification.getConversationId());
+                    final ConversationAnalysisEntity analysis = AppDatabase.getDatabase(this)
+                        .conversationAnalysisDao()
+                        .getForConversation(notification.getConversationId());
 
                     // Update UI on main thread
                     runOnUiThread(() -> {
-                        if (history != null) {
-                            String analysis = history.getAnalysis();
-                            if (analysis != null) {
-                                String[] sections = analysis.split("\\d\\.");
-                                if (sections.length >= 5) {
-                                    // Format the text by replacing dashes/asterisks with bullet points
-                                    nextStepsView.setText(formatAnalysisSection(sections[1]));
-                                    followupView.setText(formatAnalysisSection(sections[2]));
-                                    negotiationView.setText(formatAnalysisSection(sections[3]));
-                                    String suggestedReply = formatAnalysisSection(sections[4]);
-                                    suggestedReplyView.setText(suggestedReply);
-                                } else {
-                                    nextStepsView.setText(analysis);
-                                    followupView.setText("");
-                                    negotiationView.setText("");
-                                }
-                                Long analysisTimestamp = history.getAnalysisTimestamp();
-                                if (analysisTimestamp != null) {
-                                    String timestamp = DateUtils.getRelativeTimeSpanString(
-                                        analysisTimestamp,
-                                        System.currentTimeMillis(),
-                                        DateUtils.MINUTE_IN_MILLIS
-                                    ).toString();
-                                    timestampView.setText("Last analyzed: " + timestamp);
-                                }
+                        if (analysis != null) {
+                            if (analysis.hasSections()) {
+                                // Format the text by replacing dashes/asterisks with bullet points
+                                nextStepsView.setText(formatAnalysisSection(analysis.getNextSteps()));
+                                followupView.setText(formatAnalysisSection(analysis.getFollowUp()));
+                                negotiationView.setText(formatAnalysisSection(analysis.getNegotiation()));
+                                suggestedReplyView.setText(formatAnalysisSection(analysis.getSuggestedReply()));
+                            } else {
+                                nextStepsView.setText(analysis.getRawText());
+                                followupView.setText("");
+                                negotiationView.setText("");
                             }
+                            String timestamp = DateUtils.getRelativeTimeSpanString(
+                                analysis.getUpdatedAt(),
+                                System.currentTimeMillis(),
+                                DateUtils.MINUTE_IN_MILLIS
+                            ).toString();
+                            timestampView.setText("Last analyzed: " + timestamp);
                         }
                     });
                 } catch (Exception e) {
@@ -777,17 +717,17 @@ public class MainActivity extends AppCompatActivity {
         // Initial analysis load and check
         new Thread(() -> {
             try {
-                final ConversationHistory history = AppDatabase.getDatabase(this)
-                    .getConversationHistoryDao()
-                    .getLatestHistoryForConversationSync(notification.getConversationId());
+                AppDatabase db = AppDatabase.getDatabase(this);
+                final boolean hasAnalysis = db.conversationAnalysisDao()
+                    .getForConversation(notification.getConversationId()) != null;
+                final boolean hasHistory = hasAnalysis || db.getConversationHistoryDao()
+                    .getLatestHistoryForConversationSync(notification.getConversationId()) != null;
 
                 runOnUiThread(() -> {
-                    if (history != null) {
-                        if (history.getAnalysis() == null) {
-                            performAnalysis(notification.getConversationId(), updateAnalysis);
-                        } else {
-                            updateAnalysis.run();
-                        }
+                    if (hasAnalysis) {
+                        updateAnalysis.run();
+                    } else if (hasHistory) {
+                        performAnalysis(notification.getConversationId(), updateAnalysis);
                     } else {
                         nextStepsView.setText("No conversation history available");
                     }
@@ -808,8 +748,10 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void performAnalysis(String conversationId, Runnable onComplete) {
-        new GeminiService(this).analyzeConversation(
+        // Cancelled if the activity is destroyed before the analysis returns
+        GeminiService.getInstance(this).analyzeConversation(
             conversationId,
+            this,
             new GeminiService.ResponseCallback() {
                 @Override
                 public void onPartialResponse(String text) {}
@@ -835,7 +777,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void showOptionsMenu() {
-        String[] options = {"Clear All", "Auto-Reply Settings", "Keyword Actions", "Gemini Configuration", "Backup Data", "Restore Data", "About"};
+        String[] options = {"Clear All", "Auto-Reply Settings", "Keyword Actions", "Gemini Configuration", "Backup Data", "Restore Data", "Search Archive", "Diagnostics", "About"};
         new AlertDialog.Builder(this)
                 .setItems(options, (dialog, which) -> {
                     switch (which) {
@@ -858,6 +800,12 @@ public class MainActivity extends AppCompatActivity {
                             showRestoreDialog();
                             break;
                         case 6:
+                            showArchiveSearchDialog();
+                            break;
+                        case 7:
+                            startActivity(new Intent(this, DiagnosticsActivity.class));
+                            break;
+                        case 8:
                             showAboutDialog();
                             break;
                     }
@@ -870,12 +818,66 @@ public class MainActivity extends AppCompatActivity {
                 .setTitle("Clear All Notifications")
                 .setMessage("Are you sure you want to clear all notifications?")
                 .setPositiveButton("Clear", (dialog, which) -> {
-                    AppDatabase.getDatabase(this).notificationDao().deleteAll();
+                    AppDatabase database = AppDatabase.getDatabase(this);
+                    new Thread(() -> database.runInTransaction(() -> {
+                        database.notificationDao().deleteAll();
+                        database.messageDao().deleteAll();
+                    })).start();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showArchiveSearchDialog() {
+        EditText input = new EditText(this);
+        input.setHint("Contact or app name");
+        new AlertDialog.Builder(this)
+                .setTitle("Search Archive")
+                .setMessage("Notifications older than the retention period are moved to the archive.")
+                .setView(input)
+                .setPositiveButton("Search", (dialog, which) -> {
+                    String query = input.getText().toString().trim();
+                    if (!query.isEmpty()) {
+                        searchArchive(query);
+                    }
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
+    private void searchArchive(String query) {
+        new Thread(() -> {
+            try {
+                List<NotificationArchiver.ArchivedNotification> results =
+                        new NotificationArchiver(this).search(query, 50);
+                String[] items = new String[results.size()];
+                java.text.DateFormat dateFormat = java.text.DateFormat.getDateTimeInstance(
+                        java.text.DateFormat.SHORT, java.text.DateFormat.SHORT);
+                for (int i = 0; i < results.size(); i++) {
+                    NotificationEntity notification = results.get(i).notification;
+                    items[i] = notification.getTitle() + " (" + notification.getAppName() + ", " +
+                            dateFormat.format(new java.util.Date(notification.getTimestamp())) + ")\n" +
+                            notification.getContent();
+                }
+                runOnUiThread(() -> {
+                    AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                            .setTitle("Archive: " + query)
+                            .setPositiveButton("OK", null);
+                    if (items.length == 0) {
+                        builder.setMessage("No archived notifications found");
+                    } else {
+                        builder.setItems(items, null);
+                    }
+                    builder.show();
+                });
+            } catch (Exception e) {
+                Log.e("MainActivity", "Archive search failed", e);
+                runOnUiThread(() -> Toast.makeText(this,
+                        "Archive search failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            }
+        }).start();
+    }
+
     private void showAboutDialog() {
         new AlertDialog.Builder(this)
                 .setTitle("About")
@@ -896,8 +898,6 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void initializeBackupRestore() {
-        backupRestoreManager = new BackupRestoreManager(this);
-
         // Initialize file picker for creating backup
         createBackupLauncher = registerForActivityResult(
             new ActivityResultContracts.CreateDocument("application/zip"),
@@ -908,17 +908,32 @@ public class MainActivity extends AppCompatActivity {
             }
         );
 
-        // Initialize file picker for selecting backup to restore
+        // Initialize file picker for selecting backup to restore (a full backup plus its increments)
         selectBackupLauncher = registerForActivityResult(
-            new ActivityResultContracts.OpenDocument(),
-            uri -> {
-                if (uri != null) {
-                    performRestore(uri);
+            new ActivityResultContracts.OpenMultipleDocuments(),
+            uris -> {
+                if (uris != null && !uris.isEmpty()) {
+                    performRestore(uris);
                 }
             }
         );
     }
 
+    // Created on first use, off the launch path
+    private BackupRestoreManager getBackupRestoreManager() {
+        if (backupRestoreManager == null) {
+            backupRestoreManager = new BackupRestoreManager(this);
+        }
+        return backupRestoreManager;
+    }
+
+    private AutoReplyManager getAutoReplyManager() {
+        if (autoReplyManager == null) {
+            autoReplyManager = new AutoReplyManager(this);
+        }
+        return autoReplyManager;
+    }
+
     private void showBackupDialog() {
         new AlertDialog.Builder(this)
             .setTitle("Create Backup")
@@ -929,17 +944,23 @@ public class MainActivity extends AppCompatActivity {
                        "• Gemini configuration\n" +
                        "• Keyword actions\n" +
                        "• Media files\n\n" +
+                       "An incremental backup only stores changes since your last backup " +
+                       "and must be restored together with it.\n\n" +
                        "Choose a location to save the backup file.")
-            .setPositiveButton("Create Backup", (dialog, which) -> {
-                String fileName = "WhatSuit_Backup_" +
-                    new java.text.SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", java.util.Locale.getDefault())
-                        .format(new java.util.Date()) + ".zip";
-                createBackupLauncher.launch(fileName);
-            })
+            .setPositiveButton("Create Backup", (dialog, which) -> launchBackup(false))
+            .setNeutralButton("Incremental", (dialog, which) -> launchBackup(true))
             .setNegativeButton("Cancel", null)
             .show();
     }
 
+    private void launchBackup(boolean incremental) {
+        pendingIncrementalBackup = incremental;
+        String fileName = (incremental ? "WhatSuit_Incremental_" : "WhatSuit_Backup_") +
+            new java.text.SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", java.util.Locale.getDefault())
+                .format(new java.util.Date()) + ".zip";
+        createBackupLauncher.launch(fileName);
+    }
+
     private void showRestoreDialog() {
         new AlertDialog.Builder(this)
             .setTitle("Restore from Backup")
@@ -951,8 +972,9 @@ public class MainActivity extends AppCompatActivity {
                        "• Gemini configuration\n" +
                        "• Keyword actions\n" +
                        "• Media files\n\n" +
+                       "To restore incremental backups, select the full backup together with all of its increments.\n\n" +
                        "This action cannot be undone. Consider creating a backup first.")
-            .setPositiveButton("Select Backup File", (dialog, which) -> {
+            .setPositiveButton("Select Backup Files", (dialog, which) -> {
                 selectBackupLauncher.launch(new String[]{"application/zip", "application/octet-stream"});
             })
             .setNegativeButton("Cancel", null)
@@ -968,7 +990,7 @@ public class MainActivity extends AppCompatActivity {
             .create();
         progressDialog.show();
 
-        backupRestoreManager.createBackup(destinationUri, new BackupRestoreManager.BackupRestoreCallback() {
+        BackupRestoreManager.BackupRestoreCallback callback = new BackupRestoreManager.BackupRestoreCallback() {
             @Override
             public void onProgress(String message, int progress) {
                 runOnUiThread(() -> {
@@ -999,10 +1021,18 @@ public class MainActivity extends AppCompatActivity {
                         .show();
                 });
             }
-        });
+        };
+
+        // Binary is several times smaller and faster to restore; restore still reads JSON backups
+        BackupRestoreManager.BackupFormat format = BackupRestoreManager.BackupFormat.BINARY;
+        if (pendingIncrementalBackup) {
+            getBackupRestoreManager().createIncrementalBackup(destinationUri, format, callback);
+        } else {
+            getBackupRestoreManager().createBackup(destinationUri, format, callback);
+        }
     }
 
-    private void performRestore(Uri backupUri) {
+    private void performRestore(List<Uri> backupUris) {
         // Show final confirmation
         new AlertDialog.Builder(this)
             .setTitle("Final Confirmation")
@@ -1017,7 +1047,7 @@ public class MainActivity extends AppCompatActivity {
                     .create();
                 progressDialog.show();
 
-                backupRestoreManager.restoreBackup(backupUri, new BackupRestoreManager.BackupRestoreCallback() {
+                getBackupRestoreManager().restoreBackupChain(backupUris, new BackupRestoreManager.BackupRestoreCallback() {
                     @Override
                     public void onProgress(String message, int progress) {
                         runOnUiThread(() -> {
@@ -1033,13 +1063,13 @@ public class MainActivity extends AppCompatActivity {
                                 .setTitle("Restore Successful")
                                 .setMessage(message + "\n\nThe app will now restart to apply the changes.")
                                 .setPositiveButton("Restart App", (d, w) -> {
-                                    // Restart the app
+                                    // Restart the process: the listener, workers and the Gemini
+                                    // client still hold the database instance the restore replaced
                                     Intent intent = getPackageManager().getLaunchIntentForPackage(getPackageName());
-                                    if (intent != null) {
-                                        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-                                        startActivity(intent);
-                                        finish();
+                                    if (intent != null && intent.getComponent() != null) {
+                                        startActivity(Intent.makeRestartActivityTask(intent.getComponent()));
                                     }
+                                    Runtime.getRuntime().exit(0);
                                 })
                                 .setCancelable(false)
                                 .show();
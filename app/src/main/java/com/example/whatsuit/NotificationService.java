@@ -19,7 +19,21 @@ import com.example.whatsuit.data.AppDatabase;
 import com.example.whatsuit.data.KeywordActionEntity;
 import com.example.whatsuit.data.NotificationEntity;
 import com.example.whatsuit.data.ConversationHistory;
+import com.example.whatsuit.metrics.LatencyHistogram;
+import com.example.whatsuit.metrics.Metrics;
+import com.example.whatsuit.metrics.MetricsRegistry;
+import com.example.whatsuit.metrics.PipelineTrace;
 import com.example.whatsuit.service.GeminiService;
+import com.example.whatsuit.service.ReplyGenerator;
+import com.example.whatsuit.util.DeepLinkNotifier;
+import com.example.whatsuit.util.GroupConversationCache;
+import com.example.whatsuit.util.MessageIngester;
+import com.example.whatsuit.util.ReplyActionRegistry;
+import com.example.whatsuit.util.ReplyScheduler;
+import com.example.whatsuit.util.VerboseLog;
+import com.example.whatsuit.worker.DatabaseMaintenanceWorker;
+import com.example.whatsuit.worker.NotificationArchiveWorker;
+import com.example.whatsuit.worker.ReplyDispatchWorker;
 
 import kotlinx.coroutines.BuildersKt;
 import kotlinx.coroutines.CoroutineScope;
@@ -33,20 +47,38 @@ import kotlin.coroutines.CoroutineContext;
 import kotlin.coroutines.EmptyCoroutineContext;
 
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class NotificationService extends NotificationListenerService {
     private static final String TAG = "AutoReplySystem";
-    private volatile GeminiService geminiService;
+    private volatile ReplyGenerator geminiService;
     private volatile boolean geminiInitialized = false;
     private volatile boolean geminiInitializing = false;
     private AppDatabase database;
     private static final long NOTIFICATION_COOLDOWN = 5000; // 5 seconds cooldown
+    // Conversations whose latest reply action is kept for deferred and retried replies
+    private static final int MAX_REPLY_ACTIONS = 100;
+    // Replies generated or sent at once; the rest wait in the scheduler
+    private static final int MAX_REPLIES_IN_FLIGHT = 3;
     private SharedPreferences processedNotifications;
     private final CoroutineScope serviceScope;
     private final ConcurrentHashMap<String, Long> processingNotifications = new ConcurrentHashMap<>();
+    // Reply requests this listener started; the generator is shared, so only these are cancelled on destroy
+    private final Set<Job> replyJobs = ConcurrentHashMap.newKeySet();
+    // Listener instance currently bound by the system, for background reply dispatch
+    private static volatile NotificationService connectedInstance;
+    private final ReplyActionRegistry replyActions = new ReplyActionRegistry(MAX_REPLY_ACTIONS);
+    private final ReplyScheduler replyScheduler;
+    private DeepLinkNotifier deepLinkNotifier;
+    // Group vs direct per conversation, so extras are only parsed on first sight
+    private GroupConversationCache groupConversations;
+    // Appends the messages of each post, skipping those an earlier post already stored
+    private MessageIngester messageIngester;
 
     public NotificationService() {
         // Use GlobalScope with IO dispatcher for background operations
@@ -56,6 +88,19 @@ public class NotificationService extends NotificationListenerService {
                 return GlobalScope.INSTANCE.getCoroutineContext().plus(Dispatchers.getIO());
             }
         };
+        replyScheduler = new ReplyScheduler(MAX_REPLIES_IN_FLIGHT, this::launchInServiceScope);
+    }
+
+    private void launchInServiceScope(Runnable runnable) {
+        BuildersKt.launch(
+            serviceScope,
+            EmptyCoroutineContext.INSTANCE,
+            CoroutineStart.DEFAULT,
+            (scope, continuation) -> {
+                runnable.run();
+                return Unit.INSTANCE;
+            }
+        );
     }
 
     @Override
@@ -63,8 +108,13 @@ public class NotificationService extends NotificationListenerService {
         super.onCreate();
         Log.d(TAG, "NotificationService created");
         database = AppDatabase.getDatabase(this);
+        groupConversations = new GroupConversationCache(database.notificationDao());
+        messageIngester = new MessageIngester(database.messageDao());
+        VerboseLog.init(this);
+        PipelineTrace.init(this);
         initializeGeminiService();
         processedNotifications = getSharedPreferences("processed_notifications", Context.MODE_PRIVATE);
+        deepLinkNotifier = new DeepLinkNotifier(this);
 
         createNotificationChannel();
 
@@ -80,7 +130,7 @@ public class NotificationService extends NotificationListenerService {
         }
 
         geminiInitializing = true;
-        geminiService = new GeminiService(this);
+        geminiService = createReplyGenerator();
 
         try {
             BuildersKt.launch(
@@ -114,18 +164,45 @@ public class NotificationService extends NotificationListenerService {
         }
     }
 
+    /**
+     * Returns the process-wide reply generator used for auto-replies. Overridden by the load test
+     * harness to stub out network calls.
+     */
+    protected ReplyGenerator createReplyGenerator() {
+        return GeminiService.getInstance(this);
+    }
+
+    /**
+     * Called once a posted notification has been committed to the database.
+     */
+    protected void onNotificationStored(StatusBarNotification sbn, long notificationId) {
+    }
+
+    /**
+     * Called once an auto-reply has been handed to the messaging app's reply action.
+     */
+    protected void onReplySent(NotificationEntity notification, String replyText) {
+    }
+
     private boolean canProcessNotification(StatusBarNotification sbn) {
         String key = sbn.getKey();
         long now = System.currentTimeMillis();
         Long lastProcessTime = processingNotifications.putIfAbsent(key, now);
 
         if (lastProcessTime != null && (now - lastProcessTime) < NOTIFICATION_COOLDOWN) {
-            Log.d(TAG, "Skipping duplicate notification processing: " + key);
+            if (VerboseLog.isEnabled()) {
+                Log.d(TAG, "Skipping duplicate notification processing: " + key);
+            }
             return false;
         }
         return true;
     }
 
+    // Our own deep link notifications must not be captured again
+    private boolean isOwnNotification(StatusBarNotification sbn) {
+        return getPackageName().equals(sbn.getPackageName());
+    }
+
     private void markNotificationProcessed(StatusBarNotification sbn, long currentTime) {
         String notificationKey = sbn.getKey();
         processedNotifications.edit()
@@ -135,39 +212,58 @@ public class NotificationService extends NotificationListenerService {
 
     @Override
     public void onNotificationPosted(StatusBarNotification sbn) {
-        if (sbn == null) return;
+        if (sbn == null || isOwnNotification(sbn)) return;
+        Metrics.NOTIFICATIONS_POSTED.increment();
 
         if (!canProcessNotification(sbn)) {
+            Metrics.NOTIFICATIONS_DEDUPLICATED.increment();
             return;
         }
 
+        int traceCookie = PipelineTrace.beginLifecycle();
+        PipelineTrace.setCounter(PipelineTrace.COUNTER_QUEUE_DEPTH, Metrics.NOTIFICATIONS_IN_FLIGHT.increment());
         BuildersKt.launch(
             serviceScope,
             EmptyCoroutineContext.INSTANCE,
             CoroutineStart.DEFAULT,
             (scope, continuation) -> {
+                long start = LatencyHistogram.start();
+                boolean replyPending = false;
+                PipelineTrace.beginSection("NotificationService.handleNotification");
                 try {
-                    handleNotification(sbn);
+                    replyPending = handleNotification(sbn, traceCookie);
                 } catch (Exception e) {
+                    Metrics.NOTIFICATIONS_FAILED.increment();
                     Log.e(TAG, "Error handling notification", e);
                 } finally {
+                    PipelineTrace.endSection();
+                    Metrics.INGEST.recordSince(start);
+                    PipelineTrace.setCounter(PipelineTrace.COUNTER_QUEUE_DEPTH, Metrics.NOTIFICATIONS_IN_FLIGHT.decrement());
                     processingNotifications.remove(sbn.getKey());
+                    if (!replyPending) {
+                        PipelineTrace.endLifecycle(traceCookie);
+                    }
                 }
                 return Unit.INSTANCE;
             }
         );
     }
 
-    private void handleNotification(StatusBarNotification sbn) throws PackageManager.NameNotFoundException {
+    /**
+     * Stores the notification and starts an auto-reply if one applies.
+     * @return true if a reply was handed off to a background job, which then ends the
+     * notification's trace slice
+     * @param traceCookie the notification's lifecycle slice
+     */
+    private boolean handleNotification(StatusBarNotification sbn, int traceCookie) {
         Notification notification = sbn.getNotification();
         String packageName = sbn.getPackageName();
 
-        Log.d(TAG, "Handling notification from package: " + packageName);
+        if (VerboseLog.isEnabled()) {
+            Log.d(TAG, "Handling notification from package: " + packageName);
+        }
 
-        // Get app name
-        PackageManager packageManager = getPackageManager();
-        ApplicationInfo applicationInfo = packageManager.getApplicationInfo(packageName, 0);
-        String appName = packageManager.getApplicationLabel(applicationInfo).toString();
+        String appName = getAppName(packageName);
 
         // Extract notification details
         String title = "";
@@ -195,6 +291,15 @@ public class NotificationService extends NotificationListenerService {
         // Generate consistent thread ID for the conversation
         threadId = generateThreadId(packageName, title);
 
+        // Remember the freshest reply action for the conversation
+        Notification.Action replyAction = null;
+        GroupConversationCache.Classification group = null;
+        if (isMessagingApp(packageName)) {
+            replyAction = findReplyAction(notification);
+            replyActions.put(threadId, sbn.getKey(), replyAction);
+            group = groupConversations.get(threadId, notification);
+        }
+
 
 long id;
         NotificationEntity notificationEntity;
@@ -208,38 +313,71 @@ long id;
                 sbn.getPostTime(),
                 String.valueOf(sbn.getId())
              );
+            // Guesses are left null so the upsert keeps what the app reported earlier
+            if (group != null && group.reported) {
+                notificationEntity.setIsGroup(group.isGroup);
+            }
 
             // Use atomic upsert operation
-            id = database.notificationDao().upsertNotification(notificationEntity);
-            Log.d(TAG, "Successfully processed notification with ID: " + id);
+            long upsertStart = LatencyHistogram.start();
+            PipelineTrace.beginSection("NotificationDao.upsertNotification");
+            try {
+                id = database.notificationDao().upsertNotification(notificationEntity);
+                // Replies, retries and deep links reference the stored row
+                notificationEntity.setId(id);
+            } finally {
+                PipelineTrace.endSection();
+            }
+            Metrics.DB_UPSERT.recordSince(upsertStart);
+            if (VerboseLog.isEnabled()) {
+                Log.d(TAG, "Successfully processed notification with ID: " + id);
+            }
+            onNotificationStored(sbn, id);
         } catch (Exception e) {
             Log.e(TAG, "Error handling notification (Ask Gemini)", e);
-            return;
+            return false;
+        }
+
+        // Every message of a stacked notification, not just the latest one kept above
+        if (isMessagingApp(packageName)) {
+            PipelineTrace.beginSection("MessageIngester.ingest");
+            try {
+                int inserted = messageIngester.ingest(threadId, notification, title, content, sbn.getPostTime());
+                if (VerboseLog.isEnabled()) {
+                    Log.d(TAG, "Stored " + inserted + " new messages for " + threadId);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error storing messages for " + threadId, e);
+            } finally {
+                PipelineTrace.endSection();
+            }
         }
         // Check auto-reply settings
+        long settingsStart = LatencyHistogram.start();
         SharedPreferences prefs = getSharedPreferences("whatsuit_settings", Context.MODE_PRIVATE);
         boolean globalAutoReplyEnabled = prefs.getBoolean("auto_reply_enabled", false);
-        Log.d(TAG, "Global auto-reply enabled: " + globalAutoReplyEnabled);
 
         boolean appSpecificEnabled = false;
         boolean appSpecificGroupsEnabled = false;
         if (isMessagingApp(packageName)) {
             appSpecificEnabled = database.appSettingDao().isAutoReplyEnabled(packageName);
             appSpecificGroupsEnabled = database.appSettingDao().isAutoReplyGroupsEnabled(packageName);
-            Log.d(TAG, "App-specific auto-reply enabled for " + packageName + ": " + appSpecificEnabled);
-            Log.d(TAG, "App-specific auto-reply for groups enabled for " + packageName + ": " + appSpecificGroupsEnabled);
         }
 
         // Check basic auto-reply conditions without requiring Gemini to be initialized
+        boolean replyPending = false;
         boolean shouldAutoReply = isMessagingApp(packageName) &&
             globalAutoReplyEnabled &&
             appSpecificEnabled;
 
-        Log.d(TAG, "Should auto-reply: " + shouldAutoReply +
-            " (isMessagingApp=" + isMessagingApp(packageName) +
-            ", globalEnabled=" + globalAutoReplyEnabled +
-            ", appEnabled=" + appSpecificEnabled +
-            ", geminiStatus=" + (geminiInitialized ? "initialized" : "not initialized") + ")");
+        if (VerboseLog.isEnabled()) {
+            Log.d(TAG, "Should auto-reply: " + shouldAutoReply +
+                " (isMessagingApp=" + isMessagingApp(packageName) +
+                ", globalEnabled=" + globalAutoReplyEnabled +
+                ", appEnabled=" + appSpecificEnabled +
+                ", groupsEnabled=" + appSpecificGroupsEnabled +
+                ", geminiStatus=" + (geminiInitialized ? "initialized" : "not initialized") + ")");
+        }
 
         if (shouldAutoReply) {
             String phoneNumber = "";
@@ -253,64 +391,50 @@ long id;
             }
 
             boolean autoReplyEnabled = !database.notificationDao().isAutoReplyDisabled(packageName, phoneNumber, titlePrefix);
-
-            Log.d(TAG, String.format(
-                "Auto-reply conditions met for notification:\n" +
-                "App: %s\n" +
-                "Content: %s\n" +
-                "Phone: %s\n" +
-                "Title Prefix: %s\n" +
-                "Auto-reply enabled: %s",
-                appName, content, phoneNumber, titlePrefix, autoReplyEnabled));
+            Metrics.SETTINGS_CHECK.recordSince(settingsStart);
+
+            if (VerboseLog.isEnabled()) {
+                Log.d(TAG, String.format(
+                    "Auto-reply conditions met for notification:\n" +
+                    "App: %s\n" +
+                    "Content: %s\n" +
+                    "Phone: %s\n" +
+                    "Title Prefix: %s\n" +
+                    "Auto-reply enabled: %s",
+                    appName, content, phoneNumber, titlePrefix, autoReplyEnabled));
+            }
 
             if (autoReplyEnabled) {
-                boolean isGroupMessage = isGroupMessage(sbn);
+                boolean isGroupMessage = group != null && group.isGroup;
                 if (isGroupMessage && appSpecificGroupsEnabled) {
-                    handleAutoReply(sbn, notificationEntity);
+                    replyPending = handleAutoReply(sbn, notificationEntity, replyAction, true, traceCookie);
                 } else if (!isGroupMessage) {
-                    handleAutoReply(sbn, notificationEntity);
+                    replyPending = handleAutoReply(sbn, notificationEntity, replyAction, false, traceCookie);
                 }
             }
+        } else {
+            Metrics.SETTINGS_CHECK.recordSince(settingsStart);
         }
 
-        updateNotificationWithDeepLink(sbn, id);
+        // Opt-in and throttled per conversation; capture itself is just the upsert above
+        if (deepLinkNotifier.isEnabled()) {
+            try {
+                deepLinkNotifier.maybeNotify(notificationEntity);
+            } catch (Exception e) {
+                Log.e(TAG, "Error posting deep link notification", e);
+            }
+        }
+        return replyPending;
     }
 
-    private void updateNotificationWithDeepLink(StatusBarNotification sbn, long id) {
+    private String getAppName(String packageName) {
+        PackageManager packageManager = getPackageManager();
         try {
-            Intent deepLinkIntent = new Intent(Intent.ACTION_VIEW,
-                Uri.parse("whatsuit://notification/" + id));
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0,
-                deepLinkIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            Notification notification = sbn.getNotification();
-            if (notification.extras != null) {
-                Notification.Builder builder;
-                if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-                    String channelId = notification.getChannelId();
-                    builder = new Notification.Builder(this, channelId);
-                } else {
-                    builder = new Notification.Builder(this);
-                }
-
-                CharSequence title = notification.extras.getCharSequence(Notification.EXTRA_TITLE);
-                CharSequence content = notification.extras.getCharSequence(Notification.EXTRA_TEXT);
-
-                builder.setContentTitle(title)
-                       .setContentText(content)
-                       .setSmallIcon(notification.getSmallIcon())
-                       .setAutoCancel(true)
-                       .setWhen(sbn.getPostTime())
-                       .setContentIntent(pendingIntent);
-
-                notification = builder.build();
-                android.app.NotificationManager notificationManager =
-                    (android.app.NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-                notificationManager.notify(sbn.getId(), notification);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error updating notification with deep link", e);
+            ApplicationInfo applicationInfo = packageManager.getApplicationInfo(packageName, 0);
+            return packageManager.getApplicationLabel(applicationInfo).toString();
+        } catch (PackageManager.NameNotFoundException e) {
+            // Package is not visible to this app; keep the notification under its package name
+            return packageName;
         }
     }
 
@@ -336,62 +460,138 @@ long id;
                packageName.contains("com.google.android.apps.messaging");
     }
 
-    private void handleAutoReply(StatusBarNotification sbn, NotificationEntity notificationEntity) {
-        Notification.Action[] actions = sbn.getNotification().actions;
-        if (actions != null) {
-            for (Notification.Action action : actions) {
-                Log.d(TAG, "Checking notification action: " + action.title);
-                boolean hasRemoteInput = action.getRemoteInputs() != null && action.getRemoteInputs().length > 0;
-                Log.d(TAG, "Action has remote inputs: " + hasRemoteInput);
-                if (hasRemoteInput) {
-                    BuildersKt.launch(
-                        serviceScope,
-                        EmptyCoroutineContext.INSTANCE,
-                        CoroutineStart.DEFAULT,
-                        (scope, continuation) -> {
-                            try {
-                                // Check for keyword match first
-                                KeywordActionEntity keywordAction = database.keywordActionDao()
-                                    .findMatchingKeyword(notificationEntity.getContent());
-
-                                if (keywordAction != null && keywordAction.isEnabled()) {
-                                    Log.d(TAG, "Found matching keyword action: " + keywordAction.getKeyword());
-                                    handleKeywordAction(action, keywordAction, notificationEntity);
-                                } else {
-                                    // Fall back to Gemini response
-                                    Boolean initResult = BuildersKt.runBlocking(EmptyCoroutineContext.INSTANCE, (coroutineScope, cont) -> {
-                                        return geminiService.initialize(cont);
-                                    });
-                                    Log.d(TAG, "Gemini initialized for auto-reply");
-                                    generateAndSendReply(notificationEntity, action);
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error during auto-reply", e);
-                            }
-                            return Unit.INSTANCE;
-                        }
-                    );
-                    break;
+    /**
+     * Queues the reply in the scheduler: keyword replies first, as they need no network, then
+     * direct chats, then groups.
+     * @return true if a reply was queued
+     */
+    private boolean handleAutoReply(StatusBarNotification sbn, NotificationEntity notificationEntity,
+                                    Notification.Action action, boolean isGroupMessage, int traceCookie) {
+        String notificationKey = sbn.getKey();
+        if (action == null) {
+            return false;
+        }
+
+        // Check for keyword match first; a local query that decides the reply's priority
+        long keywordStart = LatencyHistogram.start();
+        KeywordActionEntity match = database.keywordActionDao()
+            .findMatchingKeyword(notificationEntity.getContent());
+        Metrics.KEYWORD_MATCH.recordSince(keywordStart);
+        KeywordActionEntity keywordAction = match != null && match.isEnabled() ? match : null;
+
+        ReplyScheduler.Priority priority = keywordAction != null ? ReplyScheduler.Priority.KEYWORD
+            : isGroupMessage ? ReplyScheduler.Priority.GROUP : ReplyScheduler.Priority.DIRECT;
+        replyScheduler.submit(sbn.getPackageName(), notificationEntity.getConversationId(), priority, done -> {
+            boolean awaitingGemini = false;
+            try {
+                if (keywordAction != null) {
+                    Metrics.KEYWORD_MATCHES.increment();
+                    if (VerboseLog.isEnabled()) {
+                        Log.d(TAG, "Found matching keyword action: " + keywordAction.getKeyword());
+                    }
+                    handleKeywordAction(action, keywordAction, notificationEntity);
+                } else {
+                    // Fall back to Gemini response
+                    Boolean initResult = BuildersKt.runBlocking(EmptyCoroutineContext.INSTANCE, (coroutineScope, cont) -> {
+                        return geminiService.initialize(cont);
+                    });
+                    awaitingGemini = generateAndSendReply(notificationEntity, action, notificationKey, traceCookie, done);
                 }
+            } catch (Exception e) {
+                Log.e(TAG, "Error during auto-reply", e);
+            } finally {
+                if (!awaitingGemini) {
+                    PipelineTrace.endLifecycle(traceCookie);
+                    done.run();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * First action of the notification that accepts a text reply
+     */
+    private static Notification.Action findReplyAction(Notification notification) {
+        Notification.Action[] actions = notification.actions;
+        if (actions == null) {
+            return null;
+        }
+        for (Notification.Action action : actions) {
+            boolean hasRemoteInput = action.getRemoteInputs() != null && action.getRemoteInputs().length > 0;
+            if (VerboseLog.isEnabled()) {
+                Log.d(TAG, "Checking notification action: " + action.title + " (remote inputs: " + hasRemoteInput + ")");
+            }
+            if (hasRemoteInput) {
+                return action;
             }
         }
+        return null;
+    }
+
+    /**
+     * Latest reply action for a conversation. Falls back to the notification the reply was
+     * queued for when the registry no longer has the conversation, e.g. after a process restart.
+     * @return null once the conversation's notification has been removed
+     */
+    public Notification.Action getReplyAction(String conversationId, String notificationKey) {
+        Notification.Action action = replyActions.get(conversationId);
+        if (action == null) {
+            action = findReplyAction(notificationKey);
+            replyActions.put(conversationId, notificationKey, action);
+        }
+        return action;
+    }
+
+    private Notification.Action findReplyAction(String notificationKey) {
+        if (notificationKey == null) {
+            return null;
+        }
+        StatusBarNotification[] active;
+        try {
+            active = getActiveNotifications(new String[]{notificationKey});
+        } catch (SecurityException e) {
+            // Thrown when the listener is not bound
+            return null;
+        }
+        if (active == null) {
+            return null;
+        }
+        for (StatusBarNotification sbn : active) {
+            Notification.Action action = findReplyAction(sbn.getNotification());
+            if (action != null) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The listener instance currently bound by the system, or null when notification access is
+     * off or the listener is disconnected.
+     */
+    public static NotificationService getConnectedInstance() {
+        return connectedInstance;
+    }
+
+    public ReplyGenerator getReplyGenerator() {
+        return geminiService;
     }
 
     private void handleKeywordAction(Notification.Action action, KeywordActionEntity keywordAction, NotificationEntity notification) {
         // Check reply limit before proceeding
         if (!checkReplyLimit(notification.getConversationId())) {
-            Log.d(TAG, "Reply limit reached for conversation: " + notification.getConversationId());
+            Metrics.REPLY_LIMIT_REACHED.increment();
             return;
         }
 
         try {
             if (keywordAction.getActionType().equals("TEXT")) {
                 // Handle text replies directly
-                sendReply(action, keywordAction.getActionContent());
+                sendReply(action, keywordAction.getActionContent(), notification);
 
                 // Increment reply count for this conversation
                 database.conversationReplyCountDao().incrementReplyCount(notification.getConversationId());
-                Log.d(TAG, "Keyword action reply sent and count incremented for conversation: " + notification.getConversationId());
                 return;
             }
 
@@ -487,13 +687,19 @@ long id;
                 RemoteInput.addResultsToIntent(remoteInputs, mediaIntent, wrapperBundle);
 
                 try {
+                    long sendStart = LatencyHistogram.start();
                     action.actionIntent.send(this, 0, mediaIntent);
-                    Log.d(TAG, "Successfully sent WhatsApp media reply: " + keywordAction.getActionContent());
+                    Metrics.REPLY_SEND.recordSince(sendStart);
+                    Metrics.REPLIES_SENT.increment();
+                    if (VerboseLog.isEnabled()) {
+                        Log.d(TAG, "Successfully sent WhatsApp media reply: " + keywordAction.getActionContent());
+                    }
+                    onReplySent(notification, keywordAction.getActionContent());
 
                     // Increment reply count for this conversation
                     database.conversationReplyCountDao().incrementReplyCount(notification.getConversationId());
-                    Log.d(TAG, "Media keyword action reply sent and count incremented for conversation: " + notification.getConversationId());
                 } catch (PendingIntent.CanceledException e) {
+                    Metrics.REPLIES_FAILED.increment();
                     Log.e(TAG, "Failed to send WhatsApp media reply", e);
                 }
             } else {
@@ -504,51 +710,54 @@ long id;
         }
     }
 
-    private void generateAndSendReply(NotificationEntity notification, Notification.Action replyAction) {
+    /**
+     * @param done releases the scheduler slot; called here once Gemini has answered or failed
+     * @return true if a reply was requested from Gemini; its callbacks end the trace slice
+     */
+    private boolean generateAndSendReply(NotificationEntity notification, Notification.Action replyAction,
+                                         String notificationKey, int traceCookie, Runnable done) {
         if (notification.isAutoReplied()) {
-            Log.d(TAG, "Notification already auto-replied, skipping: " + notification.getId());
-            return;
+            if (VerboseLog.isEnabled()) {
+                Log.d(TAG, "Notification already auto-replied, skipping: " + notification.getId());
+            }
+            return false;
         }
 
         // Check reply limit before proceeding
         if (!checkReplyLimit(notification.getConversationId())) {
-            Log.d(TAG, "Reply limit reached for conversation: " + notification.getConversationId());
-            return;
+            Metrics.REPLY_LIMIT_REACHED.increment();
+            return false;
         }
 
-        geminiService.generateReply(notification.getId(), notification.getContent(), new GeminiService.ResponseCallback() {
+        long geminiStart = LatencyHistogram.start();
+        Job replyJob = geminiService.generateReply(notification.getId(), notification.getContent(), new GeminiService.ResponseCallback() {
             @Override
             public void onPartialResponse(String text) {
-                Log.d(TAG, "Partial response from Gemini: " + text);
+                if (VerboseLog.isEnabled()) {
+                    Log.d(TAG, "Partial response from Gemini: " + text);
+                }
             }
 
             @Override
             public void onComplete(String fullResponse) {
+                Metrics.GEMINI_LATENCY.recordSince(geminiStart);
                 BuildersKt.launch(
                     serviceScope,
                     EmptyCoroutineContext.INSTANCE,
                     CoroutineStart.DEFAULT,
                     (scope, continuation) -> {
                         try {
-                            // Update notification status and increment reply count atomically
-                            BuildersKt.runBlocking(EmptyCoroutineContext.INSTANCE, (scope2, cont2) -> {
-                                database.runInTransaction(() -> {
-                                    notification.setAutoReplied(true);
-                                    notification.setAutoReplyContent(fullResponse);
-                                    database.notificationDao().update(notification);
-
-                                    // Increment reply count for this conversation
-                                    database.conversationReplyCountDao().incrementReplyCount(notification.getConversationId());
-
-                                    return Unit.INSTANCE;
-                                });
-                                return Unit.INSTANCE;
-                            });
-
-                            sendReply(replyAction, fullResponse);
-                            Log.d(TAG, "Generated and sent full response: " + fullResponse);
+                            // A newer message in the conversation may have replaced the action
+                            Notification.Action freshest = replyActions.get(notification.getConversationId());
+                            if (!deliverReply(notification, freshest != null ? freshest : replyAction, fullResponse)) {
+                                // Keep the generated text; the dispatcher resends it if a reply action comes back
+                                ReplyDispatchWorker.enqueue(NotificationService.this, notification, notificationKey,
+                                    fullResponse, "Reply could not be sent");
+                            }
                         } catch (Exception e) {
                             Log.e(TAG, "Error processing auto-reply", e);
+                        } finally {
+                            PipelineTrace.endLifecycle(traceCookie);
                         }
                         return Unit.INSTANCE;
                     }
@@ -557,14 +766,61 @@ long id;
 
             @Override
             public void onError(Throwable error) {
+                Metrics.GEMINI_ERRORS.increment();
+                PipelineTrace.endLifecycle(traceCookie);
                 Log.e(TAG, "Error generating reply from Gemini", error);
+                // Called on the main thread; queueing writes to the database
+                BuildersKt.launch(
+                    serviceScope,
+                    EmptyCoroutineContext.INSTANCE,
+                    CoroutineStart.DEFAULT,
+                    (scope, continuation) -> {
+                        try {
+                            ReplyDispatchWorker.enqueue(NotificationService.this, notification, notificationKey,
+                                null, error.getMessage());
+                        } catch (Exception e) {
+                            Log.e(TAG, "Failed to queue reply for retry", e);
+                        }
+                        return Unit.INSTANCE;
+                    }
+                );
             }
         });
+        replyJobs.add(replyJob);
+        // Completes after the callback, including when the request is cancelled without one;
+        // sending the reply no longer needs the slot
+        replyJob.invokeOnCompletion(cause -> {
+            replyJobs.remove(replyJob);
+            done.run();
+            return Unit.INSTANCE;
+        });
+        return true;
+    }
+
+    /**
+     * Sends the reply through the reply action and, once it was sent, marks the notification as
+     * replied and counts the reply against the conversation's limit.
+     * @return false if the reply was not sent; the notification is left unreplied
+     */
+    public boolean deliverReply(NotificationEntity notification, Notification.Action replyAction, String replyText) {
+        if (!sendReply(replyAction, replyText, notification)) {
+            return false;
+        }
+        // Update notification status and increment reply count atomically
+        database.runInTransaction(() -> {
+            notification.setAutoReplied(true);
+            notification.setAutoReplyContent(replyText);
+            database.notificationDao().markAutoReplied(notification.getId(), replyText);
+
+            // Increment reply count for this conversation
+            database.conversationReplyCountDao().incrementReplyCount(notification.getConversationId());
+        });
+        return true;
     }
 
-    private void sendReply(Notification.Action action, String replyText) {
+    private boolean sendReply(Notification.Action action, String replyText, NotificationEntity notification) {
         RemoteInput[] remoteInputs = action.getRemoteInputs();
-        if (remoteInputs == null || remoteInputs.length == 0) return;
+        if (remoteInputs == null || remoteInputs.length == 0) return false;
 
         try {
             RemoteInput remoteInput = remoteInputs[0];
@@ -573,10 +829,20 @@ long id;
             results.putCharSequence(remoteInput.getResultKey(), replyText);
             RemoteInput.addResultsToIntent(remoteInputs, intent, results);
 
+            long sendStart = LatencyHistogram.start();
             action.actionIntent.send(this, 0, intent);
-            Log.d(TAG, "Successfully sent auto-reply: " + replyText);
+            Metrics.REPLY_SEND.recordSince(sendStart);
+            Metrics.REPLIES_SENT.increment();
+            if (VerboseLog.isEnabled()) {
+                Log.d(TAG, "Successfully sent auto-reply: " + replyText);
+            }
+            onReplySent(notification, replyText);
+            return true;
         } catch (PendingIntent.CanceledException e) {
+            Metrics.REPLIES_FAILED.increment();
+            replyActions.remove(notification.getConversationId());
             Log.e(TAG, "Failed to send auto-reply", e);
+            return false;
         }
     }
 
@@ -595,16 +861,12 @@ long id;
 
             boolean hasReachedLimit = database.conversationReplyCountDao().hasReachedLimit(conversationId, maxReplies);
 
-            if (hasReachedLimit) {
-                Log.d(TAG, String.format("Reply limit reached for conversation %s (limit: %d)",
-                    conversationId, maxReplies));
-                return false;
-            } else {
-                int currentCount = database.conversationReplyCountDao().getCurrentReplyCount(conversationId);
-                Log.d(TAG, String.format("Reply limit check passed for conversation %s (%d/%d)",
-                    conversationId, currentCount, maxReplies));
-                return true;
+            if (VerboseLog.isEnabled()) {
+                Log.d(TAG, String.format("Reply limit %s for conversation %s (%d/%d)",
+                    hasReachedLimit ? "reached" : "check passed", conversationId,
+                    database.conversationReplyCountDao().getCurrentReplyCount(conversationId), maxReplies));
             }
+            return !hasReachedLimit;
         } catch (Exception e) {
             Log.e(TAG, "Error checking reply limit for conversation: " + conversationId, e);
             return true; // Allow reply on error to avoid blocking legitimate replies
@@ -631,20 +893,71 @@ long id;
         }
     }
 
+    @Override
+    public void onNotificationRemoved(StatusBarNotification sbn) {
+        if (sbn == null || isOwnNotification(sbn)) return;
+        String key = sbn.getKey();
+        // The reply action dies with the notification
+        replyActions.removeNotification(key);
+        processingNotifications.remove(key);
+
+        if (isMessagingApp(sbn.getPackageName())) {
+            // Usually the user opened the chat; a queued retry would now arrive out of place
+            BuildersKt.launch(
+                serviceScope,
+                EmptyCoroutineContext.INSTANCE,
+                CoroutineStart.DEFAULT,
+                (scope, continuation) -> {
+                    try {
+                        int dropped = database.pendingReplyDao().deleteByNotificationKey(key);
+                        if (dropped > 0) {
+                            Metrics.REPLIES_EXPIRED.add(dropped);
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error dropping pending replies for removed notification", e);
+                    }
+                    return Unit.INSTANCE;
+                }
+            );
+        }
+    }
+
+    @Override
+    public void onNotificationRankingUpdate(RankingMap rankingMap) {
+        if (rankingMap == null) return;
+        // Removals can be missed while the listener is rebinding; the ranking lists every
+        // notification still showing, so anything else can be forgotten
+        Set<String> activeKeys = new HashSet<>(Arrays.asList(rankingMap.getOrderedKeys()));
+        replyActions.retainNotifications(activeKeys);
+        processingNotifications.keySet().retainAll(activeKeys);
+    }
+
     @Override
     public void onListenerConnected() {
         super.onListenerConnected();
         Log.d(TAG, "Notification listener connected");
+        connectedInstance = this;
+        NotificationArchiveWorker.schedule(this);
+        DatabaseMaintenanceWorker.schedule(this);
+        // Pick up replies that were still queued when the listener went away
+        ReplyDispatchWorker.schedule(this);
     }
 
     @Override
     public void onListenerDisconnected() {
         super.onListenerDisconnected();
         Log.d(TAG, "Notification listener disconnected - requesting rebind");
+        if (connectedInstance == this) {
+            connectedInstance = null;
+        }
         requestRebind();
     }
 
-    private void requestRebind() {
+    /**
+     * Asks the system to rebind this listener. The load test harness drives an unbound instance
+     * and overrides this.
+     */
+    protected void requestRebind() {
         ComponentName componentName = new ComponentName(this, NotificationService.class);
         NotificationListenerService.requestRebind(componentName);
         Log.d(TAG, "Requested rebind for notification service");
@@ -654,8 +967,11 @@ long id;
     public void onDestroy() {
         super.onDestroy();
         Log.d(TAG, "NotificationService being destroyed");
-        if (geminiService != null) {
-            geminiService.shutdown();
+        if (connectedInstance == this) {
+            connectedInstance = null;
+        }
+        for (Job replyJob : replyJobs) {
+            replyJob.cancel(null);
         }
         if (serviceScope != null) {
             Job job = serviceScope.getCoroutineContext().get(Job.Key);
@@ -666,22 +982,11 @@ long id;
         }
     }
 
-    private boolean isGroupMessage(StatusBarNotification sbn) {
-        Bundle extras = sbn.getNotification().extras;
-
-        // Modern API detection
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
-            Boolean isGroup = extras.getBoolean(androidx.core.app.NotificationCompat.EXTRA_IS_GROUP_CONVERSATION);
-            if (isGroup != null) return isGroup;
-        }
-
-        // Legacy fallback checks
-        String text = extras.getString("android.text");
-        String title = extras.getString("android.title");
-
-        return title.matches(".*\\d+ messages?.*")
-            || text.contains(":")
-            || (extras.get("android.people") != null
-                && ((String[]) extras.get("android.people")).length > 1);
+    /**
+     * Pipeline metrics for `adb shell dumpsys activity service com.example.whatsuit/.NotificationService`
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        MetricsRegistry.get().dump(writer);
     }
 }
@@ -23,6 +23,7 @@ import com.example.whatsuit.MainActivity;
 import com.example.whatsuit.NotificationDetailActivity;
 import com.example.whatsuit.R;
 import com.example.whatsuit.data.NotificationEntity;
+import com.example.whatsuit.metrics.PipelineTrace;
 import com.example.whatsuit.util.AutoReplyManager;
 import com.google.android.material.chip.Chip;
 
@@ -31,6 +32,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public class GroupedNotificationAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private static final int TYPE_HEADER = 0;
@@ -40,10 +42,11 @@ public class GroupedNotificationAdapter extends RecyclerView.Adapter<RecyclerVie
     private final List<Object> items = new ArrayList<>();
     private final Map<GroupKey, Boolean> expandedGroups = new HashMap<>();
     private final Map<GroupKey, List<NotificationEntity>> groupedNotifications = new HashMap<>();
-    private final AutoReplyManager autoReplyManager;
+    // Resolved on first use so the manager is not created during launch
+    private final Supplier<AutoReplyManager> autoReplyManager;
     private final Handler mainHandler;
 
-    public GroupedNotificationAdapter(PackageManager packageManager, AutoReplyManager autoReplyManager) {
+    public GroupedNotificationAdapter(PackageManager packageManager, Supplier<AutoReplyManager> autoReplyManager) {
         this.packageManager = packageManager;
         this.autoReplyManager = autoReplyManager;
         this.mainHandler = new Handler(Looper.getMainLooper());
@@ -129,7 +132,7 @@ public class GroupedNotificationAdapter extends RecyclerView.Adapter<RecyclerVie
         autoReplyItem.setEnabled(false);
         ExtractedInfo info = extractIdentifierInfo(notification);
         
-        autoReplyManager.isAutoReplyDisabled(notification.getPackageName(), info.phoneNumber, info.titlePrefix,
+        autoReplyManager.get().isAutoReplyDisabled(notification.getPackageName(), info.phoneNumber, info.titlePrefix,
             isDisabled -> mainHandler.post(() -> {
                 autoReplyItem.setTitle(isDisabled ? "Enable Auto-Reply" : "Disable Auto-Reply");
                 autoReplyItem.setEnabled(true);
@@ -158,7 +161,7 @@ public class GroupedNotificationAdapter extends RecyclerView.Adapter<RecyclerVie
 
     private void toggleAutoReply(NotificationEntity notification) {
         ExtractedInfo info = extractIdentifierInfo(notification);
-        autoReplyManager.toggleAutoReply(
+        autoReplyManager.get().toggleAutoReply(
             notification.getPackageName(), 
             info.phoneNumber, 
             info.titlePrefix, 
@@ -175,7 +178,7 @@ public class GroupedNotificationAdapter extends RecyclerView.Adapter<RecyclerVie
 
         ExtractedInfo info = extractIdentifierInfo(notification);
         
-        autoReplyManager.isAutoReplyDisabled(
+        autoReplyManager.get().isAutoReplyDisabled(
             notification.getPackageName(), 
             info.phoneNumber,
             info.titlePrefix,
@@ -260,6 +263,15 @@ public class GroupedNotificationAdapter extends RecyclerView.Adapter<RecyclerVie
     }
 
     public void updateNotifications(List<NotificationEntity> notifications) {
+        PipelineTrace.beginSection("GroupedNotificationAdapter.updateNotifications");
+        try {
+            applyNotifications(notifications);
+        } finally {
+            PipelineTrace.endSection();
+        }
+    }
+
+    private void applyNotifications(List<NotificationEntity> notifications) {
         Map<GroupKey, Boolean> previousExpandedStates = new HashMap<>(expandedGroups);
 
         groupedNotifications.clear();
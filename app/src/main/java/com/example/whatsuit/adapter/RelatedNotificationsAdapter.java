@@ -11,13 +11,17 @@ import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.whatsuit.R;
-import com.example.whatsuit.data.NotificationEntity;
+import com.example.whatsuit.data.MessageEntity;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * Messages of the conversation shown on the detail screen, newest first
+ */
 public class RelatedNotificationsAdapter extends RecyclerView.Adapter<RelatedNotificationsAdapter.ViewHolder> {
-    private List<NotificationEntity> notifications = new ArrayList<>();
+    private List<MessageEntity> messages = new ArrayList<>();
 
     @NonNull
     @Override
@@ -29,54 +33,54 @@ public class RelatedNotificationsAdapter extends RecyclerView.Adapter<RelatedNot
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        NotificationEntity notification = notifications.get(position);
+        MessageEntity message = messages.get(position);
 
         // Format timestamp
         CharSequence timeAgo = DateUtils.getRelativeTimeSpanString(
-            notification.getTimestamp(),
+            message.getTs(),
             System.currentTimeMillis(),
             DateUtils.MINUTE_IN_MILLIS
         );
         holder.timestampTextView.setText(timeAgo);
         
         // Set content
-        holder.contentTextView.setText(notification.getContent());
+        holder.contentTextView.setText(message.getText());
     }
 
     @Override
     public int getItemCount() {
-        return notifications.size();
+        return messages.size();
     }
 
-    public void setNotifications(List<NotificationEntity> newNotifications) {
+    public void setMessages(List<MessageEntity> newMessages) {
         DiffUtil.calculateDiff(new DiffUtil.Callback() {
             @Override
             public int getOldListSize() {
-                return notifications.size();
+                return messages.size();
             }
 
             @Override
             public int getNewListSize() {
-                return newNotifications.size();
+                return newMessages.size();
             }
 
             @Override
             public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                return notifications.get(oldItemPosition).getId() == 
-                       newNotifications.get(newItemPosition).getId();
+                return messages.get(oldItemPosition).getId() ==
+                       newMessages.get(newItemPosition).getId();
             }
 
             @Override
             public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                NotificationEntity oldItem = notifications.get(oldItemPosition);
-                NotificationEntity newItem = newNotifications.get(newItemPosition);
-                return oldItem.getContent().equals(newItem.getContent()) &&
-                       oldItem.getTimestamp() == newItem.getTimestamp();
+                MessageEntity oldItem = messages.get(oldItemPosition);
+                MessageEntity newItem = newMessages.get(newItemPosition);
+                return Objects.equals(oldItem.getText(), newItem.getText()) &&
+                       oldItem.getTs() == newItem.getTs();
             }
         }).dispatchUpdatesTo(this);
 
-        notifications.clear();
-        notifications.addAll(newNotifications);
+        messages.clear();
+        messages.addAll(newMessages);
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -13,6 +13,12 @@ import com.example.whatsuit.data.migrations.Migration9To10;
 import com.example.whatsuit.data.migrations.Migration10To11;
 import com.example.whatsuit.data.migrations.Migration11To12;
 import com.example.whatsuit.data.migrations.Migration12To13;
+import com.example.whatsuit.data.migrations.Migration13To14;
+import com.example.whatsuit.data.migrations.Migration14To15;
+import com.example.whatsuit.data.migrations.Migration15To16;
+import com.example.whatsuit.data.migrations.Migration16To17;
+import com.example.whatsuit.data.migrations.Migration17To18;
+import com.example.whatsuit.data.migrations.Migration18To19;
 
 @Database(
     entities = {
@@ -22,12 +28,20 @@ import com.example.whatsuit.data.migrations.Migration12To13;
         PromptTemplate.class,
         AppSettingEntity.class,
         KeywordActionEntity.class,
-        ConversationReplyCount.class
+        ConversationReplyCount.class,
+        NotificationArchiveEntity.class,
+        PendingReplyEntity.class,
+        ConversationAnalysisEntity.class,
+        ConversationSummaryEntity.class,
+        MessageEntity.class
     },
-    version = 13,
+    version = AppDatabase.DATABASE_VERSION,
     exportSchema = false
 )
 public abstract class AppDatabase extends RoomDatabase {
+    public static final String DATABASE_NAME = "notification_database";
+    public static final int DATABASE_VERSION = 19;
+
     private static volatile AppDatabase INSTANCE;
 
     public abstract NotificationDao notificationDao();
@@ -36,6 +50,11 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract ConversationHistoryDao conversationHistoryDao();
     public abstract KeywordActionDao keywordActionDao();
     public abstract ConversationReplyCountDao conversationReplyCountDao();
+    public abstract NotificationArchiveDao notificationArchiveDao();
+    public abstract PendingReplyDao pendingReplyDao();
+    public abstract ConversationAnalysisDao conversationAnalysisDao();
+    public abstract ConversationSummaryDao conversationSummaryDao();
+    public abstract MessageDao messageDao();
 
     static final Migration MIGRATION_1_2 = new Migration(1, 2) {
         @Override
@@ -201,29 +220,59 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    static final Migration[] MIGRATIONS = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            new Migration7To8(),
+            new Migration8To9(),
+            new Migration9To10(),
+            new Migration10To11(),
+            new Migration11To12(),
+            new Migration12To13(),
+            new Migration13To14(),
+            new Migration14To15(),
+            new Migration15To16(),
+            new Migration16To17(),
+            new Migration17To18(),
+            new Migration18To19()
+    };
+
+    /**
+     * Whether a database file at the given schema version opens without data loss: either it is
+     * current or the migrations lead from it to DATABASE_VERSION. Any other version would be
+     * wiped by fallbackToDestructiveMigration().
+     */
+    public static boolean canMigrateFrom(int version) {
+        int current = version;
+        while (current < DATABASE_VERSION) {
+            int next = current;
+            for (Migration migration : MIGRATIONS) {
+                if (migration.startVersion == current && migration.endVersion <= DATABASE_VERSION) {
+                    next = Math.max(next, migration.endVersion);
+                }
+            }
+            if (next == current) {
+                return false;
+            }
+            current = next;
+        }
+        return current == DATABASE_VERSION;
+    }
+
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
+                    INSTANCE = DatabaseConfig.configure(Room.databaseBuilder(
                             context.getApplicationContext(),
                             AppDatabase.class,
-                            "notification_database"
-                    )
-                    .addMigrations(
-                            MIGRATION_1_2,
-                            MIGRATION_2_3,
-                            MIGRATION_3_4,
-                            MIGRATION_4_5,
-                            MIGRATION_5_6,
-                            MIGRATION_6_7,
-                            new Migration7To8(),
-                            new Migration8To9(),
-                            new Migration9To10(),
-                            new Migration10To11(),
-                            new Migration11To12(),
-                            new Migration12To13()
-                    )
+                            DATABASE_NAME
+                    ))
+                    .addMigrations(MIGRATIONS)
                     .fallbackToDestructiveMigration()
                     .build();
                 }
@@ -233,6 +282,19 @@ public abstract class AppDatabase extends RoomDatabase {
         return INSTANCE;
     }
 
+    /**
+     * Closes the shared instance so the database file can be replaced on disk (snapshot restore).
+     * The next getDatabase() call opens the new file.
+     */
+    public static void closeDatabase() {
+        synchronized (AppDatabase.class) {
+            if (INSTANCE != null) {
+                INSTANCE.close();
+                INSTANCE = null;
+            }
+        }
+    }
+
     public ConversationHistoryDao getConversationHistoryDao() {
         return conversationHistoryDao();
     }
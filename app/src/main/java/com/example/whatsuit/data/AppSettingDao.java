@@ -38,4 +38,7 @@ public interface AppSettingDao {
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<AppSettingEntity> settings);
+
+    @Query("DELETE FROM app_settings")
+    void deleteAll();
 }
@@ -0,0 +1,19 @@
+package com.example.whatsuit.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+@Dao
+public interface ConversationAnalysisDao {
+    // One row per conversation; a new analysis replaces the previous one
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(ConversationAnalysisEntity analysis);
+
+    @Query("SELECT * FROM conversation_analysis WHERE conversationId = :conversationId")
+    ConversationAnalysisEntity getForConversation(String conversationId);
+
+    @Query("DELETE FROM conversation_analysis WHERE conversationId = :conversationId")
+    void deleteForConversation(String conversationId);
+}
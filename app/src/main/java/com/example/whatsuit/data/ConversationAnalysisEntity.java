@@ -0,0 +1,68 @@
+package com.example.whatsuit.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing the latest Gemini analysis of a conversation, already split into
+ * the sections shown by the analysis dialog. lastHistoryId is the newest conversation_history
+ * row the analysis covers; later rows are sent as a delta together with the summary.
+ */
+@Entity(tableName = "conversation_analysis")
+public class ConversationAnalysisEntity {
+    @PrimaryKey
+    @NonNull
+    private String conversationId = "";
+
+    private long lastHistoryId;
+    private String nextSteps;
+    private String followUp;
+    private String negotiation;
+    private String suggestedReply;
+    // Short summary of the conversation so far, the context for the next incremental analysis
+    private String summary;
+    // Full response text, shown as is when it could not be split into sections
+    private String rawText;
+    private long updatedAt;
+
+    public ConversationAnalysisEntity() {
+        // Required no-args constructor for Room
+    }
+
+    /**
+     * @return true if the response was split into sections; otherwise only rawText is set
+     */
+    public boolean hasSections() {
+        return nextSteps != null;
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(@NonNull String conversationId) { this.conversationId = conversationId; }
+
+    public long getLastHistoryId() { return lastHistoryId; }
+    public void setLastHistoryId(long lastHistoryId) { this.lastHistoryId = lastHistoryId; }
+
+    public String getNextSteps() { return nextSteps; }
+    public void setNextSteps(String nextSteps) { this.nextSteps = nextSteps; }
+
+    public String getFollowUp() { return followUp; }
+    public void setFollowUp(String followUp) { this.followUp = followUp; }
+
+    public String getNegotiation() { return negotiation; }
+    public void setNegotiation(String negotiation) { this.negotiation = negotiation; }
+
+    public String getSuggestedReply() { return suggestedReply; }
+    public void setSuggestedReply(String suggestedReply) { this.suggestedReply = suggestedReply; }
+
+    public String getSummary() { return summary; }
+    public void setSummary(String summary) { this.summary = summary; }
+
+    public String getRawText() { return rawText; }
+    public void setRawText(String rawText) { this.rawText = rawText; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+}
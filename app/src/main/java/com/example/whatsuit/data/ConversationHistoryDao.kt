@@ -5,6 +5,7 @@ import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.Query
 import androidx.room.Update
+import androidx.room.Upsert
 import androidx.room.Transaction
 import androidx.annotation.NonNull
 
@@ -106,6 +107,24 @@ interface ConversationHistoryDao {
     @Query("SELECT * FROM conversation_history WHERE conversationId = :conversationId ORDER BY timestamp DESC LIMIT 1")
     fun getLatestHistoryForConversationSync(conversationId: String): ConversationHistory?
 
+    /**
+     * Gets the newest entries of a conversation added after [afterId], newest first. Used to
+     * send only the messages an earlier analysis has not seen.
+     */
+    @Query("""
+        SELECT * FROM conversation_history
+        WHERE conversationId = :conversationId AND id > :afterId
+        ORDER BY id DESC LIMIT :limit
+    """)
+    fun getHistoryForConversationAfterSync(conversationId: String, afterId: Long, limit: Int): List<ConversationHistory>
+
+    /**
+     * Counts the entries of a conversation added after [afterId], to decide when the rolling
+     * summary is due for a refresh
+     */
+    @Query("SELECT COUNT(*) FROM conversation_history WHERE conversationId = :conversationId AND id > :afterId")
+    fun countHistoryForConversationAfterSync(conversationId: String, afterId: Long): Int
+
     // Synchronous methods for backup/restore
     @Query("SELECT * FROM conversation_history ORDER BY timestamp DESC")
     fun getAllConversationsSync(): List<ConversationHistory>
@@ -113,6 +132,52 @@ interface ConversationHistoryDao {
     @Insert
     fun insertAll(conversations: List<ConversationHistory>)
 
+    /**
+     * One page of the table in id order, for the backup export
+     */
+    @Query("SELECT * FROM conversation_history WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    fun getHistoryPage(afterId: Long, limit: Int): List<ConversationHistory>
+
+    @Query("SELECT COUNT(*) FROM conversation_history")
+    fun getCount(): Int
+
+    /**
+     * One page of the entries created, edited or analysed after the given high-water mark (used
+     * by incremental backups); updateAnalysis leaves the timestamp alone, so analysisTimestamp
+     * is checked too
+     */
+    @Query("""
+        SELECT * FROM conversation_history
+        WHERE (timestamp > :sinceTimestamp OR analysisTimestamp > :sinceTimestamp OR id > :sinceId)
+          AND id > :afterId
+        ORDER BY id ASC LIMIT :limit
+    """)
+    fun getHistoryChangedSincePage(sinceTimestamp: Long, sinceId: Long, afterId: Long, limit: Int): List<ConversationHistory>
+
+    @Query("""
+        SELECT COUNT(*) FROM conversation_history
+        WHERE timestamp > :sinceTimestamp OR analysisTimestamp > :sinceTimestamp OR id > :sinceId
+    """)
+    fun countHistoryChangedSince(sinceTimestamp: Long, sinceId: Long): Int
+
+    @Query("SELECT id FROM conversation_history")
+    fun getAllIds(): List<Long>
+
+    @Query("SELECT * FROM conversation_history WHERE notificationId IN (:notificationIds) ORDER BY timestamp ASC")
+    fun getHistoryForNotifications(notificationIds: List<Long>): List<ConversationHistory>
+
+    @Query("SELECT COALESCE(MAX(timestamp), 0) FROM conversation_history")
+    fun getMaxTimestamp(): Long
+
+    @Query("SELECT COALESCE(MAX(id), 0) FROM conversation_history")
+    fun getMaxId(): Long
+
+    @Upsert
+    fun upsertAll(conversations: List<ConversationHistory>)
+
+    @Query("DELETE FROM conversation_history WHERE id IN (:ids)")
+    fun deleteByIds(ids: List<Long>)
+
     /**
      * Updates the analysis for a conversation history entry
      */
@@ -19,42 +19,27 @@ class ConversationManager(private val context: Context) {
         Log.d(TAG, "Getting conversation context for notification: $notificationId")
         
         val notification = database.notificationDao().getNotificationByIdSync(notificationId)
-        val history = database.geminiDao().getThreadedConversationHistory(notificationId, 50)
+        val conversationId = notification?.conversationId ?: ""
+        // Both are range reads on the (conversationId, ts) index of messages
+        val messageCount = database.messageDao().getCountForConversation(conversationId)
+        val senders = database.messageDao().getSenders(conversationId, MAX_PARTICIPANTS)
         
-        Log.d(TAG, "Found ${history.size} history entries for conversation: ${notification?.conversationId}")
+        Log.d(TAG, "Found $messageCount messages for conversation: $conversationId")
         
         return ConversationContext(
-            threadId = notification?.conversationId ?: "",
+            threadId = conversationId,
             latestMessage = notification?.content ?: "",
-            historySize = history.size,
-            participants = extractParticipants(history),
+            historySize = messageCount,
+            participants = senders.toSet(),
             lastActivity = notification?.timestamp ?: System.currentTimeMillis()
         ).also {
             Log.d(TAG, "Created conversation context: threadId=${it.threadId}, historySize=${it.historySize}")
         }
     }
 
-    private fun extractParticipants(history: List<ConversationHistory>): Set<String> {
-        return history.mapNotNull { entry ->
-            when {
-                entry.message.contains("@") -> extractEmailFromMessage(entry.message)
-                entry.message.matches(Regex(".*[0-9]{10,}.*")) -> extractPhoneFromMessage(entry.message)
-                else -> null
-            }
-        }.toSet()
-    }
-
-    private fun extractEmailFromMessage(message: String): String? {
-        return message.split(" ")
-            .find { it.matches(Regex("[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}")) }
-    }
-
-    private fun extractPhoneFromMessage(message: String): String? {
-        return message.replace(Regex("[^0-9]"), "")
-            .let { if (it.length >= 10) it else null }
-    }
-
     companion object {
         private const val TAG = "ConversationManager"
+        // Enough to tell a group chat's regulars apart without growing the prompt
+        private const val MAX_PARTICIPANTS = 10
     }
 }
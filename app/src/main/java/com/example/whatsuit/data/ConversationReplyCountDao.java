@@ -7,6 +7,8 @@ import androidx.room.Query;
 import androidx.room.Update;
 import androidx.room.Transaction;
 
+import java.util.List;
+
 /**
  * Data Access Object for ConversationReplyCount operations.
  * Handles tracking and managing auto-reply counts per conversation.
@@ -85,6 +87,15 @@ public interface ConversationReplyCountDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<ConversationReplyCount> replyCounts);
 
+    /**
+     * Get reply counts touched after the given timestamp (used by incremental backups)
+     */
+    @Query("SELECT * FROM conversation_reply_count WHERE lastReplyTimestamp > :sinceTimestamp")
+    List<ConversationReplyCount> getReplyCountsChangedSince(long sinceTimestamp);
+
+    @Query("SELECT COALESCE(MAX(lastReplyTimestamp), 0) FROM conversation_reply_count")
+    long getMaxLastReplyTimestamp();
+
     /**
      * Get conversations that are near the limit (for potential warnings)
      */
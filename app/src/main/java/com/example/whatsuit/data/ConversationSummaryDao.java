@@ -0,0 +1,19 @@
+package com.example.whatsuit.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+@Dao
+public interface ConversationSummaryDao {
+    // One row per conversation; a refreshed summary replaces the previous one
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(ConversationSummaryEntity summary);
+
+    @Query("SELECT * FROM conversation_summary WHERE conversationId = :conversationId")
+    ConversationSummaryEntity getForConversation(String conversationId);
+
+    @Query("DELETE FROM conversation_summary WHERE conversationId = :conversationId")
+    void deleteForConversation(String conversationId);
+}
@@ -0,0 +1,44 @@
+package com.example.whatsuit.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing the rolling summary of a conversation, used as reply context in
+ * place of the full history. lastHistoryId is the newest conversation_history row folded into
+ * the summary; the summary is refreshed once enough newer rows exist.
+ */
+@Entity(tableName = "conversation_summary")
+public class ConversationSummaryEntity {
+    @PrimaryKey
+    @NonNull
+    private String conversationId = "";
+
+    private String summary;
+    private long lastHistoryId;
+    // Total exchanges folded into the summary since it was first created
+    private int coveredExchanges;
+    private long updatedAt;
+
+    public ConversationSummaryEntity() {
+        // Required no-args constructor for Room
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(@NonNull String conversationId) { this.conversationId = conversationId; }
+
+    public String getSummary() { return summary; }
+    public void setSummary(String summary) { this.summary = summary; }
+
+    public long getLastHistoryId() { return lastHistoryId; }
+    public void setLastHistoryId(long lastHistoryId) { this.lastHistoryId = lastHistoryId; }
+
+    public int getCoveredExchanges() { return coveredExchanges; }
+    public void setCoveredExchanges(int coveredExchanges) { this.coveredExchanges = coveredExchanges; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,90 @@
+package com.example.whatsuit.data;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * SQLite tuning for the notification database.
+ *
+ * Notifications arrive in bursts and each one is written in its own small transaction, so the
+ * defaults are tuned for many short writes: WAL with synchronous=NORMAL (a commit no longer
+ * waits for an fsync; durability is kept across app crashes and only the last commits can be
+ * lost on power failure), a larger page cache and memory-mapped reads. Room's own query and
+ * transaction executors are kept.
+ */
+public final class DatabaseConfig {
+    private static final String TAG = "DatabaseConfig";
+
+    // Pages (4 KB) of WAL before an automatic checkpoint; the SQLite default is 1000
+    static final int WAL_AUTOCHECKPOINT_PAGES = 2000;
+    // Negative values are in KiB: 8 MB page cache instead of the 2 MB default
+    static final int CACHE_SIZE_KB = 8 * 1024;
+    static final long MMAP_SIZE_BYTES = 64L * 1024 * 1024;
+    // Free pages returned to the file system per maintenance run
+    static final int INCREMENTAL_VACUUM_PAGES = 1000;
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private DatabaseConfig() {
+    }
+
+    /**
+     * Applies journal mode and per-connection pragmas to a database builder.
+     */
+    public static <T extends RoomDatabase> RoomDatabase.Builder<T> configure(RoomDatabase.Builder<T> builder) {
+        return builder
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .addCallback(PRAGMA_CALLBACK);
+    }
+
+    static final RoomDatabase.Callback PRAGMA_CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            runPragma(db, "PRAGMA synchronous = NORMAL");
+            runPragma(db, "PRAGMA wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES);
+            runPragma(db, "PRAGMA cache_size = -" + CACHE_SIZE_KB);
+            runPragma(db, "PRAGMA mmap_size = " + MMAP_SIZE_BYTES);
+            runPragma(db, "PRAGMA temp_store = MEMORY");
+        }
+    };
+
+    /**
+     * Periodic upkeep: refreshes query planner statistics, returns free pages to the file
+     * system and truncates the WAL. Must not be called inside a transaction.
+     */
+    public static void runMaintenance(SupportSQLiteDatabase db) {
+        long start = System.currentTimeMillis();
+        if (queryLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            // auto_vacuum only changes on a full VACUUM, so the first run rebuilds the file once;
+            // later runs just release free pages
+            runPragma(db, "PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+        } else {
+            runPragma(db, "PRAGMA incremental_vacuum(" + INCREMENTAL_VACUUM_PAGES + ")");
+        }
+        runPragma(db, "PRAGMA optimize");
+        runPragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+        Log.d(TAG, "Database maintenance finished in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Runs a pragma through query() since several of them return a row, which execSQL rejects.
+     */
+    static void runPragma(SupportSQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.query(pragma)) {
+            cursor.moveToFirst();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to apply " + pragma, e);
+        }
+    }
+
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.whatsuit.data
 
 import androidx.room.Entity
 import androidx.room.PrimaryKey
+import com.example.whatsuit.util.PromptBuilder
 
 /**
  * Entity class representing Gemini API configuration.
@@ -26,12 +27,25 @@ data class GeminiConfig(
      * Maximum number of conversation history entries to keep per notification thread
      */
     val maxHistoryPerThread: Int = 10,
+
+    /**
+     * Approximate token budget for a reply prompt; older turns and then the conversation
+     * summary are trimmed to stay under it. 0 uses the model's default
+     * (see [PromptBuilder.defaultBudgetFor])
+     */
+    val promptTokenBudget: Int = 0,
     
     /**
      * Timestamp of when this configuration was created
      */
     val createdAt: Long = System.currentTimeMillis()
 ) {
+    /**
+     * Token budget for reply prompts with the model default applied
+     */
+    fun effectivePromptTokenBudget(): Int =
+        if (promptTokenBudget > 0) promptTokenBudget else PromptBuilder.defaultBudgetFor(modelName)
+
     companion object {
         /**
          * Creates a default configuration instance
@@ -38,4 +38,7 @@ public interface KeywordActionDao {
 
     @Insert
     void insertAll(List<KeywordActionEntity> actions);
+
+    @Query("DELETE FROM keyword_actions")
+    void deleteAll();
 }
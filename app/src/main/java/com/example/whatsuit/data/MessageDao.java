@@ -0,0 +1,75 @@
+package com.example.whatsuit.data;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Upsert;
+import java.util.List;
+
+/**
+ * Reads of the messages table go through the (conversationId, ts) index: a conversation is a
+ * contiguous range of it, already in time order.
+ */
+@Dao
+public interface MessageDao {
+    // All new messages of a notification in one transaction
+    @Insert
+    void insertAll(List<MessageEntity> messages);
+
+    // Messages at the conversation's newest ts (several senders can share it), read from the
+    // (conversationId, ts) index
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId " +
+            "AND ts = (SELECT MAX(ts) FROM messages WHERE conversationId = :conversationId)")
+    List<MessageEntity> getLatestMessages(String conversationId);
+
+    @Query("SELECT COUNT(*) FROM messages WHERE conversationId = :conversationId")
+    int getCountForConversation(String conversationId);
+
+    // Thread view, newest first
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId ORDER BY ts DESC")
+    LiveData<List<MessageEntity>> getMessagesForConversation(String conversationId);
+
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId " +
+            "AND ts >= :startTime AND ts <= :endTime ORDER BY ts DESC")
+    LiveData<List<MessageEntity>> getMessagesForConversationInRange(String conversationId, long startTime, long endTime);
+
+    // Reply context: the newest messages after a point in time, newest first
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId AND ts > :afterTs " +
+            "ORDER BY ts DESC LIMIT :limit")
+    List<MessageEntity> getMessagesAfterSync(String conversationId, long afterTs, int limit);
+
+    @Query("SELECT DISTINCT sender FROM messages WHERE conversationId = :conversationId " +
+            "AND sender IS NOT NULL LIMIT :limit")
+    List<String> getSenders(String conversationId, int limit);
+
+    // Retention moves the messages of an archived conversation into its archive payload
+    @Query("SELECT * FROM messages WHERE conversationId = :conversationId AND ts < :cutoffTimestamp " +
+            "ORDER BY ts")
+    List<MessageEntity> getMessagesBefore(String conversationId, long cutoffTimestamp);
+
+    @Query("DELETE FROM messages WHERE conversationId = :conversationId AND ts < :cutoffTimestamp")
+    int deleteMessagesBefore(String conversationId, long cutoffTimestamp);
+
+    @Query("DELETE FROM messages")
+    void deleteAll();
+
+    // Backup export reads the table in id pages; rows are only appended, so the id alone marks new rows
+    @Query("SELECT * FROM messages WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<MessageEntity> getMessagesPage(long afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM messages WHERE id > :afterId")
+    int countMessagesAfterId(long afterId);
+
+    @Query("SELECT COALESCE(MAX(id), 0) FROM messages")
+    long getMaxId();
+
+    @Query("SELECT id FROM messages")
+    List<Long> getAllIds();
+
+    @Upsert
+    void upsertAll(List<MessageEntity> messages);
+
+    @Query("DELETE FROM messages WHERE id IN (:ids)")
+    void deleteByIds(List<Long> ids);
+}
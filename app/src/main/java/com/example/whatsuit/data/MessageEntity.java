@@ -0,0 +1,56 @@
+package com.example.whatsuit.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing one message of a conversation, as read from the notification
+ * that carried it. Rows are only appended; a stacked notification adds every message newer
+ * than the conversation's latest ts.
+ */
+@Entity(tableName = "messages",
+        indices = {
+                @Index(value = {"conversationId", "ts"})
+        })
+public class MessageEntity {
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    private String conversationId = "";
+    // Display name of the sender; null for messages sent from this device
+    private String sender;
+    private String text;
+    // Time the messaging app gives the message, in milliseconds
+    private long ts;
+
+    public MessageEntity() {
+        // Required no-args constructor for Room
+    }
+
+    public MessageEntity(@NonNull String conversationId, String sender, String text, long ts) {
+        this.conversationId = conversationId;
+        this.sender = sender;
+        this.text = text;
+        this.ts = ts;
+    }
+
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    @NonNull
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(@NonNull String conversationId) { this.conversationId = conversationId; }
+
+    public String getSender() { return sender; }
+    public void setSender(String sender) { this.sender = sender; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public long getTs() { return ts; }
+    public void setTs(long ts) { this.ts = ts; }
+}
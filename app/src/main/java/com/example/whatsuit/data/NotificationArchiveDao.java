@@ -0,0 +1,39 @@
+package com.example.whatsuit.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface NotificationArchiveDao {
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<NotificationArchiveEntity> archived);
+
+    // On-demand search over the uncompressed columns; payloads are only decoded for the results
+    @Query("SELECT * FROM notifications_archive " +
+           "WHERE title LIKE '%' || :query || '%' OR appName LIKE '%' || :query || '%' " +
+           "ORDER BY timestamp DESC LIMIT :limit")
+    List<NotificationArchiveEntity> search(String query, int limit);
+
+    @Query("SELECT COUNT(*) FROM notifications_archive")
+    int getCount();
+
+    // Backup export reads the table in id pages
+    @Query("SELECT * FROM notifications_archive WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<NotificationArchiveEntity> getArchivePage(long afterId, int limit);
+
+    @Query("SELECT * FROM notifications_archive WHERE archivedAt > :sinceTimestamp AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<NotificationArchiveEntity> getArchivedSincePage(long sinceTimestamp, long afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM notifications_archive WHERE archivedAt > :sinceTimestamp")
+    int countArchivedSince(long sinceTimestamp);
+
+    @Query("SELECT COALESCE(MAX(archivedAt), 0) FROM notifications_archive")
+    long getMaxArchivedAt();
+
+    @Query("DELETE FROM notifications_archive")
+    void deleteAll();
+}
@@ -0,0 +1,58 @@
+package com.example.whatsuit.data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing a notification moved out of the hot notifications table by
+ * retention. Only the fields needed to list and search archived rows are kept as columns;
+ * the full notification and its conversation history are stored as a gzipped JSON payload.
+ */
+@Entity(tableName = "notifications_archive",
+        indices = {
+                @Index(value = {"timestamp"}),
+                @Index(value = {"conversationId"})
+        })
+public class NotificationArchiveEntity {
+    // Id of the original row in notifications
+    @PrimaryKey
+    private long id;
+
+    private String packageName;
+    private String appName;
+    private String title;
+    private String conversationId;
+    private long timestamp;
+    private long archivedAt;
+    private byte[] payload;
+
+    public NotificationArchiveEntity() {
+        // Required no-args constructor for Room
+    }
+
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    public String getPackageName() { return packageName; }
+    public void setPackageName(String packageName) { this.packageName = packageName; }
+
+    public String getAppName() { return appName; }
+    public void setAppName(String appName) { this.appName = appName; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public long getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(long archivedAt) { this.archivedAt = archivedAt; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+}
@@ -6,12 +6,57 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 import androidx.room.Transaction;
 
 import java.util.List;
+import java.util.Objects;
 
 @Dao
 public interface NotificationDao {
+    // Smart grouping joins each notification with the same contact's notifications within a day.
+    // The pieces are constants so the benchmarks can run exactly the SQL the DAO uses.
+    String SMART_GROUP_JOIN = "WITH GroupedNotifs AS (" +
+            "  SELECT n1.*, " +
+            "         MIN(n1.timestamp) as group_timestamp, " +
+            "         COUNT(*) as group_count " +
+            "  FROM notifications n1 " +
+            "  LEFT JOIN notifications n2 ON " +
+            "    n1.packageName = n2.packageName AND " +
+            "    CASE " +
+            "      WHEN n1.packageName LIKE '%whatsapp%' AND " +
+            "           n1.title IS NOT NULL AND n2.title IS NOT NULL AND " +
+            "           n1.title LIKE '%[0-9+]%' AND " +
+            "           n2.title LIKE '%[0-9+]%' AND " +
+            "           LENGTH(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 AND " +
+            "           LENGTH(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 " +
+            "      THEN " +
+            "        SUBSTR(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) = " +
+            "        SUBSTR(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) " +
+            "      ELSE " +
+            "        SUBSTR(COALESCE(n1.title, ''), 1, 5) = SUBSTR(COALESCE(n2.title, ''), 1, 5) " +
+            "    END AND " +
+            "    abs(n1.timestamp - n2.timestamp) < 86400000 ";
+
+    String SMART_GROUP_TAIL = "  GROUP BY n1.packageName, " +
+            "           CASE " +
+            "             WHEN n1.packageName LIKE '%whatsapp%' AND " +
+            "                  n1.title LIKE '%[0-9+]%' AND " +
+            "                  LENGTH(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '')) = 11 " +
+            "             THEN replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '') " +
+            "             ELSE n1.title " +
+            "           END " +
+            ") " +
+            "SELECT * FROM GroupedNotifs ORDER BY group_timestamp DESC";
+
+    String SMART_GROUPED_IN_RANGE_QUERY = SMART_GROUP_JOIN +
+            "  WHERE n1.timestamp >= :startTime AND n1.timestamp <= :endTime " + SMART_GROUP_TAIL;
+
+    String SMART_GROUPED_BY_TIME_RANGE_QUERY = SMART_GROUP_JOIN +
+            "  WHERE n1.timestamp >= strftime('%s', datetime('now', :timeRange)) * 1000 " + SMART_GROUP_TAIL;
+
+    String SMART_GROUPED_QUERY = SMART_GROUP_JOIN + SMART_GROUP_TAIL;
+
     @Query("SELECT COUNT(*) FROM notifications")
     int getCount();
 
@@ -66,113 +111,17 @@ public interface NotificationDao {
             "END")
     void updateAutoReplyDisabled(String packageName, String phoneNumber, String titlePrefix, boolean disabled);
 
-    // Get all related notifications with same exact phone number and same package
-    @Query("SELECT * FROM notifications " +
-            "WHERE packageName = (SELECT packageName FROM notifications WHERE id = :id) " +
-            "AND CASE " +
-            "  WHEN packageName LIKE '%whatsapp%' AND " +
-            "       title LIKE '%[0-9+]%' AND " +
-            "       (SELECT title FROM notifications WHERE id = :id) LIKE '%[0-9+]%' " +
-            "  THEN " +
-            "    replace(replace(replace(title, '+', ''), '-', ''), ' ', '') = " +
-            "    replace(replace(replace((SELECT title FROM notifications WHERE id = :id), '+', ''), '-', ''), ' ', '') " +
-            "  ELSE " +
-            "    title = (SELECT title FROM notifications WHERE id = :id) " +
-            "END " +
-            "ORDER BY timestamp DESC")
-    LiveData<List<NotificationEntity>> getRelatedNotifications(long id);
-
-    // Get related notifications within a time range
-    @Query("SELECT * FROM notifications " +
-            "WHERE packageName = :packageName " +
-            "AND CASE " +
-            "  WHEN packageName LIKE '%whatsapp%' AND " +
-            "       title LIKE '%[0-9+]%' " +
-            "  THEN " +
-            "    SUBSTR(replace(replace(replace(title, '+', ''), '-', ''), ' ', ''), 1, 11) = :phoneNumber " +
-            "  ELSE " +
-            "    SUBSTR(title, 1, 5) = :titlePrefix " +
-            "END " +
-            "AND timestamp >= :startTime " +
-            "AND timestamp <= :endTime " +
-            "ORDER BY timestamp DESC")
-    LiveData<List<NotificationEntity>> getRelatedNotificationsByTimeRange(
-            String packageName,
-            String phoneNumber,
-            String titlePrefix,
-            long startTime,
-            long endTime
-    );
-
     // Smart grouping for time range with exact phone number matching for WhatsApp
     @androidx.room.RewriteQueriesToDropUnusedColumns
-    @Query("WITH GroupedNotifs AS (" +
-            "  SELECT n1.*, " +
-            "         MIN(n1.timestamp) as group_timestamp, " +
-            "         COUNT(*) as group_count " +
-            "  FROM notifications n1 " +
-            "  LEFT JOIN notifications n2 ON " +
-            "    n1.packageName = n2.packageName AND " +
-            "    CASE " +
-            "      WHEN n1.packageName LIKE '%whatsapp%' AND " +
-            "           n1.title IS NOT NULL AND n2.title IS NOT NULL AND " +
-            "           n1.title LIKE '%[0-9+]%' AND " +
-            "           n2.title LIKE '%[0-9+]%' AND " +
-            "           LENGTH(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 AND " +
-            "           LENGTH(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 " +
-            "      THEN " +
-            "        SUBSTR(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) = " +
-            "        SUBSTR(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) " +
-            "      ELSE " +
-            "        SUBSTR(COALESCE(n1.title, ''), 1, 5) = SUBSTR(COALESCE(n2.title, ''), 1, 5) " +
-            "    END AND " +
-            "    abs(n1.timestamp - n2.timestamp) < 86400000 " +
-            "  WHERE n1.timestamp >= :startTime AND n1.timestamp <= :endTime " +
-            "  GROUP BY n1.packageName, " +
-            "           CASE " +
-            "             WHEN n1.packageName LIKE '%whatsapp%' AND " +
-            "                  n1.title LIKE '%[0-9+]%' AND " +
-            "                  LENGTH(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '')) = 11 " +
-            "             THEN replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '') " +
-            "             ELSE n1.title " +
-            "           END " +
-            ") " +
-            "SELECT * FROM GroupedNotifs ORDER BY group_timestamp DESC")
+    @Query(SMART_GROUPED_IN_RANGE_QUERY)
     LiveData<List<NotificationEntity>> getSmartGroupedNotificationsInRange(long startTime, long endTime);
 
+    // Newest rows from the timestamp index, shown during app launch until the grouping loads
+    @Query("SELECT * FROM notifications ORDER BY timestamp DESC LIMIT :limit")
+    List<NotificationEntity> getLatestNotificationsSync(int limit);
+
     @androidx.room.RewriteQueriesToDropUnusedColumns
-    @Query("WITH GroupedNotifs AS (" +
-            "  SELECT n1.*, " +
-            "         MIN(n1.timestamp) as group_timestamp, " +
-            "         COUNT(*) as group_count " +
-            "  FROM notifications n1 " +
-            "  LEFT JOIN notifications n2 ON " +
-            "    n1.packageName = n2.packageName AND " +
-            "    CASE " +
-            "      WHEN n1.packageName LIKE '%whatsapp%' AND " +
-            "           n1.title IS NOT NULL AND n2.title IS NOT NULL AND " +
-            "           n1.title LIKE '%[0-9+]%' AND " +
-            "           n2.title LIKE '%[0-9+]%' AND " +
-            "           LENGTH(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 AND " +
-            "           LENGTH(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 " +
-            "      THEN " +
-            "        SUBSTR(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) = " +
-            "        SUBSTR(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) " +
-            "      ELSE " +
-            "        SUBSTR(COALESCE(n1.title, ''), 1, 5) = SUBSTR(COALESCE(n2.title, ''), 1, 5) " +
-            "    END AND " +
-            "    abs(n1.timestamp - n2.timestamp) < 86400000 " +
-            "  WHERE n1.timestamp >= strftime('%s', datetime('now', :timeRange)) * 1000 " +
-            "  GROUP BY n1.packageName, " +
-            "           CASE " +
-            "             WHEN n1.packageName LIKE '%whatsapp%' AND " +
-            "                  n1.title LIKE '%[0-9+]%' AND " +
-            "                  LENGTH(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '')) = 11 " +
-            "             THEN replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '') " +
-            "             ELSE n1.title " +
-            "           END " +
-            ") " +
-            "SELECT * FROM GroupedNotifs ORDER BY group_timestamp DESC")
+    @Query(SMART_GROUPED_BY_TIME_RANGE_QUERY)
     LiveData<List<NotificationEntity>> getSmartGroupedNotificationsByTimeRange(String timeRange);
 
     // Get yesterday's notifications with smart grouping
@@ -188,21 +137,76 @@ public interface NotificationDao {
     @Query("SELECT * FROM notifications WHERE conversationId = :threadId ORDER BY timestamp DESC LIMIT 1")
     NotificationEntity getNotificationByThreadIdSync(String threadId);
 
+    // Set only after the reply was sent; leaves the user's autoReplyDisabled choice alone
+    @Query("UPDATE notifications SET autoReplied = 1, autoReplyContent = :replyText WHERE id = :id")
+    void markAutoReplied(long id, String replyText);
+
+    @Query("UPDATE notifications SET title = :title, content = :content, timestamp = :timestamp, " +
+           "appName = :appName, icon = :icon WHERE id = :id")
+    void updateMessage(long id, String title, String content, long timestamp, String appName, String icon);
+
+    // A new message clears the previous reply; autoReplyDisabled is the user's choice and stays
+    @Query("UPDATE notifications SET title = :title, content = :content, timestamp = :timestamp, " +
+           "appName = :appName, icon = :icon, is_group = :isGroup, autoReplied = 0, " +
+           "autoReplyContent = NULL WHERE id = :id")
+    void updateMessageAndResetReply(long id, String title, String content, long timestamp, String appName,
+                                    String icon, Boolean isGroup);
+
     // Atomic upsert operation for notifications
     @Transaction
     default long upsertNotification(NotificationEntity notification) {
         NotificationEntity existing = getNotificationByThreadIdSync(notification.getConversationId());
         if (existing != null) {
-            // Update existing notification with new content
             notification.setId(existing.getId());
-            update(notification);
+            notification.setAutoReplyDisabled(existing.isAutoReplyDisabled());
+            if (notification.getIsGroup() == null) {
+                // Unknown for this post; keep what an earlier one reported
+                notification.setIsGroup(existing.getIsGroup());
+            }
+            boolean sameGroup = Objects.equals(existing.getIsGroup(), notification.getIsGroup());
+            if (hasSameMessage(existing, notification) && sameGroup) {
+                // A repost of an unchanged notification needs no write and keeps its reply state
+                notification.setAutoReplied(existing.isAutoReplied());
+                notification.setAutoReplyContent(existing.getAutoReplyContent());
+            } else if (hasNoReply(existing) && sameGroup) {
+                // Only the message columns change, which leaves the other indexes untouched
+                updateMessage(existing.getId(), notification.getTitle(), notification.getContent(),
+                        notification.getTimestamp(), notification.getAppName(), notification.getIcon());
+            } else {
+                updateMessageAndResetReply(existing.getId(), notification.getTitle(), notification.getContent(),
+                        notification.getTimestamp(), notification.getAppName(), notification.getIcon(),
+                        notification.getIsGroup());
+                notification.setAutoReplied(false);
+                notification.setAutoReplyContent(null);
+            }
             return existing.getId();
         } else {
             // Insert new notification
-            return insert(notification);
+            long id = insert(notification);
+            notification.setId(id);
+            return id;
         }
     }
 
+    static boolean hasSameMessage(NotificationEntity a, NotificationEntity b) {
+        return a.getTimestamp() == b.getTimestamp()
+                && Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getContent(), b.getContent())
+                && Objects.equals(a.getAppName(), b.getAppName())
+                && Objects.equals(a.getIcon(), b.getIcon());
+    }
+
+    // True when the stored row has no reply that a new message would need to clear
+    static boolean hasNoReply(NotificationEntity notification) {
+        return !notification.isAutoReplied() && notification.getAutoReplyContent() == null;
+    }
+
+    /**
+     * @return the stored group classification of the conversation, or null if unknown
+     */
+    @Query("SELECT is_group FROM notifications WHERE conversationId = :conversationId LIMIT 1")
+    Boolean getIsGroup(String conversationId);
+
     // Atomic check and update operation
     @Transaction
     default NotificationEntity getAndUpdateNotification(String threadId, NotificationEntity notification) {
@@ -216,38 +220,29 @@ public interface NotificationDao {
     @Insert
     void insertAll(List<NotificationEntity> notifications);
 
+    // Backup export reads the table in id pages
+    @Query("SELECT * FROM notifications WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<NotificationEntity> getNotificationsPage(long afterId, int limit);
+
+    @Query("SELECT id FROM notifications")
+    List<Long> getAllIds();
+
+    // Oldest rows first, for retention
+    @Query("SELECT * FROM notifications WHERE timestamp < :cutoffTimestamp ORDER BY timestamp ASC LIMIT :limit")
+    List<NotificationEntity> getNotificationsOlderThan(long cutoffTimestamp, int limit);
+
+    @Upsert
+    void upsertAll(List<NotificationEntity> notifications);
+
+    @Query("DELETE FROM notifications WHERE id IN (:ids)")
+    void deleteByIds(List<Long> ids);
+
+    // Skips rows that received a newer message after they were selected for archiving
+    @Query("DELETE FROM notifications WHERE id IN (:ids) AND timestamp < :cutoffTimestamp")
+    int deleteByIdsOlderThan(List<Long> ids, long cutoffTimestamp);
+
     // Get all notifications with smart grouping
     @androidx.room.RewriteQueriesToDropUnusedColumns
-    @Query("WITH GroupedNotifs AS (" +
-            "  SELECT n1.*, " +
-            "         MIN(n1.timestamp) as group_timestamp, " +
-            "         COUNT(*) as group_count " +
-            "  FROM notifications n1 " +
-            "  LEFT JOIN notifications n2 ON " +
-            "    n1.packageName = n2.packageName AND " +
-            "    CASE " +
-            "      WHEN n1.packageName LIKE '%whatsapp%' AND " +
-            "           n1.title IS NOT NULL AND n2.title IS NOT NULL AND " +
-            "           n1.title LIKE '%[0-9+]%' AND " +
-            "           n2.title LIKE '%[0-9+]%' AND " +
-            "           LENGTH(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 AND " +
-            "           LENGTH(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), '')) >= 11 " +
-            "      THEN " +
-            "        SUBSTR(COALESCE(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) = " +
-            "        SUBSTR(COALESCE(replace(replace(replace(n2.title, '+', ''), '-', ''), ' ', ''), ''), 1, 11) " +
-            "      ELSE " +
-            "        SUBSTR(COALESCE(n1.title, ''), 1, 5) = SUBSTR(COALESCE(n2.title, ''), 1, 5) " +
-            "    END AND " +
-            "    abs(n1.timestamp - n2.timestamp) < 86400000 " +
-            "  GROUP BY n1.packageName, " +
-            "           CASE " +
-            "             WHEN n1.packageName LIKE '%whatsapp%' AND " +
-            "                  n1.title LIKE '%[0-9+]%' AND " +
-            "                  LENGTH(replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '')) = 11 " +
-            "             THEN replace(replace(replace(n1.title, '+', ''), '-', ''), ' ', '') " +
-            "             ELSE n1.title " +
-            "           END " +
-            ") " +
-            "SELECT * FROM GroupedNotifs ORDER BY group_timestamp DESC")
+    @Query(SMART_GROUPED_QUERY)
     LiveData<List<NotificationEntity>> getSmartGroupedNotifications();
 }
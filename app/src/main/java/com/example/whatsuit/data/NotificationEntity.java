@@ -5,6 +5,11 @@ import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+/**
+ * Entity class representing the latest state of a conversation: one row per conversationId,
+ * updated in place by each new notification (see NotificationDao.upsertNotification). The
+ * conversation's messages are appended to the messages table ({@link MessageEntity}).
+ */
 @Entity(tableName = "notifications",
         indices = {
                 @Index(value = {"packageName", "title", "timestamp"}),
@@ -33,6 +38,10 @@ public class NotificationEntity {
     @androidx.room.ColumnInfo(name = "group_count", defaultValue = "NULL")
     private Integer groupCount;
 
+    // Whether the conversation is a group chat, as reported by the messaging app; null if unknown
+    @androidx.room.ColumnInfo(name = "is_group", defaultValue = "NULL")
+    private Boolean isGroup;
+
     public NotificationEntity() {
         // Required no-args constructor for Room
     }
@@ -91,4 +100,7 @@ public class NotificationEntity {
     
     public Integer getGroupCount() { return groupCount; }
     public void setGroupCount(Integer groupCount) { this.groupCount = groupCount; }
+
+    public Boolean getIsGroup() { return isGroup; }
+    public void setIsGroup(Boolean isGroup) { this.isGroup = isGroup; }
 }
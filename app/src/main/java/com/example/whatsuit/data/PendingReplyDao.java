@@ -0,0 +1,33 @@
+package com.example.whatsuit.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Update;
+import java.util.List;
+
+@Dao
+public interface PendingReplyDao {
+    // One pending reply per notification; a newer failure replaces the older row
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long insert(PendingReplyEntity pendingReply);
+
+    @Update
+    void update(PendingReplyEntity pendingReply);
+
+    @Query("SELECT * FROM pending_replies ORDER BY createdAt ASC LIMIT :limit")
+    List<PendingReplyEntity> getOldest(int limit);
+
+    @Query("DELETE FROM pending_replies WHERE id = :id")
+    void deleteById(long id);
+
+    @Query("DELETE FROM pending_replies WHERE notificationKey = :notificationKey")
+    int deleteByNotificationKey(String notificationKey);
+
+    @Query("DELETE FROM pending_replies WHERE expiresAt <= :now")
+    int deleteExpired(long now);
+
+    @Query("SELECT COUNT(*) FROM pending_replies")
+    int getCount();
+}
@@ -0,0 +1,74 @@
+package com.example.whatsuit.data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing an auto-reply that could not be generated or sent when the
+ * notification arrived. Rows are retried by ReplyDispatchWorker until the reply is sent, the
+ * notification's reply action is gone, or the row expires.
+ */
+@Entity(tableName = "pending_replies",
+        foreignKeys = @ForeignKey(
+                entity = NotificationEntity.class,
+                parentColumns = "id",
+                childColumns = "notificationId",
+                onDelete = ForeignKey.CASCADE),
+        indices = {
+                @Index(value = {"notificationId"}, unique = true),
+                @Index(value = {"expiresAt"})
+        })
+public class PendingReplyEntity {
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private long notificationId;
+    // StatusBarNotification key, used to find the reply action while the notification is showing
+    private String notificationKey;
+    private String conversationId;
+    // Incoming message the reply is generated for
+    private String message;
+    // Generated reply; null until generation succeeds, after which only sending is retried
+    private String replyText;
+    private int attempts;
+    private String lastError;
+    private long createdAt;
+    private long expiresAt;
+
+    public PendingReplyEntity() {
+        // Required no-args constructor for Room
+    }
+
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    public long getNotificationId() { return notificationId; }
+    public void setNotificationId(long notificationId) { this.notificationId = notificationId; }
+
+    public String getNotificationKey() { return notificationKey; }
+    public void setNotificationKey(String notificationKey) { this.notificationKey = notificationKey; }
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public String getReplyText() { return replyText; }
+    public void setReplyText(String replyText) { this.replyText = replyText; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+}
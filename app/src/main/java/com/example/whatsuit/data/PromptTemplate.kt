@@ -3,6 +3,7 @@ package com.example.whatsuit.data
 import androidx.room.Entity
 import androidx.room.ColumnInfo
 import androidx.room.PrimaryKey
+import com.example.whatsuit.util.PromptBuilder
 
 /**
  * Entity class representing a prompt template.
@@ -20,7 +21,9 @@ data class PromptTemplate(
     
     /**
      * The prompt template text with placeholders:
-     * {context} - Previous conversation history
+     * {context} - Conversation info and summary, followed by the recent messages unless
+     *             {history} is used
+     * {history} - Recent messages (optional)
      * {message} - Current message
      */
     val template: String,
@@ -55,16 +58,18 @@ data class PromptTemplate(
         )
 
         /**
-         * Processes a template by replacing placeholders with actual content
+         * Processes a template by replacing placeholders with actual content, in a single pass
+         * (see [PromptBuilder.render])
          */
         fun processTemplate(
             template: String,
             context: String,
             message: String
         ): String {
-            return template
-                .replace("{context}", context)
-                .replace("{message}", message)
+            return PromptBuilder.render(template, mapOf(
+                PromptBuilder.PLACEHOLDER_CONTEXT to context,
+                PromptBuilder.PLACEHOLDER_MESSAGE to message
+            ))
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.whatsuit.data.migrations;
+
+import android.util.Log;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Database migration from version 13 to 14.
+ * Adds the notifications_archive table that old notifications are moved to by retention.
+ */
+public class Migration13To14 extends Migration {
+    private static final String TAG = "Migration13To14";
+
+    public Migration13To14() {
+        super(13, 14);
+    }
+
+    @Override
+    public void migrate(SupportSQLiteDatabase database) {
+        try {
+            Log.d(TAG, "Starting migration 13 -> 14");
+
+            database.execSQL("""
+                CREATE TABLE IF NOT EXISTS notifications_archive (
+                    id INTEGER PRIMARY KEY NOT NULL,
+                    packageName TEXT,
+                    appName TEXT,
+                    title TEXT,
+                    conversationId TEXT,
+                    timestamp INTEGER NOT NULL,
+                    archivedAt INTEGER NOT NULL,
+                    payload BLOB
+                )
+            """);
+
+            database.execSQL("""
+                CREATE INDEX IF NOT EXISTS index_notifications_archive_timestamp
+                ON notifications_archive (timestamp)
+            """);
+
+            database.execSQL("""
+                CREATE INDEX IF NOT EXISTS index_notifications_archive_conversationId
+                ON notifications_archive (conversationId)
+            """);
+
+            Log.d(TAG, "Successfully completed migration 13 -> 14");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during migration 13 -> 14", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.whatsuit.data.migrations;
+
+import android.util.Log;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Database migration from version 14 to 15.
+ * Adds the pending_replies table used to retry auto-replies that failed to generate or send.
+ */
+public class Migration14To15 extends Migration {
+    private static final String TAG = "Migration14To15";
+
+    public Migration14To15() {
+        super(14, 15);
+    }
+
+    @Override
+    public void migrate(SupportSQLiteDatabase database) {
+        try {
+            Log.d(TAG, "Starting migration 14 -> 15");
+
+            database.execSQL("""
+                CREATE TABLE IF NOT EXISTS pending_replies (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL,
+                    notificationId INTEGER NOT NULL,
+                    notificationKey TEXT,
+                    conversationId TEXT,
+                    message TEXT,
+                    replyText TEXT,
+                    attempts INTEGER NOT NULL,
+                    lastError TEXT,
+                    createdAt INTEGER NOT NULL,
+                    expiresAt INTEGER NOT NULL,
+                    FOREIGN KEY (notificationId) REFERENCES notifications(id) ON DELETE CASCADE
+                )
+            """);
+
+            database.execSQL("""
+                CREATE UNIQUE INDEX IF NOT EXISTS index_pending_replies_notificationId
+                ON pending_replies (notificationId)
+            """);
+
+            database.execSQL("""
+                CREATE INDEX IF NOT EXISTS index_pending_replies_expiresAt
+                ON pending_replies (expiresAt)
+            """);
+
+            Log.d(TAG, "Successfully completed migration 14 -> 15");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during migration 14 -> 15", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.whatsuit.data.migrations;
+
+import android.util.Log;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Database migration from version 15 to 16.
+ * Adds the conversation_analysis table that caches the structured analysis per conversation.
+ */
+public class Migration15To16 extends Migration {
+    private static final String TAG = "Migration15To16";
+
+    public Migration15To16() {
+        super(15, 16);
+    }
+
+    @Override
+    public void migrate(SupportSQLiteDatabase database) {
+        try {
+            Log.d(TAG, "Starting migration 15 -> 16");
+
+            database.execSQL("""
+                CREATE TABLE IF NOT EXISTS conversation_analysis (
+                    conversationId TEXT PRIMARY KEY NOT NULL,
+                    lastHistoryId INTEGER NOT NULL,
+                    nextSteps TEXT,
+                    followUp TEXT,
+                    negotiation TEXT,
+                    suggestedReply TEXT,
+                    summary TEXT,
+                    rawText TEXT,
+                    updatedAt INTEGER NOT NULL
+                )
+            """);
+
+            Log.d(TAG, "Successfully completed migration 15 -> 16");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during migration 15 -> 16", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.whatsuit.data.migrations;
+
+import android.util.Log;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Database migration from version 16 to 17.
+ * Adds the conversation_summary table with the rolling summary per conversation, and the
+ * prompt token budget to gemini_config (0: the model's default budget).
+ */
+public class Migration16To17 extends Migration {
+    private static final String TAG = "Migration16To17";
+
+    public Migration16To17() {
+        super(16, 17);
+    }
+
+    @Override
+    public void migrate(SupportSQLiteDatabase database) {
+        try {
+            Log.d(TAG, "Starting migration 16 -> 17");
+
+            database.execSQL("""
+                CREATE TABLE IF NOT EXISTS conversation_summary (
+                    conversationId TEXT PRIMARY KEY NOT NULL,
+                    summary TEXT,
+                    lastHistoryId INTEGER NOT NULL,
+                    coveredExchanges INTEGER NOT NULL,
+                    updatedAt INTEGER NOT NULL
+                )
+            """);
+
+            database.execSQL("""
+                ALTER TABLE gemini_config
+                ADD COLUMN promptTokenBudget INTEGER NOT NULL DEFAULT 0
+            """);
+
+            Log.d(TAG, "Successfully completed migration 16 -> 17");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during migration 16 -> 17", e);
+            throw e;
+        }
+    }
+}
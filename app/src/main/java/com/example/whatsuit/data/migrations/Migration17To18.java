@@ -0,0 +1,34 @@
+package com.example.whatsuit.data.migrations;
+
+import android.util.Log;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Database migration from version 17 to 18.
+ * Adds is_group to notifications, the group classification of each conversation.
+ */
+public class Migration17To18 extends Migration {
+    private static final String TAG = "Migration17To18";
+
+    public Migration17To18() {
+        super(17, 18);
+    }
+
+    @Override
+    public void migrate(SupportSQLiteDatabase database) {
+        try {
+            Log.d(TAG, "Starting migration 17 -> 18");
+
+            database.execSQL("""
+                ALTER TABLE notifications
+                ADD COLUMN is_group INTEGER DEFAULT NULL
+            """);
+
+            Log.d(TAG, "Successfully completed migration 17 -> 18");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during migration 17 -> 18", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.whatsuit.data.migrations;
+
+import android.util.Log;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Database migration from version 18 to 19.
+ * Adds the messages table with every message read from a conversation's notifications.
+ */
+public class Migration18To19 extends Migration {
+    private static final String TAG = "Migration18To19";
+
+    public Migration18To19() {
+        super(18, 19);
+    }
+
+    @Override
+    public void migrate(SupportSQLiteDatabase database) {
+        try {
+            Log.d(TAG, "Starting migration 18 -> 19");
+
+            database.execSQL("""
+                CREATE TABLE IF NOT EXISTS messages (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL,
+                    conversationId TEXT NOT NULL,
+                    sender TEXT,
+                    text TEXT,
+                    ts INTEGER NOT NULL
+                )
+            """);
+
+            database.execSQL("""
+                CREATE INDEX IF NOT EXISTS index_messages_conversationId_ts
+                ON messages(conversationId, ts)
+            """);
+
+            Log.d(TAG, "Successfully completed migration 18 -> 19");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during migration 18 -> 19", e);
+            throw e;
+        }
+    }
+}
@@ -46,14 +46,14 @@ class NotificationsFragment : Fragment() {
     private fun setupViewModel() {
         viewModel = ViewModelProvider(requireActivity())[NotificationDetailViewModel::class.java]
         
-        viewModel.getRelatedNotifications().observe(viewLifecycleOwner) { notifications ->
-            if (notifications.isNullOrEmpty()) {
+        viewModel.getMessages().observe(viewLifecycleOwner) { messages ->
+            if (messages.isNullOrEmpty()) {
                 recyclerView.visibility = View.GONE
                 emptyView.visibility = View.VISIBLE
             } else {
                 recyclerView.visibility = View.VISIBLE
                 emptyView.visibility = View.GONE
-                adapter.setNotifications(notifications)
+                adapter.setMessages(messages)
             }
         }
     }
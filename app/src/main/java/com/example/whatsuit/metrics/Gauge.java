@@ -0,0 +1,41 @@
+package com.example.whatsuit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Current value of something that goes up and down, such as work in flight.
+ */
+public final class Gauge {
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    Gauge(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    /**
+     * @return the new value
+     */
+    public long increment() {
+        return value.incrementAndGet();
+    }
+
+    /**
+     * @return the new value
+     */
+    public long decrement() {
+        return value.decrementAndGet();
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
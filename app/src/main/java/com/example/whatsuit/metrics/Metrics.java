@@ -0,0 +1,64 @@
+package com.example.whatsuit.metrics;
+
+/**
+ * The metrics recorded by the auto-reply pipeline and backups. Held as constants so recording
+ * is a field read plus an atomic update.
+ */
+public final class Metrics {
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.get();
+
+    // Notification pipeline
+    public static final Counter NOTIFICATIONS_POSTED = REGISTRY.counter("notifications.posted");
+    public static final Counter NOTIFICATIONS_DEDUPLICATED = REGISTRY.counter("notifications.deduplicated");
+    public static final Counter NOTIFICATIONS_FAILED = REGISTRY.counter("notifications.failed");
+    public static final Gauge NOTIFICATIONS_IN_FLIGHT = REGISTRY.gauge("notifications.in_flight");
+    public static final LatencyHistogram INGEST = REGISTRY.histogram("notification.ingest");
+    public static final LatencyHistogram DB_UPSERT = REGISTRY.histogram("notification.db_upsert");
+    public static final LatencyHistogram SETTINGS_CHECK = REGISTRY.histogram("notification.settings_check");
+    public static final Counter MESSAGES_INGESTED = REGISTRY.counter("messages.ingested");
+    // Messages of a stacked notification that were already stored from an earlier post
+    public static final Counter MESSAGES_DUPLICATE = REGISTRY.counter("messages.duplicate");
+    public static final LatencyHistogram DB_MESSAGES_INSERT = REGISTRY.histogram("notification.db_messages_insert");
+
+    // Auto-reply
+    public static final Counter REPLIES_SENT = REGISTRY.counter("replies.sent");
+    public static final Counter REPLIES_FAILED = REGISTRY.counter("replies.failed");
+    public static final Counter REPLY_LIMIT_REACHED = REGISTRY.counter("replies.limit_reached");
+    public static final Counter REPLIES_QUEUED = REGISTRY.counter("replies.queued");
+    public static final Counter REPLIES_RETRIED = REGISTRY.counter("replies.retried");
+    public static final Counter REPLIES_EXPIRED = REGISTRY.counter("replies.expired");
+    public static final Counter KEYWORD_MATCHES = REGISTRY.counter("replies.keyword_matches");
+    public static final Counter GEMINI_ERRORS = REGISTRY.counter("gemini.errors");
+    public static final Gauge GEMINI_IN_FLIGHT = REGISTRY.gauge("gemini.in_flight");
+    public static final LatencyHistogram KEYWORD_MATCH = REGISTRY.histogram("reply.keyword_match");
+    public static final LatencyHistogram GEMINI_LATENCY = REGISTRY.histogram("reply.gemini");
+    public static final LatencyHistogram GEMINI_GENERATE = REGISTRY.histogram("reply.gemini_generate");
+    public static final LatencyHistogram PROMPT_TOKENS = REGISTRY.sizeHistogram("reply.prompt_tokens");
+    public static final LatencyHistogram PROMPT_TEMPLATE_TOKENS = REGISTRY.sizeHistogram("reply.prompt_tokens.template");
+    public static final LatencyHistogram PROMPT_CONTEXT_TOKENS = REGISTRY.sizeHistogram("reply.prompt_tokens.context");
+    public static final LatencyHistogram PROMPT_HISTORY_TOKENS = REGISTRY.sizeHistogram("reply.prompt_tokens.history");
+    public static final LatencyHistogram PROMPT_MESSAGE_TOKENS = REGISTRY.sizeHistogram("reply.prompt_tokens.message");
+    public static final Counter PROMPT_TRIMMED = REGISTRY.counter("reply.prompt_trimmed");
+    public static final LatencyHistogram REPLY_SEND = REGISTRY.histogram("reply.send");
+    public static final Gauge REPLY_QUEUE_DEPTH = REGISTRY.gauge("replies.queue_depth");
+    public static final LatencyHistogram REPLY_QUEUE_WAIT = REGISTRY.histogram("reply.queue_wait");
+    public static final LatencyHistogram REPLY_QUEUE_WAIT_KEYWORD = REGISTRY.histogram("reply.queue_wait.keyword");
+    public static final LatencyHistogram REPLY_QUEUE_WAIT_DIRECT = REGISTRY.histogram("reply.queue_wait.direct");
+    public static final LatencyHistogram REPLY_QUEUE_WAIT_GROUP = REGISTRY.histogram("reply.queue_wait.group");
+
+    // Conversation summaries
+    public static final Counter SUMMARIES_REFRESHED = REGISTRY.counter("summaries.refreshed");
+    public static final Counter SUMMARIES_FAILED = REGISTRY.counter("summaries.failed");
+    public static final LatencyHistogram SUMMARY_GENERATE = REGISTRY.histogram("summary.gemini_generate");
+
+    // Backup and restore
+    public static final LatencyHistogram BACKUP_DATABASE = REGISTRY.histogram("backup.database");
+    public static final LatencyHistogram BACKUP_MEDIA_SCAN = REGISTRY.histogram("backup.media_scan");
+    public static final LatencyHistogram BACKUP_ARCHIVE = REGISTRY.histogram("backup.archive");
+    public static final LatencyHistogram RESTORE_EXTRACT = REGISTRY.histogram("restore.extract");
+    public static final LatencyHistogram RESTORE_DATABASE = REGISTRY.histogram("restore.database");
+    public static final LatencyHistogram RESTORE_MEDIA = REGISTRY.histogram("restore.media");
+
+    private Metrics() {
+    }
+}
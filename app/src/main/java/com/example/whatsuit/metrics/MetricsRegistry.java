@@ -0,0 +1,120 @@
+package com.example.whatsuit.metrics;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Process-wide registry of counters, gauges, latency histograms and size histograms.
+ *
+ * Metrics are created once by name and kept for the life of the process; hot paths hold on to
+ * the returned instances (see {@link Metrics}) so recording never touches the registry maps.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> sizes = new ConcurrentSkipListMap<>();
+    private volatile long startedAtMillis = System.currentTimeMillis();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, Gauge::new);
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Histogram of plain quantities such as prompt sizes, recorded with
+     * {@link LatencyHistogram#recordValue(long)} and dumped without a time unit.
+     */
+    public LatencyHistogram sizeHistogram(String name) {
+        return sizes.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Clears counters and histograms. Gauges describe current state and are left alone.
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (LatencyHistogram histogram : sizes.values()) {
+            histogram.reset();
+        }
+        startedAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes every metric as plain text, for dumpsys and the diagnostics screen.
+     */
+    public void dump(PrintWriter writer) {
+        long uptimeSeconds = (System.currentTimeMillis() - startedAtMillis) / 1000;
+        writer.println("Metrics (collected over " + uptimeSeconds + "s)");
+
+        writer.println();
+        writer.println("Counters:");
+        for (Counter counter : counters.values()) {
+            writer.printf("  %-36s %d%n", counter.getName(), counter.get());
+        }
+
+        writer.println();
+        writer.println("Gauges:");
+        for (Gauge gauge : gauges.values()) {
+            writer.printf("  %-36s %d%n", gauge.getName(), gauge.get());
+        }
+
+        writer.println();
+        writer.println("Latencies (ms):");
+        writer.printf("  %-28s %7s %8s %8s %8s %8s %8s%n", "", "count", "mean", "p50", "p90", "p99", "max");
+        for (LatencyHistogram histogram : histograms.values()) {
+            writer.printf("  %-28s %7d %8.1f %8.1f %8.1f %8.1f %8.1f%n",
+                    histogram.getName(),
+                    histogram.getCount(),
+                    histogram.getMeanMicros() / 1000.0,
+                    histogram.getPercentileMicros(50) / 1000.0,
+                    histogram.getPercentileMicros(90) / 1000.0,
+                    histogram.getPercentileMicros(99) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0);
+        }
+
+        writer.println();
+        writer.println("Sizes:");
+        writer.printf("  %-28s %7s %8s %8s %8s %8s %8s%n", "", "count", "mean", "p50", "p90", "p99", "max");
+        for (LatencyHistogram histogram : sizes.values()) {
+            writer.printf("  %-28s %7d %8d %8d %8d %8d %8d%n",
+                    histogram.getName(),
+                    histogram.getCount(),
+                    histogram.getMeanMicros(),
+                    histogram.getPercentileMicros(50),
+                    histogram.getPercentileMicros(90),
+                    histogram.getPercentileMicros(99),
+                    histogram.getMaxMicros());
+        }
+        writer.flush();
+    }
+
+    public String dumpToString() {
+        StringWriter out = new StringWriter();
+        dump(new PrintWriter(out));
+        return out.toString();
+    }
+}
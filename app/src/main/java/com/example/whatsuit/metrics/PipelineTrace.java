@@ -0,0 +1,119 @@
+package com.example.whatsuit.metrics;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Perfetto / systrace sections for the notification pipeline.
+ *
+ * Sections are only emitted while the "trace_enabled" debug setting is on and a trace is being
+ * recorded, so the calls cost one volatile read otherwise. Synchronous sections must begin and
+ * end on the same thread; anything that crosses a coroutine suspension or a callback uses an
+ * async slice identified by a cookie instead.
+ */
+public final class PipelineTrace {
+    public static final String PREF_TRACE_ENABLED = "trace_enabled";
+
+    // Async slice from onNotificationPosted until the reply is sent or the pipeline gives up
+    public static final String NOTIFICATION_LIFECYCLE = "whatsuit.notification";
+    public static final String COUNTER_QUEUE_DEPTH = "whatsuit.notifications_in_flight";
+    public static final String COUNTER_GEMINI_IN_FLIGHT = "whatsuit.gemini_in_flight";
+    public static final String COUNTER_REPLY_QUEUE_DEPTH = "whatsuit.reply_queue_depth";
+
+    private static volatile boolean enabled;
+    private static volatile boolean loaded;
+    private static final AtomicInteger nextCookie = new AtomicInteger();
+
+    private PipelineTrace() {
+    }
+
+    /**
+     * True while the setting is on and a trace is being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled && Trace.isEnabled();
+    }
+
+    public static boolean isSettingEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the stored setting. Cheap after the first call.
+     */
+    public static void init(Context context) {
+        if (!loaded) {
+            enabled = prefs(context).getBoolean(PREF_TRACE_ENABLED, false);
+            loaded = true;
+        }
+    }
+
+    public static void setEnabled(Context context, boolean value) {
+        prefs(context).edit().putBoolean(PREF_TRACE_ENABLED, value).apply();
+        enabled = value;
+        loaded = true;
+    }
+
+    /**
+     * Opens a section on the current thread; always pair with {@link #endSection()} in a
+     * finally block.
+     */
+    public static void beginSection(String name) {
+        if (enabled) {
+            Trace.beginSection(name);
+        }
+    }
+
+    public static void endSection() {
+        if (enabled) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * A cookie for a new async slice. Each slice gets its own, so two slices of the same name in
+     * flight at once (e.g. two posts of one conversation) never end each other.
+     */
+    public static int newCookie() {
+        return nextCookie.incrementAndGet();
+    }
+
+    public static void beginAsync(String name, int cookie) {
+        if (isEnabled()) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    public static void endAsync(String name, int cookie) {
+        if (isEnabled()) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+    /**
+     * Async slice covering a notification from posting to reply.
+     * @return the cookie to pass to {@link #endLifecycle}
+     */
+    public static int beginLifecycle() {
+        int cookie = newCookie();
+        beginAsync(NOTIFICATION_LIFECYCLE, cookie);
+        return cookie;
+    }
+
+    public static void endLifecycle(int cookie) {
+        endAsync(NOTIFICATION_LIFECYCLE, cookie);
+    }
+
+    public static void setCounter(String name, long value) {
+        if (isEnabled()) {
+            Trace.setCounter(name, value);
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences("whatsuit_settings", Context.MODE_PRIVATE);
+    }
+}
@@ -1,28 +1,54 @@
 package com.example.whatsuit.service
 
 import android.content.Context
+import android.os.Handler
+import android.os.Looper
 import android.util.Log
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
 import androidx.room.withTransaction
 import com.example.whatsuit.data.AppDatabase
 import com.example.whatsuit.data.ConversationHistory
+import com.example.whatsuit.data.ConversationSummaryEntity
 import com.example.whatsuit.data.GeminiConfig
 import com.example.whatsuit.data.PromptTemplate
 import com.example.whatsuit.data.ConversationManager
+import com.example.whatsuit.data.MessageEntity
 import com.google.ai.client.generativeai.GenerativeModel
 import kotlinx.coroutines.*
 import kotlinx.coroutines.sync.Mutex
 import androidx.room.withTransaction
 import kotlinx.coroutines.sync.withLock
 import com.example.whatsuit.data.NotificationEntity
+import com.example.whatsuit.metrics.LatencyHistogram
+import com.example.whatsuit.metrics.Metrics
+import com.example.whatsuit.metrics.PipelineTrace
+import com.example.whatsuit.util.ConversationAnalysisParser
+import com.example.whatsuit.util.PromptBuilder
+import com.example.whatsuit.util.VerboseLog
+import com.example.whatsuit.worker.ConversationSummaryWorker
 
-class GeminiService(private val context: Context) {
-    private companion object {
+/**
+ * Process-wide Gemini client; use [getInstance]. One [GenerativeModel], and with it one HTTP
+ * client, is shared by the notification listener, the reply worker and the UI, and is only
+ * rebuilt when the configuration changes ([reloadConfig]).
+ */
+class GeminiService private constructor(private val context: Context) : ReplyGenerator {
+    companion object {
         private const val TAG = "GeminiService"
         private const val CONVERSATION_TAG = "ConversationTracking"
         private const val HISTORY_TAG = "HistoryManagement"
         private const val DEFAULT_HISTORY_LIMIT = 10
         private const val MAX_WORDS = 50 // Limited for concise responses
         private const val MAX_HISTORY_MESSAGES = 5 // Number of recent messages to include
+        private const val MAX_ANALYSIS_MESSAGES = 50 // Newest unanalyzed messages sent per analysis
+        private const val SUMMARY_REFRESH_EXCHANGES = 5 // New exchanges that trigger a summary refresh
+        private const val MAX_SUMMARY_MESSAGES = 50 // Newest unsummarized exchanges sent per refresh
+        private const val TRACE_GENERATE_REPLY = "GeminiService.generateReply"
+        private const val TRACE_GENERATE_CONTENT = "GeminiService.generateContent"
     private const val ANALYSIS_PROMPT = """
             Analyze this conversation history and provide insights in the following format:
             
@@ -40,19 +66,89 @@ class GeminiService(private val context: Context) {
 
             4. Suggested Reply:
             - A short, professional message (max 2 sentences) to move the conversation forward based on the analysis.
+
+            5. Summary:
+            - A summary of the conversation so far in at most 5 sentences, including names, amounts and dates that matter.
             
             Conversation History:
             {context}
             
             Provide a detailed but concise analysis focusing on actionable insights.
         """
+        // Same sections, from the summary of the previous analysis plus the messages since
+        private const val INCREMENTAL_ANALYSIS_PROMPT = """
+            Update the analysis of this conversation. The summary describes everything up to the
+            new messages. Provide the updated insights in the following format:
+
+            1. Next Steps:
+            - What actions should be taken next with this conversation?
+            - What business opportunities exist?
+
+            2. Follow-up Actions:
+            - Does this require follow-up contact?
+            - When and how should we follow up?
+
+            3. Negotiation Points:
+            - What negotiation strategies would be effective?
+            - What key points need to be addressed?
+
+            4. Suggested Reply:
+            - A short, professional message (max 2 sentences) to move the conversation forward based on the analysis.
+
+            5. Summary:
+            - The summary updated with the new messages, in at most 5 sentences, including names, amounts and dates that matter.
+
+            Summary So Far:
+            {summary}
+
+            New Messages:
+            {context}
+
+            Provide a detailed but concise analysis focusing on actionable insights.
+        """
+
+        private const val SUMMARY_PROMPT = """
+            Maintain a compact summary of this conversation for an assistant that replies to it.
+            Keep names, commitments, amounts, dates, open questions and the tone of the
+            conversation. Write at most 6 sentences and reply with the summary only.
+
+            Summary So Far:
+            {summary}
+
+            New Messages:
+            {context}
+        """
+
+        @Volatile
+        private var INSTANCE: GeminiService? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): GeminiService {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: GeminiService(context.applicationContext).also { INSTANCE = it }
+            }
+        }
+
+        /**
+         * Drops the shared instance so the next [getInstance] builds a new one.
+         */
+        @VisibleForTesting
+        internal fun resetInstance() {
+            synchronized(this) {
+                INSTANCE = null
+            }
+        }
     }
 
     private val database = AppDatabase.getDatabase(context)
     private val geminiDao = database.geminiDao()
+    private val summaryDao = database.conversationSummaryDao()
     private val conversationManager = ConversationManager(context)
+    @Volatile
     private var generativeModel: GenerativeModel? = null
-    private val scope = CoroutineScope(Dispatchers.IO + Job())
+    // Supervisor, so one failed request cannot cancel the shared scope for every caller
+    private val scope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+    private val mainHandler = Handler(Looper.getMainLooper())
 
     interface ResponseCallback {
         fun onPartialResponse(text: String)
@@ -113,7 +209,7 @@ class GeminiService(private val context: Context) {
         }
     }
 
-    suspend fun initialize() = withContext(Dispatchers.IO) {
+    override suspend fun initialize(): Boolean = withContext(Dispatchers.IO) {
         if (isInitialized) return@withContext true
 
         initMutex.withLock {
@@ -146,20 +242,38 @@ class GeminiService(private val context: Context) {
         }
     }
 
+    /**
+     * Drops the current model so the next request builds one from the stored configuration,
+     * e.g. after the API key or model name changed.
+     */
+    suspend fun reloadConfig() {
+        initMutex.withLock {
+            isInitialized = false
+            generativeModel = null
+            initializationDeferred = null
+        }
+    }
+
     private suspend fun ensureInitialized() = withContext(Dispatchers.IO) {
         if (!isInitialized) {
             initialize()
         }
     }
 
-    fun generateReply(
+    override fun generateReply(
         notificationId: Long,
         message: String,
         callback: ResponseCallback
-    ) = scope.launch {
+    ): Job = scope.launch {
+        // Async slice: the coroutine suspends and may resume on another thread
+        val traceCookie = PipelineTrace.newCookie()
+        PipelineTrace.beginAsync(TRACE_GENERATE_REPLY, traceCookie)
+        PipelineTrace.setCounter(PipelineTrace.COUNTER_GEMINI_IN_FLIGHT, Metrics.GEMINI_IN_FLIGHT.increment())
         try {
-            // Log conversation flow first
-            logConversationFlow(notificationId)
+            // Costs two extra queries per reply, so only when verbose logging is on
+            if (VerboseLog.isEnabled()) {
+                logConversationFlow(notificationId)
+            }
             
             ensureInitialized()
             val config = geminiDao.getConfig() ?: throw IllegalStateException("Gemini not configured")
@@ -185,9 +299,11 @@ class GeminiService(private val context: Context) {
             // Get notification data
             val safeNotification = notification!!  // Safe cast since we checked for null above
             
-            // Get all historical conversations for this thread
-            val conversationHistory = database.conversationHistoryDao()
-                .getHistoryForConversationSync(safeNotification.conversationId)
+            // The newest turns verbatim; the rolling summary stands in for everything older
+            val recentTurns = database.conversationHistoryDao().getHistoryForConversationAfterSync(
+                safeNotification.conversationId, 0, MAX_HISTORY_MESSAGES)
+            val summary = summaryDao.getForConversation(safeNotification.conversationId)?.summary
+            val newMessages = getMessagesSinceReply(safeNotification.conversationId, recentTurns, message)
             
             // Get enhanced conversation context including participants
             val contextData = conversationManager.getConversationContext(notificationId)
@@ -196,44 +312,27 @@ class GeminiService(private val context: Context) {
             // Get active template or use default
             val template = database.geminiDao().getActiveTemplate() ?: PromptTemplate.createDefault()
             
-            // Build conversation context string
-            val contextString = buildString {
-                // Metadata section
-                append("Conversation Info:\n")
-                append("- Thread ID: ${contextData.threadId}\n")
-                append("- Messages: ${contextData.historySize}\n")
-                if (contextData.participants.isNotEmpty()) {
-                    append("- Participants: ${contextData.participants.joinToString(", ")}\n")
-                }
-                append("\n")
-
-                // Recent conversation history
-                if (conversationHistory.isNotEmpty()) {
-                    append("Recent Messages:\n")
-                    conversationHistory.asReversed().take(5).forEach { entry ->
-                        append("User: ${entry.message}\n")
-                        append("Assistant: ${entry.response}\n")
-                        append("---\n")
-                    }
-                } else {
-                    append("No previous messages\n")
-                }
-            }
-            
-            // Process template with context and current message
-            val prompt = PromptTemplate.processTemplate(
-                template = template.template,
-                context = contextString,
-                message = message
-            )
+            val builtPrompt = buildReplyPrompt(
+                template.template, contextData, summary, recentTurns, newMessages, message,
+                config.effectivePromptTokenBudget())
+            recordPromptSize(builtPrompt)
+            val prompt = builtPrompt.text
             
             // Get response from Gemini
             Log.d(TAG, "Using template: ${template.name}")
-            Log.d(TAG, "Sending prompt to Gemini with context length: ${prompt.length}")
+            Log.d(TAG, "Sending prompt to Gemini: ${prompt.length} chars, ~${builtPrompt.totalTokens} tokens" +
+                if (builtPrompt.trimmed) ", ${builtPrompt.historyTurnsDropped} turns dropped" else "")
             
             // Generate response
-            val response = withContext(Dispatchers.IO) {
-                model.generateContent(prompt)
+            PipelineTrace.beginAsync(TRACE_GENERATE_CONTENT, traceCookie)
+            val generateStart = LatencyHistogram.start()
+            val response = try {
+                withContext(Dispatchers.IO) {
+                    model.generateContent(prompt)
+                }
+            } finally {
+                Metrics.GEMINI_GENERATE.recordSince(generateStart)
+                PipelineTrace.endAsync(TRACE_GENERATE_CONTENT, traceCookie)
             }
             
             // Process and limit response to exactly 50 words
@@ -250,7 +349,7 @@ class GeminiService(private val context: Context) {
                     fullResponse.append(word).append(" ")
                     callback.onPartialResponse("$word ")
                 }
-                Thread.sleep(50)
+                delay(50) // Suspends; a sleep would hold the pool thread for the whole reply
             }
 
             val finalResponse = fullResponse.toString().trim()
@@ -280,6 +379,7 @@ class GeminiService(private val context: Context) {
                                 Log.d(HISTORY_TAG, "Pruned old history entries")
                             }
                         }
+                        maybeScheduleSummaryRefresh(newHistory.conversationId)
                     } else {
                         Log.w(TAG, "Skipping history save - notification $notificationId not found")
                     }
@@ -293,12 +393,149 @@ class GeminiService(private val context: Context) {
             }
             Log.d(TAG, "Completed response generation")
 
+        } catch (e: CancellationException) {
+            // The caller went away; there is nobody left to report to
+            throw e
         } catch (e: Exception) {
             Log.e(TAG, "Error generating reply", e)
             withContext(Dispatchers.Main) {
                 callback.onError(RuntimeException("Failed to generate reply: ${e.message}", e))
             }
+        } finally {
+            PipelineTrace.setCounter(PipelineTrace.COUNTER_GEMINI_IN_FLIGHT, Metrics.GEMINI_IN_FLIGHT.decrement())
+            PipelineTrace.endAsync(TRACE_GENERATE_REPLY, traceCookie)
+        }
+    }
+
+    /**
+     * Messages that arrived after the last reply, e.g. the earlier messages of a stacked
+     * notification, newest first and without the one being replied to.
+     */
+    private fun getMessagesSinceReply(
+        conversationId: String?,
+        recentTurns: List<ConversationHistory>,
+        message: String
+    ): List<MessageEntity> {
+        if (conversationId.isNullOrEmpty()) return emptyList()
+        val lastReplyAt = recentTurns.firstOrNull()?.timestamp ?: 0L
+        val messages = database.messageDao().getMessagesAfterSync(
+            conversationId, lastReplyAt, MAX_HISTORY_MESSAGES + 1)
+        return if (messages.firstOrNull()?.text == message) messages.drop(1) else messages.take(MAX_HISTORY_MESSAGES)
+    }
+
+    /**
+     * Renders the template with the conversation info and rolling summary as context, and the
+     * recent turns followed by the messages since the last reply (both newest first) as
+     * history, trimmed to [tokenBudget] by [PromptBuilder].
+     */
+    private fun buildReplyPrompt(
+        template: String,
+        contextData: ConversationManager.ConversationContext,
+        summary: String?,
+        recentTurns: List<ConversationHistory>,
+        newMessages: List<MessageEntity>,
+        message: String,
+        tokenBudget: Int
+    ): PromptBuilder.Prompt {
+        val context = buildString {
+            // Metadata section
+            append("Conversation Info:\n")
+            append("- Thread ID: ${contextData.threadId}\n")
+            append("- Messages: ${contextData.historySize}\n")
+            if (contextData.participants.isNotEmpty()) {
+                append("- Participants: ${contextData.participants.joinToString(", ")}\n")
+            }
+            append("\n")
+
+            if (!summary.isNullOrEmpty()) {
+                append("Conversation Summary:\n")
+                append(summary)
+                append("\n\n")
+            } else if (recentTurns.isEmpty() && newMessages.isEmpty()) {
+                append("No previous messages\n")
+            }
+        }
+        // Oldest first, so the builder drops the oldest turns first
+        val turns = recentTurns.asReversed().map { entry ->
+            "User: ${entry.message}\nAssistant: ${entry.response}\n---\n"
+        } + newMessages.asReversed().map { entry ->
+            "${entry.sender ?: "Me"}: ${entry.text}\n"
+        }
+        return PromptBuilder(template)
+            .setContext(context)
+            .setHistory("Recent Messages:\n", turns)
+            .setMessage(message)
+            .build(tokenBudget)
+    }
+
+    private fun recordPromptSize(prompt: PromptBuilder.Prompt) {
+        Metrics.PROMPT_TOKENS.recordValue(prompt.totalTokens.toLong())
+        Metrics.PROMPT_TEMPLATE_TOKENS.recordValue(prompt.templateTokens.toLong())
+        Metrics.PROMPT_CONTEXT_TOKENS.recordValue(prompt.contextTokens.toLong())
+        Metrics.PROMPT_HISTORY_TOKENS.recordValue(prompt.historyTokens.toLong())
+        Metrics.PROMPT_MESSAGE_TOKENS.recordValue(prompt.messageTokens.toLong())
+        if (prompt.trimmed) {
+            Metrics.PROMPT_TRIMMED.increment()
+        }
+    }
+
+    /**
+     * Queues a summary refresh once [SUMMARY_REFRESH_EXCHANGES] exchanges are not covered by
+     * the summary, well before history pruning (maxHistoryPerThread) drops them.
+     */
+    private fun maybeScheduleSummaryRefresh(conversationId: String) {
+        if (conversationId.isEmpty()) return
+        val lastHistoryId = summaryDao.getForConversation(conversationId)?.lastHistoryId ?: 0
+        val uncovered = database.conversationHistoryDao()
+            .countHistoryForConversationAfterSync(conversationId, lastHistoryId)
+        if (uncovered >= SUMMARY_REFRESH_EXCHANGES) {
+            Log.d(HISTORY_TAG, "Scheduling summary refresh for $conversationId ($uncovered new exchanges)")
+            ConversationSummaryWorker.enqueue(context, conversationId)
+        }
+    }
+
+    /**
+     * Folds the exchanges added since the last refresh into the conversation's rolling summary.
+     * Blocking; called from [ConversationSummaryWorker].
+     * @return false if there was nothing new to summarize
+     */
+    @WorkerThread
+    fun refreshSummarySync(conversationId: String): Boolean = runBlocking(Dispatchers.IO) {
+        refreshSummary(conversationId)
+    }
+
+    private suspend fun refreshSummary(conversationId: String): Boolean {
+        val previous = summaryDao.getForConversation(conversationId)
+        // Newest first
+        val newExchanges = database.conversationHistoryDao().getHistoryForConversationAfterSync(
+            conversationId, previous?.lastHistoryId ?: 0, MAX_SUMMARY_MESSAGES)
+        if (newExchanges.isEmpty()) return false
+
+        ensureInitialized()
+        val model = generativeModel ?: throw IllegalStateException("Gemini model not initialized")
+
+        val prompt = SUMMARY_PROMPT
+            .replace("{summary}", previous?.summary ?: "None yet.")
+            .replace("{context}", buildHistoryContext(newExchanges))
+        val generateStart = LatencyHistogram.start()
+        val response = try {
+            model.generateContent(prompt)
+        } finally {
+            Metrics.SUMMARY_GENERATE.recordSince(generateStart)
         }
+        val text = response.text?.trim()
+        if (text.isNullOrEmpty()) throw IllegalStateException("Empty summary from Gemini")
+
+        summaryDao.upsert(ConversationSummaryEntity().apply {
+            this.conversationId = conversationId
+            summary = text
+            lastHistoryId = newExchanges.first().id
+            coveredExchanges = (previous?.coveredExchanges ?: 0) + newExchanges.size
+            updatedAt = System.currentTimeMillis()
+        })
+        Metrics.SUMMARIES_REFRESHED.increment()
+        Log.d(HISTORY_TAG, "Summary for $conversationId now covers ${newExchanges.size} more exchanges")
+        return true
     }
 
     private fun buildEnhancedHistoryContext(
@@ -321,60 +558,105 @@ class GeminiService(private val context: Context) {
         }.trimEnd()
     }
 
+    /**
+     * Cuts [text] after [maxWords] words. Scans once and only copies when it has to cut.
+     */
     private fun limitWords(text: String, maxWords: Int): String {
-        val words = text.split("\\s+".toRegex())
-        return if (words.size <= maxWords) {
-            text
-        } else {
-            words.take(maxWords).joinToString(" ") + "..."
+        var words = 0
+        var inWord = false
+        for (i in text.indices) {
+            if (text[i].isWhitespace()) {
+                inWord = false
+            } else if (!inWord) {
+                inWord = true
+                if (++words > maxWords) {
+                    return text.substring(0, i).trimEnd() + "..."
+                }
+            }
         }
+        return text
     }
 
-    fun shutdown() {
-        scope.cancel()
+    /**
+     * Like [analyzeConversation], but cancelled when [owner] is destroyed so a closed screen
+     * neither keeps the request running nor receives the callback. Call on the main thread.
+     */
+    fun analyzeConversation(
+        conversationId: String,
+        owner: LifecycleOwner,
+        callback: ResponseCallback
+    ): Job = analyzeConversation(conversationId, callback).also { cancelWhenDestroyed(it, owner) }
+
+    private fun cancelWhenDestroyed(job: Job, owner: LifecycleOwner) {
+        val lifecycle = owner.lifecycle
+        if (lifecycle.currentState == Lifecycle.State.DESTROYED) {
+            job.cancel()
+            return
+        }
+        val observer = LifecycleEventObserver { _, event ->
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                job.cancel()
+            }
+        }
+        lifecycle.addObserver(observer)
+        job.invokeOnCompletion { mainHandler.post { lifecycle.removeObserver(observer) } }
     }
 
+    /**
+     * Analyzes the conversation and stores the result in conversation_analysis. The stored
+     * analysis is reused while no messages were added; otherwise only its summary and the new
+     * messages are sent, so the request grows with new content rather than total history.
+     * [ResponseCallback.onComplete] receives the full analysis text.
+     */
     fun analyzeConversation(
         conversationId: String,
         callback: ResponseCallback
-    ) = scope.launch {
+    ): Job = scope.launch {
         try {
+            val analysisDao = database.conversationAnalysisDao()
+            val previous = analysisDao.getForConversation(conversationId)
+            val newMessages = database.getConversationHistoryDao().getHistoryForConversationAfterSync(
+                conversationId, previous?.lastHistoryId ?: 0, MAX_ANALYSIS_MESSAGES)
+
+            if (newMessages.isEmpty()) {
+                val text = previous?.rawText ?: "No conversation history to analyze."
+                withContext(Dispatchers.Main) {
+                    callback.onComplete(text)
+                }
+                return@launch
+            }
+
             ensureInitialized()
             val model = generativeModel ?: throw IllegalStateException("Gemini model not initialized")
-            
-            val history = database.getConversationHistoryDao().getHistoryForConversationSync(conversationId)
-            
-            if (history.isEmpty()) {
-                callback.onComplete("No conversation history to analyze.")
-                return@launch
+
+            val context = buildHistoryContext(newMessages)
+            val previousSummary = previous?.summary ?: previous?.rawText
+            val prompt = if (previousSummary == null) {
+                ANALYSIS_PROMPT.replace("{context}", context)
+            } else {
+                INCREMENTAL_ANALYSIS_PROMPT
+                    .replace("{summary}", previousSummary)
+                    .replace("{context}", context)
             }
-            
-            val context = buildHistoryContext(history)
-            val prompt = ANALYSIS_PROMPT.replace("{context}", context)
-            
+            Log.d(TAG, "Analyzing ${newMessages.size} new messages" +
+                if (previousSummary != null) " on top of the previous summary" else "")
+
             val response = withContext(Dispatchers.IO) {
                 model.generateContent(prompt)
             }
-            
-            val analysis = response.text ?: "Unable to generate analysis."
-            
-            val latestHistoryEntry = history.maxByOrNull { it.timestamp }
-            if (latestHistoryEntry != null) {
-                withContext(Dispatchers.IO) {
-                    database.withTransaction {
-                        val updatedHistory = latestHistoryEntry.copy(
-                            analysis = analysis,
-                            analysisTimestamp = System.currentTimeMillis()
-                        )
-                        database.conversationHistoryDao().update(updatedHistory)
-                    }
-                }
-            }
-            
+
+            val analysis = response.text ?: throw IllegalStateException("Empty analysis from Gemini")
+
+            // newMessages is newest first
+            analysisDao.upsert(ConversationAnalysisParser.parse(
+                conversationId, analysis, newMessages.first().id, System.currentTimeMillis()))
+
             withContext(Dispatchers.Main) {
                 callback.onComplete(analysis)
             }
 
+        } catch (e: CancellationException) {
+            throw e
         } catch (e: Exception) {
             Log.e(TAG, "Error analyzing conversation", e)
             withContext(Dispatchers.Main) {
@@ -0,0 +1,17 @@
+package com.example.whatsuit.service
+
+import kotlinx.coroutines.Job
+
+/**
+ * Produces auto-reply text for a stored notification. [GeminiService] is the production
+ * implementation; the notification load test substitutes a stub with a fixed latency.
+ */
+interface ReplyGenerator {
+    suspend fun initialize(): Boolean
+
+    fun generateReply(
+        notificationId: Long,
+        message: String,
+        callback: GeminiService.ResponseCallback
+    ): Job
+}
@@ -3,16 +3,39 @@ package com.example.whatsuit.util;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.net.Uri;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 import androidx.room.Room;
+import androidx.room.RoomDatabase;
 import com.example.whatsuit.data.*;
+import com.example.whatsuit.metrics.LatencyHistogram;
+import com.example.whatsuit.metrics.Metrics;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -20,19 +43,75 @@ import java.util.zip.ZipOutputStream;
 /**
  * Manager class for handling backup and restore operations.
  * Backs up all application data including database, SharedPreferences, and media files.
+ *
+ * Backups are either full dumps or incremental. An incremental backup only contains rows
+ * past the high-water mark recorded by the previous backup (ids/timestamps per table) and
+ * media files whose content hash changed, and is restored by applying a full backup
+ * followed by its chain of increments.
  */
 public class BackupRestoreManager {
     private static final String TAG = "BackupRestoreManager";
-    private static final String BACKUP_VERSION = "1.0";
+    private static final String BACKUP_VERSION = "1.4";
+    // 1.0 is always JSON; 1.1 added incremental backups, 1.2 the binary format, 1.3 one
+    // archive entry per table and 1.4 the SQLite snapshot format
+    private static final Set<String> SUPPORTED_BACKUP_VERSIONS =
+            new HashSet<>(Arrays.asList("1.0", "1.1", "1.2", "1.3", BACKUP_VERSION));
+    private static final String BACKUP_TYPE_FULL = "full";
+    private static final String BACKUP_TYPE_INCREMENTAL = "incremental";
     private static final String BACKUP_METADATA_FILE = "backup_metadata.json";
     private static final String DATABASE_BACKUP_FILE = "database_backup.json";
+    private static final String DATABASE_BACKUP_BINARY_FILE = "database_backup.bin";
     private static final String PREFERENCES_BACKUP_FILE = "preferences_backup.json";
     private static final String MEDIA_FOLDER = "media/";
+    private static final String TABLES_FOLDER = "tables/";
+    private static final String SNAPSHOT_DATABASE_FILE = "backup_snapshot.db";
+    // Archive entry holding the SQLite file in SNAPSHOT format
+    private static final String DATABASE_SNAPSHOT_ENTRY = "database/" + AppDatabase.DATABASE_NAME + ".db";
+    // Readers on the WAL snapshot run concurrently; SQLite's connection pool caps useful parallelism
+    private static final int EXPORT_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Local record of the last backup written, used as the base for the next increment
+    private static final String BACKUP_MANIFEST_FILE = "backup_manifest.json";
+    private static final int DELETE_BATCH_SIZE = 500;
+    // Rows held in memory per large table while it is exported
+    private static final int EXPORT_PAGE_SIZE = 500;
+    // Already-compressed media is stored as-is; deflating it again only costs CPU
+    private static final Set<String> STORED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "mp4", "3gp", "webm", "mkv",
+            "mp3", "m4a", "aac", "ogg", "opus", "zip"));
 
     private final Context context;
-    private final AppDatabase database;
+    // Replaced after a snapshot restore swaps the database file
+    private volatile AppDatabase database;
     private final Gson gson;
 
+    /**
+     * Encoding used for the database section of a backup. Metadata and preferences are
+     * always JSON since they are small. SNAPSHOT stores a copy of the SQLite file itself,
+     * which is the fastest option for very large databases but is always a full backup.
+     */
+    public enum BackupFormat {
+        JSON("json", ".json"),
+        BINARY("binary", ".bin"),
+        SNAPSHOT("snapshot", ".db");
+
+        final String id;
+        final String extension;
+
+        BackupFormat(String id, String extension) {
+            this.id = id;
+            this.extension = extension;
+        }
+
+        static BackupFormat fromId(String id) {
+            for (BackupFormat format : values()) {
+                if (format.id.equals(id)) {
+                    return format;
+                }
+            }
+            return JSON;
+        }
+    }
+
     public interface BackupRestoreCallback {
         void onProgress(String message, int progress);
         void onSuccess(String message);
@@ -45,6 +124,8 @@ public class BackupRestoreManager {
         this.gson = new GsonBuilder()
                 .setPrettyPrinting()
                 .setDateFormat("yyyy-MM-dd HH:mm:ss")
+                // Archive payloads as base64 rather than arrays of numbers
+                .registerTypeAdapter(byte[].class, new Base64TypeAdapter().nullSafe())
                 .create();
     }
 
@@ -52,6 +133,30 @@ public class BackupRestoreManager {
      * Creates a backup of all application data and saves it to the specified URI
      */
     public void createBackup(Uri destinationUri, BackupRestoreCallback callback) {
+        createBackup(destinationUri, BackupFormat.JSON, callback);
+    }
+
+    /**
+     * Creates a backup of all application data using the given database encoding
+     */
+    public void createBackup(Uri destinationUri, BackupFormat format, BackupRestoreCallback callback) {
+        runBackup(destinationUri, false, format, callback);
+    }
+
+    /**
+     * Creates an incremental backup containing only rows and media changed since the last
+     * backup made on this device. Falls back to a full backup when there is no previous one.
+     */
+    public void createIncrementalBackup(Uri destinationUri, BackupRestoreCallback callback) {
+        createIncrementalBackup(destinationUri, BackupFormat.JSON, callback);
+    }
+
+    public void createIncrementalBackup(Uri destinationUri, BackupFormat format, BackupRestoreCallback callback) {
+        runBackup(destinationUri, true, format, callback);
+    }
+
+    private void runBackup(Uri destinationUri, boolean incremental, BackupFormat format,
+                           BackupRestoreCallback callback) {
         new Thread(() -> {
             try {
                 callback.onProgress("Starting backup...", 0);
@@ -63,34 +168,56 @@ public class BackupRestoreManager {
                 }
                 tempDir.mkdirs();
 
-                // Step 1: Create backup metadata
-                callback.onProgress("Creating backup metadata...", 10);
-                BackupMetadata metadata = createBackupMetadata();
-                saveJsonToFile(metadata, new File(tempDir, BACKUP_METADATA_FILE));
+                BackupManifest previous = incremental && format != BackupFormat.SNAPSHOT ? loadManifest() : null;
+                if (incremental && format == BackupFormat.SNAPSHOT) {
+                    Log.d(TAG, "Snapshot backups are always full");
+                } else if (incremental && previous == null) {
+                    Log.d(TAG, "No previous backup manifest, creating full backup instead");
+                    callback.onProgress("No previous backup found, creating full backup...", 5);
+                }
 
-                // Step 2: Backup database
-                callback.onProgress("Backing up database...", 20);
-                DatabaseBackup databaseBackup = createDatabaseBackup();
-                saveJsonToFile(databaseBackup, new File(tempDir, DATABASE_BACKUP_FILE));
+                // Step 1: Backup database
+                callback.onProgress("Backing up database...", 10);
+                long phaseStart = LatencyHistogram.start();
+                HighWaterMark highWaterMark = exportDatabase(tempDir, previous, format);
+                Metrics.BACKUP_DATABASE.recordSince(phaseStart);
 
-                // Step 3: Backup SharedPreferences
+                // Step 2: Backup SharedPreferences
                 callback.onProgress("Backing up preferences...", 40);
                 PreferencesBackup preferencesBackup = createPreferencesBackup();
                 saveJsonToFile(preferencesBackup, new File(tempDir, PREFERENCES_BACKUP_FILE));
 
-                // Step 4: Copy media files
-                callback.onProgress("Backing up media files...", 60);
-                copyMediaFiles(tempDir);
+                // Step 3: Find new and changed media files; they are streamed into the archive in step 5
+                callback.onProgress("Scanning media files...", 60);
+                phaseStart = LatencyHistogram.start();
+                Map<String, MediaFileState> mediaState = scanMediaFiles(previous != null ? previous.media : null);
+                List<String> changedMedia = new ArrayList<>();
+                List<String> deletedMedia = new ArrayList<>();
+                diffMedia(previous != null ? previous.media : null, mediaState, changedMedia, deletedMedia);
+                Metrics.BACKUP_MEDIA_SCAN.recordSince(phaseStart);
+
+                // Step 4: Create backup metadata
+                callback.onProgress("Creating backup metadata...", 70);
+                BackupMetadata metadata = createBackupMetadata(previous, highWaterMark, mediaState, deletedMedia);
+                metadata.format = format.id;
+                metadata.schemaVersion = AppDatabase.DATABASE_VERSION;
+                saveJsonToFile(metadata, new File(tempDir, BACKUP_METADATA_FILE));
 
                 // Step 5: Create ZIP file
                 callback.onProgress("Creating backup archive...", 80);
-                createZipFile(tempDir, destinationUri);
+                phaseStart = LatencyHistogram.start();
+                createZipFile(tempDir, changedMedia, destinationUri);
+                Metrics.BACKUP_ARCHIVE.recordSince(phaseStart);
 
                 // Cleanup
                 deleteDirectory(tempDir);
 
+                // Remember this backup as the base for the next increment
+                saveManifest(metadata.backupId, highWaterMark, mediaState);
+
                 callback.onProgress("Backup completed successfully!", 100);
-                callback.onSuccess("Backup created successfully at " + destinationUri.getLastPathSegment());
+                String kind = BACKUP_TYPE_INCREMENTAL.equals(metadata.backupType) ? "Incremental backup" : "Backup";
+                callback.onSuccess(kind + " created successfully at " + destinationUri.getLastPathSegment());
 
             } catch (Exception e) {
                 Log.e(TAG, "Backup failed", e);
@@ -103,6 +230,14 @@ public class BackupRestoreManager {
      * Restores application data from the specified backup ZIP file
      */
     public void restoreBackup(Uri backupUri, BackupRestoreCallback callback) {
+        restoreBackupChain(Collections.singletonList(backupUri), callback);
+    }
+
+    /**
+     * Restores a full backup followed by its chain of incremental backups. The archives may
+     * be passed in any order; they are sorted by following each increment's base backup id.
+     */
+    public void restoreBackupChain(List<Uri> backupUris, BackupRestoreCallback callback) {
         new Thread(() -> {
             try {
                 callback.onProgress("Starting restore...", 0);
@@ -114,25 +249,59 @@ public class BackupRestoreManager {
                 }
                 tempDir.mkdirs();
 
-                // Step 1: Extract ZIP file
+                // Step 1: Extract and validate every archive in the chain
                 callback.onProgress("Extracting backup archive...", 10);
-                extractZipFile(backupUri, tempDir);
+                long phaseStart = LatencyHistogram.start();
+                List<ExtractedBackup> extracted = new ArrayList<>();
+                for (int i = 0; i < backupUris.size(); i++) {
+                    File archiveDir = new File(tempDir, String.valueOf(i));
+                    archiveDir.mkdirs();
+                    extractZipFile(backupUris.get(i), archiveDir);
+                    BackupMetadata metadata = validateBackup(archiveDir);
+                    extracted.add(new ExtractedBackup(archiveDir, metadata));
+                }
+                Metrics.RESTORE_EXTRACT.recordSince(phaseStart);
 
-                // Step 2: Validate backup
+                // Step 2: Order the chain
                 callback.onProgress("Validating backup...", 20);
-                validateBackup(tempDir);
-
-                // Step 3: Restore database
-                callback.onProgress("Restoring database...", 40);
-                restoreDatabase(tempDir);
-
-                // Step 4: Restore SharedPreferences
-                callback.onProgress("Restoring preferences...", 60);
-                restorePreferences(tempDir);
+                List<ExtractedBackup> chain = orderBackupChain(extracted);
+
+                int step = 0;
+                for (ExtractedBackup backup : chain) {
+                    boolean incremental = BACKUP_TYPE_INCREMENTAL.equals(backup.metadata.backupType);
+                    int base = 30 + (60 * step) / chain.size();
+                    String label = chain.size() > 1 ? " (" + (step + 1) + "/" + chain.size() + ")" : "";
+
+                    // Step 3: Restore database
+                    callback.onProgress("Restoring database" + label + "...", base);
+                    phaseStart = LatencyHistogram.start();
+                    if (BackupFormat.fromId(backup.metadata.format) == BackupFormat.SNAPSHOT) {
+                        restoreSnapshot(backup.dir);
+                    } else {
+                        DatabaseBackup databaseBackup = loadDatabaseBackup(backup.dir, backup.metadata);
+                        if (incremental) {
+                            applyIncrementalDatabase(databaseBackup);
+                        } else {
+                            restoreDatabase(databaseBackup);
+                        }
+                    }
+                    Metrics.RESTORE_DATABASE.recordSince(phaseStart);
+
+                    // Step 4: Restore SharedPreferences
+                    callback.onProgress("Restoring preferences" + label + "...", base + 10 / chain.size());
+                    restorePreferences(backup.dir);
+
+                    // Step 5: Restore media files
+                    callback.onProgress("Restoring media files" + label + "...", base + 20 / chain.size());
+                    phaseStart = LatencyHistogram.start();
+                    restoreMediaFiles(backup.dir, incremental, backup.metadata);
+                    Metrics.RESTORE_MEDIA.recordSince(phaseStart);
+                    step++;
+                }
 
-                // Step 5: Restore media files
-                callback.onProgress("Restoring media files...", 80);
-                restoreMediaFiles(tempDir);
+                // Continue incremental backups from the restored state
+                ExtractedBackup last = chain.get(chain.size() - 1);
+                saveManifest(last.metadata.backupId, last.metadata.highWaterMark, scanMediaFiles(null));
 
                 // Cleanup
                 deleteDirectory(tempDir);
@@ -147,28 +316,211 @@ public class BackupRestoreManager {
         }).start();
     }
 
-    private BackupMetadata createBackupMetadata() {
+    private List<ExtractedBackup> orderBackupChain(List<ExtractedBackup> backups) throws Exception {
+        ExtractedBackup full = null;
+        Map<String, ExtractedBackup> byBaseId = new HashMap<>();
+        for (ExtractedBackup backup : backups) {
+            if (BACKUP_TYPE_INCREMENTAL.equals(backup.metadata.backupType)) {
+                byBaseId.put(backup.metadata.baseBackupId, backup);
+            } else if (full == null) {
+                full = backup;
+            } else {
+                throw new Exception("Invalid backup chain: more than one full backup selected");
+            }
+        }
+        if (full == null) {
+            throw new Exception("Invalid backup chain: incremental backups require their full base backup");
+        }
+
+        List<ExtractedBackup> chain = new ArrayList<>();
+        chain.add(full);
+        ExtractedBackup next = byBaseId.remove(full.metadata.backupId);
+        while (next != null) {
+            chain.add(next);
+            next = byBaseId.remove(next.metadata.backupId);
+        }
+        if (!byBaseId.isEmpty()) {
+            throw new Exception("Invalid backup chain: " + byBaseId.size() + " incremental backup(s) do not follow the selected base");
+        }
+        return chain;
+    }
+
+    private BackupMetadata createBackupMetadata(BackupManifest previous, HighWaterMark highWaterMark,
+                                                Map<String, MediaFileState> mediaState,
+                                                List<String> deletedMedia) {
         BackupMetadata metadata = new BackupMetadata();
         metadata.version = BACKUP_VERSION;
         metadata.timestamp = System.currentTimeMillis();
         metadata.appVersion = getAppVersion();
         metadata.deviceInfo = getDeviceInfo();
+        metadata.backupId = UUID.randomUUID().toString();
+        metadata.backupType = previous != null ? BACKUP_TYPE_INCREMENTAL : BACKUP_TYPE_FULL;
+        metadata.baseBackupId = previous != null ? previous.backupId : null;
+        metadata.highWaterMark = highWaterMark;
+        metadata.mediaHashes = new HashMap<>();
+        for (Map.Entry<String, MediaFileState> entry : mediaState.entrySet()) {
+            metadata.mediaHashes.put(entry.getKey(), entry.getValue().sha256);
+        }
+        metadata.deletedMedia = deletedMedia;
         return metadata;
     }
 
-    private DatabaseBackup createDatabaseBackup() {
-        DatabaseBackup backup = new DatabaseBackup();
+    /**
+     * Exports every table to its own file under tables/. The export reads from a VACUUM INTO
+     * copy of the database, made on a separate read-only connection: in WAL mode that is just
+     * another reader, so Room's writer keeps ingesting notifications during the copy, and all
+     * tables come from one consistent point in time. The tables are then queried and
+     * serialized in parallel, the large ones a page at a time (see {@link PagedTable}). In SNAPSHOT format the copy itself becomes the archive entry.
+     * Returns the high-water mark of the exported data.
+     */
+    private HighWaterMark exportDatabase(File tempDir, BackupManifest previous, BackupFormat format) throws Exception {
+        File snapshotFile = new File(context.getCacheDir(), SNAPSHOT_DATABASE_FILE);
+        deleteDatabaseFiles(snapshotFile);
+        // Make sure Room has created and migrated the file before a second connection opens it
+        database.getOpenHelper().getWritableDatabase();
+        // VACUUM INTO reads committed WAL frames too, so the copy needs no checkpoint first
+        try (SQLiteDatabase reader = SQLiteDatabase.openDatabase(
+                context.getDatabasePath(AppDatabase.DATABASE_NAME).getPath(), null, SQLiteDatabase.OPEN_READONLY)) {
+            reader.execSQL("VACUUM INTO '" + snapshotFile.getAbsolutePath().replace("'", "''") + "'");
+        }
+
+        AppDatabase snapshot = Room.databaseBuilder(context, AppDatabase.class, snapshotFile.getAbsolutePath())
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .build();
+        if (format == BackupFormat.SNAPSHOT) {
+            HighWaterMark highWaterMark;
+            try {
+                highWaterMark = readHighWaterMark(snapshot);
+            } finally {
+                // Closing the last connection checkpoints and removes the snapshot's WAL
+                snapshot.close();
+            }
+            File entryFile = new File(tempDir, DATABASE_SNAPSHOT_ENTRY);
+            entryFile.getParentFile().mkdirs();
+            if (!snapshotFile.renameTo(entryFile)) {
+                copyFile(snapshotFile, entryFile);
+            }
+            deleteDatabaseFiles(snapshotFile);
+            return highWaterMark;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(EXPORT_THREADS);
+        try {
+            File tablesDir = new File(tempDir, TABLES_FOLDER);
+            tablesDir.mkdirs();
+
+            Map<String, Callable<Object>> tables = previous != null
+                    ? incrementalTableQueries(snapshot, previous.highWaterMark)
+                    : fullTableQueries(snapshot);
+            List<Future<?>> exports = new ArrayList<>();
+            for (Map.Entry<String, Callable<Object>> table : tables.entrySet()) {
+                File tableFile = new File(tablesDir, table.getKey() + format.extension);
+                Callable<Object> query = table.getValue();
+                exports.add(executor.submit(() -> {
+                    saveTable(query.call(), tableFile, format);
+                    return null;
+                }));
+            }
+            awaitAll(exports);
+
+            return readHighWaterMark(snapshot);
+        } finally {
+            executor.shutdownNow();
+            snapshot.close();
+            deleteDatabaseFiles(snapshotFile);
+        }
+    }
+
+    private static Map<String, Callable<Object>> fullTableQueries(AppDatabase db) {
+        Map<String, Callable<Object>> tables = new LinkedHashMap<>();
+        tables.put("notifications", () -> notificationPages(db));
+        tables.put("conversationHistory", () -> new PagedTable<>(db.conversationHistoryDao().getCount(), 0,
+                (afterId, limit) -> db.conversationHistoryDao().getHistoryPage(afterId, limit),
+                ConversationHistory::getId));
+        tables.put("conversationReplyCounts", () -> db.conversationReplyCountDao().getAllReplyCountsSync());
+        tables.put("notificationArchive", () -> new PagedTable<>(db.notificationArchiveDao().getCount(), 0,
+                (afterId, limit) -> db.notificationArchiveDao().getArchivePage(afterId, limit),
+                NotificationArchiveEntity::getId));
+        tables.put("messages", () -> messagePages(db, 0));
+        addConfigurationTables(db, tables);
+        return tables;
+    }
+
+    /**
+     * Exports only rows past the previous high-water mark. The small configuration tables are
+     * always exported whole, and the id lists of the large tables are included so that rows
+     * deleted since the base backup can be pruned on restore. Notifications are exported whole
+     * as well: there is one row per conversation, and flag changes such as toggling auto-reply
+     * leave its timestamp untouched.
+     */
+    private static Map<String, Callable<Object>> incrementalTableQueries(AppDatabase db, HighWaterMark since) {
+        Map<String, Callable<Object>> tables = new LinkedHashMap<>();
+        tables.put("notifications", () -> notificationPages(db));
+        tables.put("notificationIds", () -> db.notificationDao().getAllIds());
+        tables.put("conversationHistory", () -> new PagedTable<>(
+                db.conversationHistoryDao().countHistoryChangedSince(since.historyTimestamp, since.historyId), 0,
+                (afterId, limit) -> db.conversationHistoryDao()
+                        .getHistoryChangedSincePage(since.historyTimestamp, since.historyId, afterId, limit),
+                ConversationHistory::getId));
+        tables.put("conversationHistoryIds", () -> db.conversationHistoryDao().getAllIds());
+        tables.put("conversationReplyCounts", () -> db.conversationReplyCountDao()
+                .getReplyCountsChangedSince(since.replyCountTimestamp));
+        tables.put("notificationArchive", () -> new PagedTable<>(
+                db.notificationArchiveDao().countArchivedSince(since.archiveTimestamp), 0,
+                (afterId, limit) -> db.notificationArchiveDao()
+                        .getArchivedSincePage(since.archiveTimestamp, afterId, limit),
+                NotificationArchiveEntity::getId));
+        tables.put("messages", () -> messagePages(db, since.messageId));
+        tables.put("messageIds", () -> db.messageDao().getAllIds());
+        addConfigurationTables(db, tables);
+        return tables;
+    }
 
-        // Export all entities
-        backup.notifications = database.notificationDao().getAllNotificationsSync();
-        backup.geminiConfigs = database.geminiDao().getAllConfigsSync();
-        backup.conversationHistory = database.conversationHistoryDao().getAllConversationsSync();
-        backup.promptTemplates = database.geminiDao().getAllPromptTemplatesSync();
-        backup.appSettings = database.appSettingDao().getAllSettingsSync();
-        backup.keywordActions = database.keywordActionDao().getAllKeywordActionsSync();
-        backup.conversationReplyCounts = database.conversationReplyCountDao().getAllReplyCountsSync();
+    private static PagedTable<NotificationEntity> notificationPages(AppDatabase db) {
+        return new PagedTable<>(db.notificationDao().getCount(), 0,
+                (afterId, limit) -> db.notificationDao().getNotificationsPage(afterId, limit),
+                NotificationEntity::getId);
+    }
 
-        return backup;
+    private static PagedTable<MessageEntity> messagePages(AppDatabase db, long sinceId) {
+        return new PagedTable<>(db.messageDao().countMessagesAfterId(sinceId), sinceId,
+                (afterId, limit) -> db.messageDao().getMessagesPage(afterId, limit),
+                MessageEntity::getId);
+    }
+
+    private static void addConfigurationTables(AppDatabase db, Map<String, Callable<Object>> tables) {
+        tables.put("geminiConfigs", () -> db.geminiDao().getAllConfigsSync());
+        tables.put("promptTemplates", () -> db.geminiDao().getAllPromptTemplatesSync());
+        tables.put("appSettings", () -> db.appSettingDao().getAllSettingsSync());
+        tables.put("keywordActions", () -> db.keywordActionDao().getAllKeywordActionsSync());
+    }
+
+    private static HighWaterMark readHighWaterMark(AppDatabase db) {
+        HighWaterMark highWaterMark = new HighWaterMark();
+        highWaterMark.historyTimestamp = db.conversationHistoryDao().getMaxTimestamp();
+        highWaterMark.historyId = db.conversationHistoryDao().getMaxId();
+        highWaterMark.replyCountTimestamp = db.conversationReplyCountDao().getMaxLastReplyTimestamp();
+        highWaterMark.archiveTimestamp = db.notificationArchiveDao().getMaxArchivedAt();
+        highWaterMark.messageId = db.messageDao().getMaxId();
+        return highWaterMark;
+    }
+
+    private static void awaitAll(List<? extends Future<?>> futures) throws Exception {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private static void deleteDatabaseFiles(File databaseFile) {
+        databaseFile.delete();
+        new File(databaseFile.getPath() + "-wal").delete();
+        new File(databaseFile.getPath() + "-shm").delete();
+        new File(databaseFile.getPath() + "-journal").delete();
     }
 
     private PreferencesBackup createPreferencesBackup() {
@@ -185,16 +537,201 @@ public class BackupRestoreManager {
         return backup;
     }
 
-    private void copyMediaFiles(File tempDir) throws IOException {
+    /**
+     * Scans the media directory. Hashes are only recomputed for files whose size or
+     * modification time differs from the previous manifest.
+     */
+    private Map<String, MediaFileState> scanMediaFiles(Map<String, MediaFileState> previous) throws IOException {
+        Map<String, MediaFileState> result = new HashMap<>();
         File mediaDir = new File(context.getFilesDir(), "media");
-        if (!mediaDir.exists()) {
-            return; // No media files to backup
+        if (mediaDir.exists()) {
+            scanMediaDirectory(mediaDir, "", previous, result);
+        }
+        return result;
+    }
+
+    private void scanMediaDirectory(File dir, String prefix, Map<String, MediaFileState> previous,
+                                    Map<String, MediaFileState> result) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        for (File file : files) {
+            String relativePath = prefix + file.getName();
+            if (file.isDirectory()) {
+                scanMediaDirectory(file, relativePath + "/", previous, result);
+                continue;
+            }
+            MediaFileState known = previous != null ? previous.get(relativePath) : null;
+            if (known != null && known.size == file.length() && known.lastModified == file.lastModified()) {
+                result.put(relativePath, known);
+            } else {
+                MediaFileState state = new MediaFileState();
+                state.size = file.length();
+                state.lastModified = file.lastModified();
+                state.sha256 = sha256(file);
+                result.put(relativePath, state);
+            }
+        }
+    }
+
+    private static void diffMedia(Map<String, MediaFileState> previous, Map<String, MediaFileState> current,
+                                  List<String> changed, List<String> deleted) {
+        for (Map.Entry<String, MediaFileState> entry : current.entrySet()) {
+            MediaFileState known = previous != null ? previous.get(entry.getKey()) : null;
+            if (known == null || !known.sha256.equals(entry.getValue().sha256)) {
+                changed.add(entry.getKey());
+            }
+        }
+        if (previous != null) {
+            for (String path : previous.keySet()) {
+                if (!current.containsKey(path)) {
+                    deleted.add(path);
+                }
+            }
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+        try (FileInputStream fis = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = fis.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format(Locale.US, "%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private BackupManifest loadManifest() {
+        File manifestFile = new File(context.getFilesDir(), BACKUP_MANIFEST_FILE);
+        if (!manifestFile.exists()) {
+            return null;
+        }
+        try {
+            BackupManifest manifest = loadJsonFromFile(manifestFile, BackupManifest.class);
+            if (manifest == null || manifest.backupId == null || manifest.highWaterMark == null) {
+                return null;
+            }
+            if (manifest.media == null) {
+                manifest.media = new HashMap<>();
+            }
+            return manifest;
+        } catch (Exception e) {
+            Log.w(TAG, "Ignoring unreadable backup manifest", e);
+            return null;
+        }
+    }
+
+    private void saveManifest(String backupId, HighWaterMark highWaterMark,
+                              Map<String, MediaFileState> media) {
+        if (backupId == null || highWaterMark == null) {
+            // Legacy backups carry no high-water mark; the next backup must be full
+            new File(context.getFilesDir(), BACKUP_MANIFEST_FILE).delete();
+            return;
+        }
+        BackupManifest manifest = new BackupManifest();
+        manifest.backupId = backupId;
+        manifest.highWaterMark = highWaterMark;
+        manifest.media = media;
+        try {
+            saveJsonToFile(manifest, new File(context.getFilesDir(), BACKUP_MANIFEST_FILE));
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to save backup manifest", e);
+        }
+    }
+
+    private void saveTable(Object rows, File file, BackupFormat format) throws IOException {
+        if (format == BackupFormat.BINARY) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                if (rows instanceof PagedTable) {
+                    PagedTable<?> table = (PagedTable<?>) rows;
+                    BinaryBackupCodec.writeRows(table, table.size, gson, out);
+                } else {
+                    BinaryBackupCodec.writeRows((List<?>) rows, gson, out);
+                }
+            }
+        } else if (rows instanceof PagedTable) {
+            // Same JSON array as saveJsonToFile, written one row at a time
+            try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(new FileWriter(file)))) {
+                writer.beginArray();
+                for (Object row : (PagedTable<?>) rows) {
+                    gson.toJson(row, row.getClass(), writer);
+                }
+                writer.endArray();
+            }
+        } else {
+            saveJsonToFile(rows, file);
+        }
+    }
+
+    // Reads a table file straight into the list type of its DatabaseBackup field, without a tree
+    private Object loadTable(File file, Field field) throws IOException {
+        if (file.getName().endsWith(BackupFormat.BINARY.extension)) {
+            Type rowType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                return BinaryBackupCodec.readRows(in, gson, rowType);
+            }
+        }
+        try (Reader reader = new BufferedReader(new FileReader(file))) {
+            return gson.fromJson(reader, field.getGenericType());
+        }
+    }
+
+    private DatabaseBackup loadDatabaseBackup(File tempDir, BackupMetadata metadata) throws Exception {
+        File tablesDir = new File(tempDir, "backup_temp/" + TABLES_FOLDER);
+        if (tablesDir.isDirectory()) {
+            // Parse the table entries in parallel and bind them to DatabaseBackup by name
+            File[] tableFiles = tablesDir.listFiles();
+            DatabaseBackup backup = new DatabaseBackup();
+            ExecutorService executor = Executors.newFixedThreadPool(EXPORT_THREADS);
+            try {
+                Map<Field, Future<Object>> tables = new LinkedHashMap<>();
+                for (File tableFile : tableFiles != null ? tableFiles : new File[0]) {
+                    String name = tableFile.getName().substring(0, tableFile.getName().lastIndexOf('.'));
+                    Field field = backupField(name);
+                    if (field != null) {
+                        tables.put(field, executor.submit(() -> loadTable(tableFile, field)));
+                    }
+                }
+                awaitAll(new ArrayList<>(tables.values()));
+                for (Map.Entry<Field, Future<Object>> table : tables.entrySet()) {
+                    table.getKey().set(backup, table.getValue().get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            return backup;
         }
 
-        File backupMediaDir = new File(tempDir, MEDIA_FOLDER);
-        backupMediaDir.mkdirs();
+        // Single-file layout used before 1.3
+        if (BackupFormat.fromId(metadata.format) == BackupFormat.BINARY) {
+            File databaseFile = new File(tempDir, "backup_temp/" + DATABASE_BACKUP_BINARY_FILE);
+            try (InputStream in = new BufferedInputStream(new FileInputStream(databaseFile))) {
+                return gson.fromJson(BinaryBackupCodec.read(in), DatabaseBackup.class);
+            }
+        }
+        File databaseFile = new File(tempDir, "backup_temp/" + DATABASE_BACKUP_FILE);
+        return loadJsonFromFile(databaseFile, DatabaseBackup.class);
+    }
 
-        copyDirectory(mediaDir, backupMediaDir);
+    // Tables written by a newer version are ignored, as Gson ignored unknown names before
+    private static Field backupField(String name) {
+        try {
+            return DatabaseBackup.class.getField(name);
+        } catch (NoSuchFieldException e) {
+            Log.w(TAG, "Skipping unknown backup table " + name);
+            return null;
+        }
     }
 
     private void saveJsonToFile(Object object, File file) throws IOException {
@@ -215,37 +752,94 @@ public class BackupRestoreManager {
         }
     }
 
-    private void createZipFile(File sourceDir, Uri destinationUri) throws IOException {
+    /**
+     * Writes the backup files from the temp directory (metadata first) and then streams the
+     * given media files straight from files/media into the archive, without a temp copy.
+     */
+    private void createZipFile(File sourceDir, List<String> mediaPaths, Uri destinationUri) throws IOException {
         try (OutputStream outputStream = context.getContentResolver().openOutputStream(destinationUri);
-             ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
+             ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(outputStream))) {
+
+            // Not closed separately: closing it would close the zip stream
+            WritableByteChannel zipChannel = Channels.newChannel(zipOut);
+            String baseName = sourceDir.getName();
+
+            zipDirectory(sourceDir, baseName, zipOut, zipChannel);
 
-            zipDirectory(sourceDir, sourceDir.getName(), zipOut);
+            File mediaDir = new File(context.getFilesDir(), "media");
+            for (String relativePath : mediaPaths) {
+                writeZipEntry(new File(mediaDir, relativePath), baseName + "/" + MEDIA_FOLDER + relativePath,
+                        zipOut, zipChannel);
+            }
         }
     }
 
-    private void zipDirectory(File dir, String baseName, ZipOutputStream zipOut) throws IOException {
+    private void zipDirectory(File dir, String baseName, ZipOutputStream zipOut,
+                              WritableByteChannel zipChannel) throws IOException {
         File[] files = dir.listFiles();
         if (files == null) return;
 
+        Arrays.sort(files, (a, b) -> Boolean.compare(
+                !BACKUP_METADATA_FILE.equals(a.getName()), !BACKUP_METADATA_FILE.equals(b.getName())));
         for (File file : files) {
             if (file.isDirectory()) {
-                zipDirectory(file, baseName + "/" + file.getName(), zipOut);
+                zipDirectory(file, baseName + "/" + file.getName(), zipOut, zipChannel);
             } else {
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    ZipEntry zipEntry = new ZipEntry(baseName + "/" + file.getName());
-                    zipOut.putNextEntry(zipEntry);
-
-                    byte[] buffer = new byte[8192];
-                    int length;
-                    while ((length = fis.read(buffer)) > 0) {
-                        zipOut.write(buffer, 0, length);
-                    }
-                    zipOut.closeEntry();
-                }
+                writeZipEntry(file, baseName + "/" + file.getName(), zipOut, zipChannel);
             }
         }
     }
 
+    private void writeZipEntry(File file, String entryName, ZipOutputStream zipOut,
+                               WritableByteChannel zipChannel) throws IOException {
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            long size = channel.size();
+            ZipEntry zipEntry = new ZipEntry(entryName);
+            if (STORED_EXTENSIONS.contains(extensionOf(file.getName()))) {
+                // STORED entries need size and CRC up front
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(size);
+                zipEntry.setCompressedSize(size);
+                zipEntry.setCrc(crc32(channel));
+            }
+            zipOut.putNextEntry(zipEntry);
+            transferAll(channel, size, zipChannel);
+            zipOut.closeEntry();
+        }
+    }
+
+    private static String extensionOf(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.US);
+    }
+
+    private static long crc32(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.clear();
+            position += read;
+        }
+        return crc.getValue();
+    }
+
+    private static long crc32(File file) throws IOException {
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            return crc32(channel);
+        }
+    }
+
+    private static void transferAll(FileChannel source, long size, WritableByteChannel target) throws IOException {
+        long position = 0;
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
     private void extractZipFile(Uri zipUri, File destDir) throws IOException {
         try (InputStream inputStream = context.getContentResolver().openInputStream(zipUri);
              ZipInputStream zipIn = new ZipInputStream(inputStream)) {
@@ -271,16 +865,20 @@ public class BackupRestoreManager {
         }
     }
 
-    private void validateBackup(File tempDir) throws Exception {
+    private BackupMetadata validateBackup(File tempDir) throws Exception {
         // Check if required files exist
         File metadataFile = new File(tempDir, "backup_temp/" + BACKUP_METADATA_FILE);
         File databaseFile = new File(tempDir, "backup_temp/" + DATABASE_BACKUP_FILE);
+        File binaryDatabaseFile = new File(tempDir, "backup_temp/" + DATABASE_BACKUP_BINARY_FILE);
+        File tablesDir = new File(tempDir, "backup_temp/" + TABLES_FOLDER);
+        File snapshotFile = new File(tempDir, "backup_temp/" + DATABASE_SNAPSHOT_ENTRY);
         File preferencesFile = new File(tempDir, "backup_temp/" + PREFERENCES_BACKUP_FILE);
 
         if (!metadataFile.exists()) {
             throw new Exception("Invalid backup: Missing metadata file");
         }
-        if (!databaseFile.exists()) {
+        if (!databaseFile.exists() && !binaryDatabaseFile.exists() && !tablesDir.isDirectory()
+                && !snapshotFile.exists()) {
             throw new Exception("Invalid backup: Missing database backup");
         }
         if (!preferencesFile.exists()) {
@@ -289,15 +887,79 @@ public class BackupRestoreManager {
 
         // Validate metadata
         BackupMetadata metadata = loadJsonFromFile(metadataFile, BackupMetadata.class);
-        if (!BACKUP_VERSION.equals(metadata.version)) {
+        if (!SUPPORTED_BACKUP_VERSIONS.contains(metadata.version)) {
             throw new Exception("Incompatible backup version: " + metadata.version);
         }
+        if (metadata.format == null) {
+            // Backups before 1.2 carry no format field and are always JSON
+            metadata.format = BackupFormat.JSON.id;
+        }
+        BackupFormat format = BackupFormat.fromId(metadata.format);
+        if (format == BackupFormat.SNAPSHOT) {
+            if (!snapshotFile.exists()) {
+                throw new Exception("Invalid backup: Missing database snapshot");
+            }
+            validateSnapshot(snapshotFile);
+        } else {
+            File expected = format == BackupFormat.BINARY ? binaryDatabaseFile : databaseFile;
+            if (!tablesDir.isDirectory() && !expected.exists()) {
+                throw new Exception("Invalid backup: Missing " + metadata.format + " database backup");
+            }
+        }
+        if (BACKUP_TYPE_INCREMENTAL.equals(metadata.backupType) && metadata.baseBackupId == null) {
+            throw new Exception("Invalid backup: Incremental backup without base backup id");
+        }
+        return metadata;
     }
 
-    private void restoreDatabase(File tempDir) throws Exception {
-        File databaseFile = new File(tempDir, "backup_temp/" + DATABASE_BACKUP_FILE);
-        DatabaseBackup backup = loadJsonFromFile(databaseFile, DatabaseBackup.class);
+    /**
+     * Checks that a snapshot is an intact SQLite file whose schema Room can open. Older schema
+     * versions are accepted and upgraded by the regular migrations when Room reopens the file;
+     * a version without a migration path is refused, since Room would open it by wiping it.
+     */
+    private void validateSnapshot(File snapshotFile) throws Exception {
+        try (SQLiteDatabase snapshot = SQLiteDatabase.openDatabase(
+                snapshotFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE)) {
+            int version = snapshot.getVersion();
+            if (!AppDatabase.canMigrateFrom(version)) {
+                throw new Exception("Incompatible database schema version: " + version +
+                        " (app supports up to " + AppDatabase.DATABASE_VERSION + ")");
+            }
+            try (Cursor cursor = snapshot.rawQuery("PRAGMA quick_check", null)) {
+                if (!cursor.moveToFirst() || !"ok".equalsIgnoreCase(cursor.getString(0))) {
+                    throw new Exception("Invalid backup: Database snapshot is corrupt");
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the database file with the snapshot. The snapshot is staged next to the live
+     * file so the final rename is atomic, and Room is closed while the file is swapped.
+     * Other holders of the closed instance (the listener, the Gemini client, view models and
+     * workers) keep it until the process restarts, which the caller must do after success.
+     */
+    private void restoreSnapshot(File tempDir) throws IOException {
+        File snapshotFile = new File(tempDir, "backup_temp/" + DATABASE_SNAPSHOT_ENTRY);
+        File liveFile = context.getDatabasePath(AppDatabase.DATABASE_NAME);
+        File stagedFile = new File(liveFile.getPath() + ".restore");
+        stagedFile.delete();
+        if (!snapshotFile.renameTo(stagedFile)) {
+            copyFile(snapshotFile, stagedFile);
+        }
 
+        AppDatabase.closeDatabase();
+        new File(liveFile.getPath() + "-wal").delete();
+        new File(liveFile.getPath() + "-shm").delete();
+        new File(liveFile.getPath() + "-journal").delete();
+        if (!stagedFile.renameTo(liveFile)) {
+            stagedFile.delete();
+            throw new IOException("Failed to replace database file");
+        }
+        database = AppDatabase.getDatabase(context);
+    }
+
+    private void restoreDatabase(DatabaseBackup backup) {
         // Clear existing data
         database.clearAllTables();
 
@@ -323,6 +985,150 @@ public class BackupRestoreManager {
         if (backup.conversationReplyCounts != null && !backup.conversationReplyCounts.isEmpty()) {
             database.conversationReplyCountDao().insertAll(backup.conversationReplyCounts);
         }
+        if (backup.notificationArchive != null && !backup.notificationArchive.isEmpty()) {
+            database.notificationArchiveDao().insertAll(backup.notificationArchive);
+        }
+        if (backup.messages != null && !backup.messages.isEmpty()) {
+            database.messageDao().insertAll(backup.messages);
+        }
+    }
+
+    /**
+     * Applies an incremental backup on top of the current data. Rows are upserted rather than
+     * replaced so that notification updates do not cascade-delete their conversation history.
+     */
+    private void applyIncrementalDatabase(DatabaseBackup backup) {
+        database.runInTransaction(() -> {
+            if (backup.notifications != null && !backup.notifications.isEmpty()) {
+                database.notificationDao().upsertAll(backup.notifications);
+            }
+            if (backup.notificationIds != null) {
+                deleteInBatches(missingIds(database.notificationDao().getAllIds(), backup.notificationIds),
+                        ids -> database.notificationDao().deleteByIds(ids));
+            }
+            if (backup.conversationHistory != null && !backup.conversationHistory.isEmpty()) {
+                database.conversationHistoryDao().upsertAll(backup.conversationHistory);
+            }
+            if (backup.conversationHistoryIds != null) {
+                deleteInBatches(missingIds(database.conversationHistoryDao().getAllIds(), backup.conversationHistoryIds),
+                        ids -> database.conversationHistoryDao().deleteByIds(ids));
+            }
+            if (backup.conversationReplyCounts != null && !backup.conversationReplyCounts.isEmpty()) {
+                database.conversationReplyCountDao().insertAll(backup.conversationReplyCounts);
+            }
+            if (backup.notificationArchive != null && !backup.notificationArchive.isEmpty()) {
+                database.notificationArchiveDao().insertAll(backup.notificationArchive);
+            }
+            if (backup.messages != null && !backup.messages.isEmpty()) {
+                database.messageDao().upsertAll(backup.messages);
+            }
+            if (backup.messageIds != null) {
+                deleteInBatches(missingIds(database.messageDao().getAllIds(), backup.messageIds),
+                        ids -> database.messageDao().deleteByIds(ids));
+            }
+
+            // Small configuration tables are always exported whole
+            if (backup.geminiConfigs != null && !backup.geminiConfigs.isEmpty()) {
+                database.geminiDao().insertConfigs(backup.geminiConfigs);
+            }
+            if (backup.promptTemplates != null) {
+                database.geminiDao().deleteAllPromptTemplates();
+                if (!backup.promptTemplates.isEmpty()) {
+                    database.geminiDao().insertPromptTemplates(backup.promptTemplates);
+                }
+            }
+            if (backup.appSettings != null) {
+                database.appSettingDao().deleteAll();
+                if (!backup.appSettings.isEmpty()) {
+                    database.appSettingDao().insertAll(backup.appSettings);
+                }
+            }
+            if (backup.keywordActions != null) {
+                database.keywordActionDao().deleteAll();
+                if (!backup.keywordActions.isEmpty()) {
+                    database.keywordActionDao().insertAll(backup.keywordActions);
+                }
+            }
+        });
+    }
+
+    private static List<Long> missingIds(List<Long> currentIds, List<Long> keptIds) {
+        Set<Long> kept = new HashSet<>(keptIds);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : currentIds) {
+            if (!kept.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    private interface BatchDeleter {
+        void delete(List<Long> ids);
+    }
+
+    private interface PageQuery<T> {
+        List<T> after(long afterId, int limit);
+    }
+
+    /**
+     * A large table read in id order, EXPORT_PAGE_SIZE rows at a time, so the export holds one
+     * page rather than the whole table. Reads the backup snapshot, which has no other writers,
+     * so {@link #size} and the pages agree.
+     */
+    private static final class PagedTable<T> implements Iterable<T> {
+        final int size;
+        private final long startId;
+        private final PageQuery<T> query;
+        private final ToLongFunction<T> idOf;
+
+        PagedTable(int size, long startId, PageQuery<T> query, ToLongFunction<T> idOf) {
+            this.size = size;
+            this.startId = startId;
+            this.query = query;
+            this.idOf = idOf;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private List<T> page = Collections.emptyList();
+                private int index;
+                private long lastId = startId;
+                private boolean exhausted;
+
+                @Override
+                public boolean hasNext() {
+                    if (index < page.size()) {
+                        return true;
+                    }
+                    if (exhausted) {
+                        return false;
+                    }
+                    page = query.after(lastId, EXPORT_PAGE_SIZE);
+                    index = 0;
+                    exhausted = page.size() < EXPORT_PAGE_SIZE;
+                    return !page.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    T row = page.get(index++);
+                    lastId = idOf.applyAsLong(row);
+                    return row;
+                }
+            };
+        }
+    }
+
+    // Keeps each DELETE ... IN (...) below SQLite's bound-variable limit
+    private static void deleteInBatches(List<Long> ids, BatchDeleter deleter) {
+        for (int start = 0; start < ids.size(); start += DELETE_BATCH_SIZE) {
+            deleter.delete(ids.subList(start, Math.min(ids.size(), start + DELETE_BATCH_SIZE)));
+        }
     }
 
     private void restorePreferences(File tempDir) throws Exception {
@@ -372,51 +1178,92 @@ public class BackupRestoreManager {
         }
     }
 
-    private void restoreMediaFiles(File tempDir) throws IOException {
+    private void restoreMediaFiles(File tempDir, boolean incremental, BackupMetadata metadata) throws IOException {
         File backupMediaDir = new File(tempDir, "backup_temp/" + MEDIA_FOLDER);
-        if (!backupMediaDir.exists()) {
-            return; // No media files to restore
+        File mediaDir = new File(context.getFilesDir(), "media");
+
+        if (incremental) {
+            // Apply only the media changes recorded by this increment
+            if (metadata.deletedMedia != null) {
+                for (String relativePath : metadata.deletedMedia) {
+                    new File(mediaDir, relativePath).delete();
+                }
+            }
+            if (backupMediaDir.exists()) {
+                moveMediaFiles(backupMediaDir, mediaDir, "", metadata.mediaHashes, new HashSet<>());
+            }
+            return;
         }
 
-        File mediaDir = new File(context.getFilesDir(), "media");
-        if (mediaDir.exists()) {
-            deleteDirectory(mediaDir);
+        if (!backupMediaDir.exists()) {
+            return; // No media files to restore
         }
-        mediaDir.mkdirs();
 
-        copyDirectory(backupMediaDir, mediaDir);
+        Set<String> restored = new HashSet<>();
+        moveMediaFiles(backupMediaDir, mediaDir, "", metadata.mediaHashes, restored);
+        // Full restore: drop local files that are not part of the backup
+        deleteMediaNotIn(mediaDir, "", restored);
     }
 
-    private void copyDirectory(File sourceDir, File destDir) throws IOException {
-        if (!destDir.exists()) {
-            destDir.mkdirs();
-        }
-
+    /**
+     * Moves extracted media into place. The temp and media directories are both on internal
+     * storage, so this is a rename rather than a copy; files already identical are left alone.
+     */
+    private void moveMediaFiles(File sourceDir, File mediaDir, String prefix, Map<String, String> expectedHashes,
+                                Set<String> restored) throws IOException {
         File[] files = sourceDir.listFiles();
         if (files == null) return;
 
         for (File file : files) {
-            File destFile = new File(destDir, file.getName());
+            String relativePath = prefix + file.getName();
             if (file.isDirectory()) {
-                copyDirectory(file, destFile);
-            } else {
+                moveMediaFiles(file, mediaDir, relativePath + "/", expectedHashes, restored);
+                continue;
+            }
+            restored.add(relativePath);
+            File destFile = new File(mediaDir, relativePath);
+            String expectedHash = expectedHashes != null ? expectedHashes.get(relativePath) : null;
+            if (isUnchanged(file, destFile, expectedHash)) {
+                continue;
+            }
+            destFile.getParentFile().mkdirs();
+            if (!file.renameTo(destFile)) {
                 copyFile(file, destFile);
             }
         }
     }
 
-    private void copyFile(File source, File dest) throws IOException {
-        try (FileInputStream fis = new FileInputStream(source);
-             FileOutputStream fos = new FileOutputStream(dest)) {
+    private static boolean isUnchanged(File source, File dest, String expectedHash) throws IOException {
+        if (!dest.exists() || dest.length() != source.length()) {
+            return false;
+        }
+        if (expectedHash != null) {
+            return expectedHash.equals(sha256(dest));
+        }
+        return crc32(source) == crc32(dest);
+    }
 
-            byte[] buffer = new byte[8192];
-            int length;
-            while ((length = fis.read(buffer)) > 0) {
-                fos.write(buffer, 0, length);
+    private void deleteMediaNotIn(File dir, String prefix, Set<String> keep) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        for (File file : files) {
+            String relativePath = prefix + file.getName();
+            if (file.isDirectory()) {
+                deleteMediaNotIn(file, relativePath + "/", keep);
+            } else if (!keep.contains(relativePath)) {
+                file.delete();
             }
         }
     }
 
+    private void copyFile(File source, File dest) throws IOException {
+        try (FileChannel in = new FileInputStream(source).getChannel();
+             FileChannel out = new FileOutputStream(dest).getChannel()) {
+            transferAll(in, in.size(), out);
+        }
+    }
+
     private void deleteDirectory(File dir) {
         if (dir.exists()) {
             File[] files = dir.listFiles();
@@ -452,6 +1299,31 @@ public class BackupRestoreManager {
         public long timestamp;
         public String appVersion;
         public String deviceInfo;
+        // "json", "binary" or "snapshot" encoding of the database section; absent before 1.2 (JSON)
+        public String format;
+        // AppDatabase schema version at backup time
+        public int schemaVersion;
+        // Absent in 1.0 backups, which are always full
+        public String backupType;
+        public String backupId;
+        public String baseBackupId;
+        public HighWaterMark highWaterMark;
+        public Map<String, String> mediaHashes;
+        public List<String> deletedMedia;
+    }
+
+    /**
+     * Highest row id and timestamp per table at backup time. Rows inserted or touched after a
+     * backup move past these marks and are picked up by the next increment. Notifications have
+     * no mark because every increment exports them whole.
+     */
+    public static class HighWaterMark {
+        public long historyTimestamp;
+        public long historyId;
+        public long replyCountTimestamp;
+        public long archiveTimestamp;
+        // Messages are only appended, so the id alone marks new rows
+        public long messageId;
     }
 
     public static class DatabaseBackup {
@@ -462,10 +1334,50 @@ public class BackupRestoreManager {
         public List<AppSettingEntity> appSettings;
         public List<KeywordActionEntity> keywordActions;
         public List<ConversationReplyCount> conversationReplyCounts;
+        public List<NotificationArchiveEntity> notificationArchive;
+        public List<MessageEntity> messages;
+        // Only set for incremental backups: every id present at backup time, used to prune deletions
+        public List<Long> notificationIds;
+        public List<Long> conversationHistoryIds;
+        public List<Long> messageIds;
     }
 
     public static class PreferencesBackup {
         public Map<String, Object> whatsuitSettings;
         public Map<String, Object> processedNotifications;
     }
+
+    static class MediaFileState {
+        long size;
+        long lastModified;
+        String sha256;
+    }
+
+    static class BackupManifest {
+        String backupId;
+        HighWaterMark highWaterMark;
+        Map<String, MediaFileState> media;
+    }
+
+    private static class ExtractedBackup {
+        final File dir;
+        final BackupMetadata metadata;
+
+        ExtractedBackup(File dir, BackupMetadata metadata) {
+            this.dir = dir;
+            this.metadata = metadata;
+        }
+    }
+
+    private static class Base64TypeAdapter extends TypeAdapter<byte[]> {
+        @Override
+        public void write(JsonWriter out, byte[] value) throws IOException {
+            out.value(Base64.getEncoder().encodeToString(value));
+        }
+
+        @Override
+        public byte[] read(JsonReader in) throws IOException {
+            return Base64.getDecoder().decode(in.nextString());
+        }
+    }
 }
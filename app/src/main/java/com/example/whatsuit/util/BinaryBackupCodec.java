@@ -0,0 +1,432 @@
+package com.example.whatsuit.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary encoding for backup data.
+ *
+ * Works on the Gson tree of a backup object, so entity classes need no extra annotations.
+ * Tables are written with {@link #writeRows}, which serializes one entity at a time instead of
+ * building the whole table as a tree. Arrays of objects (entity tables) are written with their
+ * field names once in a header,
+ * followed by length-prefixed rows of tagged values. Integers are zigzag varints and short
+ * strings that repeat (package names, app names, titles) are written once and then referenced
+ * by index.
+ */
+public final class BinaryBackupCodec {
+    static final byte[] MAGIC = {'W', 'S', 'B', '1'};
+    static final int FORMAT_VERSION = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_STRING_REF = 6;
+    private static final int TAG_ARRAY = 7;
+    private static final int TAG_OBJECT = 8;
+    private static final int TAG_TABLE = 9;
+
+    // Longer strings (message bodies) rarely repeat and would only bloat the table
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private BinaryBackupCodec() {
+    }
+
+    public static void write(JsonElement root, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        writeVarint(data, FORMAT_VERSION);
+        new Encoder().writeValue(data, root);
+        data.flush();
+    }
+
+    /**
+     * Writes a list of entities straight to the stream, converting one row at a time to a Gson
+     * tree. The encoding is the same as {@link #write} of the whole list's tree. The columns are
+     * taken from the first row, with nulls serialized, so every row of the list must have the
+     * same class.
+     */
+    public static void writeRows(List<?> rows, Gson gson, OutputStream out) throws IOException {
+        writeRows(rows, rows.size(), gson, out);
+    }
+
+    /**
+     * Like {@link #writeRows(List, Gson, OutputStream)}, for rows that are read while they are
+     * written (e.g. a table paged from the database). The table header comes first, so the row
+     * count must be known up front and must match the rows iterated.
+     */
+    public static void writeRows(Iterable<?> rows, int rowCount, Gson gson, OutputStream out) throws IOException {
+        Gson rowGson = gson.newBuilder().serializeNulls().create();
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        writeVarint(data, FORMAT_VERSION);
+        Encoder encoder = new Encoder();
+
+        Iterator<?> iterator = rows.iterator();
+        boolean hasFirst = rowCount > 0 && iterator.hasNext();
+        JsonElement first = hasFirst ? rowGson.toJsonTree(iterator.next()) : null;
+        int written = 0;
+        if (first == null || !first.isJsonObject()) {
+            // Id lists and other plain values
+            data.writeByte(TAG_ARRAY);
+            writeVarint(data, rowCount);
+            if (hasFirst) {
+                encoder.writeValue(data, first);
+                written++;
+            }
+            while (written < rowCount && iterator.hasNext()) {
+                encoder.writeValue(data, rowGson.toJsonTree(iterator.next()));
+                written++;
+            }
+        } else {
+            List<String> columns = new ArrayList<>(first.getAsJsonObject().keySet());
+            Set<String> columnSet = new HashSet<>(columns);
+            encoder.writeTableHeader(data, columns, rowCount);
+            ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream();
+            encoder.writeRow(data, columns, first.getAsJsonObject(), rowBuffer);
+            written++;
+            while (written < rowCount && iterator.hasNext()) {
+                Object row = iterator.next();
+                JsonElement element = rowGson.toJsonTree(row);
+                if (!element.isJsonObject() || !columnSet.containsAll(element.getAsJsonObject().keySet())) {
+                    throw new IOException("Table rows differ from the first row: " + row);
+                }
+                encoder.writeRow(data, columns, element.getAsJsonObject(), rowBuffer);
+                written++;
+            }
+        }
+        if (written != rowCount || iterator.hasNext()) {
+            throw new IOException("Expected " + rowCount + " rows, got " + (iterator.hasNext() ? "more" : written));
+        }
+        data.flush();
+    }
+
+    public static JsonElement read(InputStream in) throws IOException {
+        DataInputStream data = readHeader(in);
+        return new Decoder().readValue(data);
+    }
+
+    /**
+     * Reads a table written by {@link #writeRows} straight into objects of the given type,
+     * converting one row at a time, so only the resulting list is held rather than the list
+     * plus the whole table as a tree.
+     */
+    public static <T> List<T> readRows(InputStream in, Gson gson, Type rowType) throws IOException {
+        DataInputStream data = readHeader(in);
+        Decoder decoder = new Decoder();
+        int tag = data.readUnsignedByte();
+        if (tag == TAG_TABLE) {
+            String[] columns = decoder.readColumns(data);
+            int rowCount = (int) readVarint(data);
+            List<T> rows = new ArrayList<>(rowCount);
+            for (int r = 0; r < rowCount; r++) {
+                rows.add(gson.fromJson(decoder.readRow(data, columns), rowType));
+            }
+            return rows;
+        }
+        if (tag == TAG_ARRAY) {
+            int count = (int) readVarint(data);
+            List<T> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rows.add(gson.fromJson(decoder.readValue(data), rowType));
+            }
+            return rows;
+        }
+        throw new IOException("Corrupt binary backup: expected a table, got tag " + tag);
+    }
+
+    private static DataInputStream readHeader(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[MAGIC.length];
+        data.readFully(header);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                throw new IOException("Not a binary backup");
+            }
+        }
+        int version = (int) readVarint(data);
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Unsupported binary backup version: " + version);
+        }
+        return data;
+    }
+
+    private static final class Encoder {
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        void writeValue(DataOutput out, JsonElement element) throws IOException {
+            if (element == null || element.isJsonNull()) {
+                out.writeByte(TAG_NULL);
+            } else if (element.isJsonPrimitive()) {
+                writePrimitive(out, element.getAsJsonPrimitive());
+            } else if (element.isJsonObject()) {
+                JsonObject object = element.getAsJsonObject();
+                out.writeByte(TAG_OBJECT);
+                writeVarint(out, object.size());
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    writeTaggedString(out, entry.getKey());
+                    writeValue(out, entry.getValue());
+                }
+            } else if (isTable(element.getAsJsonArray())) {
+                writeTable(out, element.getAsJsonArray());
+            } else {
+                JsonArray array = element.getAsJsonArray();
+                out.writeByte(TAG_ARRAY);
+                writeVarint(out, array.size());
+                for (JsonElement item : array) {
+                    writeValue(out, item);
+                }
+            }
+        }
+
+        private void writeTable(DataOutput out, JsonArray rows) throws IOException {
+            Set<String> columnSet = new LinkedHashSet<>();
+            for (JsonElement row : rows) {
+                columnSet.addAll(row.getAsJsonObject().keySet());
+            }
+            List<String> columns = new ArrayList<>(columnSet);
+
+            writeTableHeader(out, columns, rows.size());
+            ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream();
+            for (JsonElement element : rows) {
+                writeRow(out, columns, element.getAsJsonObject(), rowBuffer);
+            }
+        }
+
+        void writeTableHeader(DataOutput out, List<String> columns, int rowCount) throws IOException {
+            out.writeByte(TAG_TABLE);
+            writeVarint(out, columns.size());
+            for (String column : columns) {
+                writeTaggedString(out, column);
+            }
+            writeVarint(out, rowCount);
+        }
+
+        // Length-prefixed, so the row is encoded into the table's buffer first
+        void writeRow(DataOutput out, List<String> columns, JsonObject object,
+                      ByteArrayOutputStream rowBuffer) throws IOException {
+            rowBuffer.reset();
+            DataOutputStream row = new DataOutputStream(rowBuffer);
+            for (String column : columns) {
+                writeValue(row, object.get(column));
+            }
+            row.flush();
+            writeVarint(out, rowBuffer.size());
+            out.write(rowBuffer.toByteArray());
+        }
+
+        private void writePrimitive(DataOutput out, JsonPrimitive primitive) throws IOException {
+            if (primitive.isBoolean()) {
+                out.writeByte(primitive.getAsBoolean() ? TAG_TRUE : TAG_FALSE);
+            } else if (primitive.isNumber()) {
+                String text = primitive.getAsString();
+                Long integral = parseIntegral(text);
+                if (integral != null) {
+                    out.writeByte(TAG_INT);
+                    writeVarint(out, (integral << 1) ^ (integral >> 63));
+                } else {
+                    out.writeByte(TAG_DOUBLE);
+                    out.writeDouble(primitive.getAsDouble());
+                }
+            } else {
+                writeTaggedString(out, primitive.getAsString());
+            }
+        }
+
+        private void writeTaggedString(DataOutput out, String value) throws IOException {
+            Integer index = strings.get(value);
+            if (index != null) {
+                out.writeByte(TAG_STRING_REF);
+                writeVarint(out, index);
+                return;
+            }
+            out.writeByte(TAG_STRING);
+            writeRawString(out, value);
+            if (value.length() <= MAX_INTERNED_LENGTH) {
+                strings.put(value, strings.size());
+            }
+        }
+
+        private static boolean isTable(JsonArray array) {
+            if (array.size() == 0) {
+                return false;
+            }
+            for (JsonElement element : array) {
+                if (!element.isJsonObject()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Long parseIntegral(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if ((c < '0' || c > '9') && !(i == 0 && c == '-')) {
+                    return null;
+                }
+            }
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Decoder {
+        private final List<String> strings = new ArrayList<>();
+
+        JsonElement readValue(DataInput in) throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case TAG_NULL:
+                    return JsonNull.INSTANCE;
+                case TAG_FALSE:
+                    return new JsonPrimitive(false);
+                case TAG_TRUE:
+                    return new JsonPrimitive(true);
+                case TAG_INT: {
+                    long zigzag = readVarint(in);
+                    return new JsonPrimitive((zigzag >>> 1) ^ -(zigzag & 1));
+                }
+                case TAG_DOUBLE:
+                    return new JsonPrimitive(in.readDouble());
+                case TAG_STRING:
+                case TAG_STRING_REF:
+                    return new JsonPrimitive(readString(in, tag));
+                case TAG_ARRAY: {
+                    int count = (int) readVarint(in);
+                    JsonArray array = new JsonArray(count);
+                    for (int i = 0; i < count; i++) {
+                        array.add(readValue(in));
+                    }
+                    return array;
+                }
+                case TAG_OBJECT: {
+                    int count = (int) readVarint(in);
+                    JsonObject object = new JsonObject();
+                    for (int i = 0; i < count; i++) {
+                        String key = readString(in, in.readUnsignedByte());
+                        object.add(key, readValue(in));
+                    }
+                    return object;
+                }
+                case TAG_TABLE:
+                    return readTable(in);
+                default:
+                    throw new IOException("Corrupt binary backup: unknown tag " + tag);
+            }
+        }
+
+        private JsonArray readTable(DataInput in) throws IOException {
+            String[] columns = readColumns(in);
+            int rowCount = (int) readVarint(in);
+            JsonArray rows = new JsonArray(rowCount);
+            for (int r = 0; r < rowCount; r++) {
+                rows.add(readRow(in, columns));
+            }
+            return rows;
+        }
+
+        String[] readColumns(DataInput in) throws IOException {
+            int columnCount = (int) readVarint(in);
+            String[] columns = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columns[i] = readString(in, in.readUnsignedByte());
+            }
+            return columns;
+        }
+
+        JsonObject readRow(DataInput in, String[] columns) throws IOException {
+            byte[] rowBytes = new byte[(int) readVarint(in)];
+            in.readFully(rowBytes);
+            DataInputStream row = new DataInputStream(new ByteArrayInputStream(rowBytes));
+            JsonObject object = new JsonObject();
+            for (String column : columns) {
+                JsonElement value = readValue(row);
+                if (!value.isJsonNull()) {
+                    object.add(column, value);
+                }
+            }
+            return object;
+        }
+
+        private String readString(DataInput in, int tag) throws IOException {
+            if (tag == TAG_STRING_REF) {
+                int index = (int) readVarint(in);
+                if (index >= strings.size()) {
+                    throw new IOException("Corrupt binary backup: bad string reference " + index);
+                }
+                return strings.get(index);
+            }
+            if (tag != TAG_STRING) {
+                throw new IOException("Corrupt binary backup: expected string, got tag " + tag);
+            }
+            String value = readRawString(in);
+            if (value.length() <= MAX_INTERNED_LENGTH) {
+                strings.add(value);
+            }
+            return value;
+        }
+    }
+
+    private static void writeRawString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readRawString(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarint(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarint(DataInput in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Corrupt binary backup: varint too long");
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.whatsuit.util;
+
+import com.example.whatsuit.data.ConversationAnalysisEntity;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a Gemini analysis response into the numbered sections requested by the analysis
+ * prompt, once when the analysis is stored rather than every time the dialog opens.
+ */
+public final class ConversationAnalysisParser {
+    static final int NEXT_STEPS = 1;
+    static final int FOLLOW_UP = 2;
+    static final int NEGOTIATION = 3;
+    static final int SUGGESTED_REPLY = 4;
+    static final int SUMMARY = 5;
+    private static final int SECTION_COUNT = 5;
+
+    // "1. Next Steps:" at the start of a line, optionally wrapped in markdown heading or bold
+    private static final Pattern SECTION_HEADING =
+            Pattern.compile("(?m)^[ \\t]*[#*]*[ \\t]*([1-5])\\.[^\\n:]*:[*]*[ \\t]*");
+
+    private ConversationAnalysisParser() {
+    }
+
+    /**
+     * @param lastHistoryId newest conversation_history id the analysis covers
+     * @return the analysis row; sections are left null when the four dialog sections are not
+     * all present, in which case only rawText is shown
+     */
+    public static ConversationAnalysisEntity parse(String conversationId, String text,
+                                                   long lastHistoryId, long timestamp) {
+        ConversationAnalysisEntity analysis = new ConversationAnalysisEntity();
+        analysis.setConversationId(conversationId);
+        analysis.setLastHistoryId(lastHistoryId);
+        analysis.setRawText(text);
+        analysis.setUpdatedAt(timestamp);
+
+        String[] sections = splitSections(text);
+        if (sections[NEXT_STEPS] != null && sections[FOLLOW_UP] != null
+                && sections[NEGOTIATION] != null && sections[SUGGESTED_REPLY] != null) {
+            analysis.setNextSteps(sections[NEXT_STEPS]);
+            analysis.setFollowUp(sections[FOLLOW_UP]);
+            analysis.setNegotiation(sections[NEGOTIATION]);
+            analysis.setSuggestedReply(sections[SUGGESTED_REPLY]);
+        }
+        analysis.setSummary(sections[SUMMARY]);
+        return analysis;
+    }
+
+    /**
+     * @return section bodies indexed by section number (1-5); missing sections are null
+     */
+    static String[] splitSections(String text) {
+        String[] sections = new String[SECTION_COUNT + 1];
+        if (text == null) {
+            return sections;
+        }
+        Matcher matcher = SECTION_HEADING.matcher(text);
+        int currentSection = -1;
+        int bodyStart = 0;
+        while (matcher.find()) {
+            if (currentSection > 0) {
+                sections[currentSection] = body(text, bodyStart, matcher.start());
+            }
+            currentSection = Integer.parseInt(matcher.group(1));
+            bodyStart = matcher.end();
+        }
+        if (currentSection > 0) {
+            sections[currentSection] = body(text, bodyStart, text.length());
+        }
+        return sections;
+    }
+
+    private static String body(String text, int start, int end) {
+        String body = text.substring(start, end).trim();
+        return body.isEmpty() ? null : body;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.whatsuit.util;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import com.example.whatsuit.R;
+import com.example.whatsuit.data.NotificationEntity;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional notification per conversation that opens the captured conversation in Whatsuit.
+ *
+ * Off by default. When enabled, the notification is keyed by conversation and refreshed at
+ * most once per {@link #MIN_INTERVAL_MILLIS}; the deep link points at the conversation's row,
+ * so it stays valid when later messages are folded into that row.
+ */
+public class DeepLinkNotifier {
+    public static final String PREF_ENABLED = "deep_link_notifications_enabled";
+    public static final String CHANNEL_ID = "whatsuit_notification_channel";
+    static final long MIN_INTERVAL_MILLIS = 10_000;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final ConcurrentHashMap<String, Long> lastPostedAt = new ConcurrentHashMap<>();
+
+    public DeepLinkNotifier(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences("whatsuit_settings", Context.MODE_PRIVATE);
+    }
+
+    public boolean isEnabled() {
+        return prefs.getBoolean(PREF_ENABLED, false);
+    }
+
+    /**
+     * Posts or refreshes the conversation's notification unless it was refreshed recently.
+     */
+    public void maybeNotify(NotificationEntity notification) {
+        String conversationId = notification.getConversationId();
+        if (conversationId == null || !isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Long last = lastPostedAt.get(conversationId);
+        if (last != null && now - last < MIN_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPostedAt.put(conversationId, now);
+
+        Intent deepLinkIntent = new Intent(Intent.ACTION_VIEW,
+                Uri.parse("whatsuit://notification/" + notification.getId()));
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, conversationId.hashCode(),
+                deepLinkIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        Notification deepLink = new Notification.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_auto_reply)
+                .setContentTitle(notification.getTitle())
+                .setContentText(notification.getContent())
+                .setSubText(notification.getAppName())
+                .setWhen(notification.getTimestamp())
+                .setOnlyAlertOnce(true)
+                .setAutoCancel(true)
+                .setContentIntent(pendingIntent)
+                .build();
+
+        NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+        if (notificationManager != null) {
+            notificationManager.notify(conversationId.hashCode(), deepLink);
+        }
+    }
+}
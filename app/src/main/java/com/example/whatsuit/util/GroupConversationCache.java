@@ -0,0 +1,120 @@
+package com.example.whatsuit.util;
+
+import android.app.Notification;
+import android.app.Person;
+import android.os.Bundle;
+import com.example.whatsuit.data.NotificationDao;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Whether a conversation is a group chat, decided once per conversation.
+ *
+ * On first sight the notification's own flag (EXTRA_IS_GROUP_CONVERSATION, or the conversation
+ * title of a MessagingStyle notification) decides and is stored with the conversation's row
+ * (notifications.is_group), so it survives restarts. Without either, the stored value is used,
+ * then a guess from the title and people. Guesses are never cached: each notification is
+ * guessed on its own until the app reports the flag.
+ */
+public class GroupConversationCache {
+    private static final Pattern MESSAGE_COUNT_TITLE = Pattern.compile(".*\\d+ messages?.*");
+    private static final String MESSAGING_STYLE = Notification.MessagingStyle.class.getName();
+
+    private final NotificationDao notificationDao;
+    private final ConcurrentHashMap<String, Classification> byConversation = new ConcurrentHashMap<>();
+
+    public GroupConversationCache(NotificationDao notificationDao) {
+        this.notificationDao = notificationDao;
+    }
+
+    /**
+     * Result of {@link #get}, with whether the messaging app stated it
+     */
+    public static final class Classification {
+        public final boolean isGroup;
+        // From the app's own flag (now or in an earlier session) rather than a guess
+        public final boolean reported;
+
+        Classification(boolean isGroup, boolean reported) {
+            this.isGroup = isGroup;
+            this.reported = reported;
+        }
+    }
+
+    /**
+     * Classifies the conversation. Once the app has reported it, later notifications are not
+     * read at all.
+     * @return the classification; {@link Classification#reported} results are the ones to
+     *         store with the conversation
+     */
+    public Classification get(String conversationId, Notification notification) {
+        Classification cached = byConversation.get(conversationId);
+        if (cached != null && cached.reported) {
+            return cached;
+        }
+
+        Boolean reported = readReported(notification.extras);
+        if (reported != null) {
+            Classification classification = new Classification(reported, true);
+            byConversation.put(conversationId, classification);
+            return classification;
+        }
+
+        Boolean stored = notificationDao.getIsGroup(conversationId);
+        if (stored != null) {
+            Classification classification = new Classification(stored, true);
+            byConversation.put(conversationId, classification);
+            return classification;
+        }
+        return new Classification(guess(notification.extras), false);
+    }
+
+    public void remove(String conversationId) {
+        byConversation.remove(conversationId);
+    }
+
+    public void clear() {
+        byConversation.clear();
+    }
+
+    public int size() {
+        return byConversation.size();
+    }
+
+    /**
+     * @return the group flag set by the messaging app, or null if it does not say
+     */
+    static Boolean readReported(Bundle extras) {
+        if (extras == null) {
+            return null;
+        }
+        if (extras.containsKey(Notification.EXTRA_IS_GROUP_CONVERSATION)) {
+            return extras.getBoolean(Notification.EXTRA_IS_GROUP_CONVERSATION);
+        }
+        // MessagingStyle before the flag existed: group chats are the ones with a title
+        if (MESSAGING_STYLE.equals(extras.getString(Notification.EXTRA_TEMPLATE))) {
+            return extras.getCharSequence(Notification.EXTRA_CONVERSATION_TITLE) != null;
+        }
+        return null;
+    }
+
+    /**
+     * Legacy guess for apps that do not use MessagingStyle
+     */
+    static boolean guess(Bundle extras) {
+        if (extras == null) {
+            return false;
+        }
+        CharSequence title = extras.getCharSequence(Notification.EXTRA_TITLE);
+        if (title != null && MESSAGE_COUNT_TITLE.matcher(title).matches()) {
+            return true;
+        }
+        ArrayList<Person> people = extras.getParcelableArrayList(Notification.EXTRA_PEOPLE_LIST, Person.class);
+        if (people != null && people.size() > 1) {
+            return true;
+        }
+        String[] legacyPeople = extras.getStringArray("android.people");
+        return legacyPeople != null && legacyPeople.length > 1;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.whatsuit.util;
+
+import android.app.Notification;
+import android.app.Person;
+import android.os.Bundle;
+import android.os.Parcelable;
+import com.example.whatsuit.data.MessageDao;
+import com.example.whatsuit.data.MessageEntity;
+import com.example.whatsuit.metrics.LatencyHistogram;
+import com.example.whatsuit.metrics.Metrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores every message of a conversation's notifications in the messages table.
+ *
+ * Messaging apps stack several messages into one notification and repost it with each new one,
+ * so a MessagingStyle notification is read message by message (EXTRA_MESSAGES) and only the
+ * messages past the conversation's high-water mark are inserted. A message is identified by its
+ * timestamp and sender, never its text, so a message repeating an earlier one is still stored.
+ * The mark is the newest stored ts with the senders stored at it, read from the database once
+ * per conversation and then kept in memory. Other notifications are stored as a single message
+ * from their title and text, timed by the notification's when: apps that update a notification
+ * in place keep it, while the post time moves with every update.
+ */
+public class MessageIngester {
+    private final MessageDao messageDao;
+    // Newest stored messages per conversation
+    private final ConcurrentHashMap<String, Latest> latestMessages = new ConcurrentHashMap<>();
+    // Serializes ingestion per conversation; different conversations do not wait for each other
+    private final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    private static final class Latest {
+        static final Latest NONE = new Latest(Long.MIN_VALUE, Collections.emptySet());
+
+        final long ts;
+        // Senders already stored at ts; group members can post within the same millisecond
+        final Set<String> senders;
+
+        Latest(long ts, Set<String> senders) {
+            this.ts = ts;
+            this.senders = senders;
+        }
+
+        boolean contains(MessageEntity message) {
+            return message.getTs() < ts || (message.getTs() == ts && senders.contains(message.getSender()));
+        }
+
+        // The mark after the given messages were stored
+        Latest with(List<MessageEntity> added) {
+            Latest newest = latest(added);
+            if (newest.ts != ts) {
+                return newest.ts > ts ? newest : this;
+            }
+            Set<String> merged = new HashSet<>(senders);
+            merged.addAll(newest.senders);
+            return new Latest(ts, merged);
+        }
+    }
+
+    public MessageIngester(MessageDao messageDao) {
+        this.messageDao = messageDao;
+    }
+
+    /**
+     * Stores the messages of the notification that are not stored yet.
+     * @param title sender of a notification without MessagingStyle messages
+     * @param content text of a notification without MessagingStyle messages
+     * @param postTime used when the notification has no when
+     * @return number of messages inserted
+     */
+    public int ingest(String conversationId, Notification notification, String title, String content,
+                      long postTime) {
+        List<MessageEntity> messages = readMessages(conversationId, notification.extras);
+        if (!messages.isEmpty()) {
+            return insertNewer(conversationId, messages);
+        }
+        if (content == null || content.isEmpty()) {
+            return 0;
+        }
+        long ts = notification.when != 0 ? notification.when : postTime;
+        return insertNewer(conversationId,
+                Collections.singletonList(new MessageEntity(conversationId, title, content, ts)));
+    }
+
+    /**
+     * Inserts the messages past the conversation's high-water mark in one transaction.
+     * Serialized per conversation so that two posts of it cannot both pass the check.
+     */
+    int insertNewer(String conversationId, List<MessageEntity> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        synchronized (locks.computeIfAbsent(conversationId, id -> new Object())) {
+            Latest latest = latestMessages.get(conversationId);
+            if (latest == null) {
+                latest = latest(messageDao.getLatestMessages(conversationId));
+            }
+
+            List<MessageEntity> newer = new ArrayList<>(messages.size());
+            for (MessageEntity message : messages) {
+                if (!latest.contains(message)) {
+                    newer.add(message);
+                }
+            }
+            Metrics.MESSAGES_DUPLICATE.add(messages.size() - newer.size());
+            if (!newer.isEmpty()) {
+                long insertStart = LatencyHistogram.start();
+                messageDao.insertAll(newer);
+                Metrics.DB_MESSAGES_INSERT.recordSince(insertStart);
+                Metrics.MESSAGES_INGESTED.add(newer.size());
+                latest = latest.with(newer);
+            }
+            latestMessages.put(conversationId, latest);
+            return newer.size();
+        }
+    }
+
+    // The newest ts of the messages and the senders at it
+    private static Latest latest(List<MessageEntity> messages) {
+        if (messages.isEmpty()) {
+            return Latest.NONE;
+        }
+        long ts = Long.MIN_VALUE;
+        Set<String> senders = new HashSet<>();
+        for (MessageEntity message : messages) {
+            if (message.getTs() > ts) {
+                ts = message.getTs();
+                senders.clear();
+            }
+            if (message.getTs() == ts) {
+                senders.add(message.getSender());
+            }
+        }
+        return new Latest(ts, senders);
+    }
+
+    /**
+     * @return the MessagingStyle messages of the notification, oldest first; empty if it has none
+     */
+    static List<MessageEntity> readMessages(String conversationId, Bundle extras) {
+        if (extras == null) {
+            return Collections.emptyList();
+        }
+        Parcelable[] bundles = extras.getParcelableArray(Notification.EXTRA_MESSAGES, Parcelable.class);
+        if (bundles == null || bundles.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Notification.MessagingStyle.Message> styleMessages =
+                Notification.MessagingStyle.Message.getMessagesFromBundleArray(bundles);
+        List<MessageEntity> messages = new ArrayList<>(styleMessages.size());
+        for (Notification.MessagingStyle.Message styleMessage : styleMessages) {
+            CharSequence text = styleMessage.getText();
+            if (text == null) {
+                continue; // Media without a caption
+            }
+            Person person = styleMessage.getSenderPerson();
+            CharSequence sender = person != null ? person.getName() : null;
+            messages.add(new MessageEntity(conversationId, sender != null ? sender.toString() : null,
+                    text.toString(), styleMessage.getTimestamp()));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.whatsuit.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.ConversationHistory;
+import com.example.whatsuit.data.MessageEntity;
+import com.example.whatsuit.data.NotificationArchiveEntity;
+import com.example.whatsuit.data.NotificationEntity;
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves notifications older than the configured retention period out of the notifications
+ * table into notifications_archive, so the hot table that the main screen queries stays
+ * bounded. Conversation history rows would be removed by the cascade on notifications, so
+ * they are archived together with their notification. The notification row is the latest
+ * message of its conversation, so an archived row means the conversation has been quiet for
+ * the whole period; its messages move into the same payload, read and deleted per conversation
+ * through the (conversationId, ts) index. Messages of active conversations are kept.
+ */
+public class NotificationArchiver {
+    private static final String TAG = "NotificationArchiver";
+    public static final String PREF_RETENTION_DAYS = "notification_retention_days";
+    public static final int DEFAULT_RETENTION_DAYS = 90;
+    // Rows moved per transaction; keeps each transaction short and below SQLite's variable limit
+    static final int BATCH_SIZE = 500;
+
+    private final AppDatabase database;
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+
+    public NotificationArchiver(Context context) {
+        this(AppDatabase.getDatabase(context), context);
+    }
+
+    NotificationArchiver(AppDatabase database, Context context) {
+        this.database = database;
+        this.prefs = context.getSharedPreferences("whatsuit_settings", Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Full notification and conversation history of an archived row
+     */
+    public static class ArchivedNotification {
+        public NotificationEntity notification;
+        public List<ConversationHistory> history;
+        public List<MessageEntity> messages;
+    }
+
+    public int getRetentionDays() {
+        return prefs.getInt(PREF_RETENTION_DAYS, DEFAULT_RETENTION_DAYS);
+    }
+
+    /**
+     * Archives every notification older than the retention period.
+     * @return number of notifications archived
+     */
+    public int archiveExpired() throws IOException {
+        int retentionDays = getRetentionDays();
+        if (retentionDays <= 0) {
+            return 0; // Retention disabled
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+        return archiveOlderThan(cutoff);
+    }
+
+    public int archiveOlderThan(long cutoffTimestamp) throws IOException {
+        int archivedCount = 0;
+        while (true) {
+            // Read, copy and delete in one transaction, so a conversation that receives a new
+            // message meanwhile is either archived before it or not at all
+            int archived = database.runInTransaction(() -> archiveBatch(cutoffTimestamp));
+            archivedCount += archived;
+            if (archived < BATCH_SIZE) {
+                break;
+            }
+        }
+        if (archivedCount > 0) {
+            Log.d(TAG, "Archived " + archivedCount + " notifications older than " + cutoffTimestamp);
+        }
+        return archivedCount;
+    }
+
+    /**
+     * Moves up to BATCH_SIZE of the oldest expired notifications into the archive. Must run
+     * inside a transaction.
+     * @return number of notifications archived
+     */
+    private int archiveBatch(long cutoffTimestamp) throws IOException {
+        List<NotificationEntity> batch = database.notificationDao()
+                .getNotificationsOlderThan(cutoffTimestamp, BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (NotificationEntity notification : batch) {
+            ids.add(notification.getId());
+        }
+        Map<Long, List<ConversationHistory>> historyByNotification = new HashMap<>();
+        for (ConversationHistory history : database.conversationHistoryDao().getHistoryForNotifications(ids)) {
+            historyByNotification
+                    .computeIfAbsent(history.getNotificationId(), id -> new ArrayList<>())
+                    .add(history);
+        }
+
+        Map<String, List<MessageEntity>> messagesByConversation = new HashMap<>();
+        for (NotificationEntity notification : batch) {
+            String conversationId = notification.getConversationId();
+            if (conversationId != null && !messagesByConversation.containsKey(conversationId)) {
+                messagesByConversation.put(conversationId,
+                        database.messageDao().getMessagesBefore(conversationId, cutoffTimestamp));
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        List<NotificationArchiveEntity> archived = new ArrayList<>(batch.size());
+        for (NotificationEntity notification : batch) {
+            ArchivedNotification payload = new ArchivedNotification();
+            payload.notification = notification;
+            payload.history = historyByNotification.get(notification.getId());
+            if (notification.getConversationId() != null) {
+                payload.messages = messagesByConversation.get(notification.getConversationId());
+            }
+            archived.add(toArchiveEntity(payload, now));
+        }
+
+        database.notificationArchiveDao().insertAll(archived);
+        // The cutoff is checked again so a row is never deleted once it holds a newer message
+        database.notificationDao().deleteByIdsOlderThan(ids, cutoffTimestamp);
+        for (String conversationId : messagesByConversation.keySet()) {
+            database.messageDao().deleteMessagesBefore(conversationId, cutoffTimestamp);
+        }
+        return batch.size();
+    }
+
+    /**
+     * Searches archived notifications by title or app name. Runs only on demand; the hot
+     * notifications queries never touch the archive.
+     */
+    public List<ArchivedNotification> search(String query, int limit) throws IOException {
+        List<ArchivedNotification> results = new ArrayList<>();
+        for (NotificationArchiveEntity entity : database.notificationArchiveDao().search(query, limit)) {
+            results.add(decode(entity.getPayload()));
+        }
+        return results;
+    }
+
+    private NotificationArchiveEntity toArchiveEntity(ArchivedNotification payload, long archivedAt) throws IOException {
+        NotificationEntity notification = payload.notification;
+        NotificationArchiveEntity entity = new NotificationArchiveEntity();
+        entity.setId(notification.getId());
+        entity.setPackageName(notification.getPackageName());
+        entity.setAppName(notification.getAppName());
+        entity.setTitle(notification.getTitle());
+        entity.setConversationId(notification.getConversationId());
+        entity.setTimestamp(notification.getTimestamp());
+        entity.setArchivedAt(archivedAt);
+        entity.setPayload(encode(payload));
+        return entity;
+    }
+
+    private byte[] encode(ArchivedNotification payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            gson.toJson(payload, writer);
+        }
+        return bytes.toByteArray();
+    }
+
+    private ArchivedNotification decode(byte[] payload) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(payload)), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, ArchivedNotification.class);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.whatsuit.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds a reply prompt from a template and its sections under a token budget.
+ *
+ * Sections are estimated before rendering and trimmed lowest priority first: history turns,
+ * oldest first, then the end of the context, and the message only if it alone exceeds the
+ * budget. The template text is always kept. History goes to a {history} placeholder, or after
+ * the context in templates that only have {context} and {message}.
+ */
+public class PromptBuilder {
+    public static final String PLACEHOLDER_CONTEXT = "context";
+    public static final String PLACEHOLDER_HISTORY = "history";
+    public static final String PLACEHOLDER_MESSAGE = "message";
+    static final String ELLIPSIS = "...";
+
+    // Fallback when the model is unknown; matches the default flash model
+    public static final int DEFAULT_TOKEN_BUDGET = 1000;
+
+    // Renders the template text alone, for its share of the budget
+    private static final Map<String, String> TEMPLATE_ONLY = new HashMap<>();
+    static {
+        TEMPLATE_ONLY.put(PLACEHOLDER_CONTEXT, "");
+        TEMPLATE_ONLY.put(PLACEHOLDER_HISTORY, "");
+        TEMPLATE_ONLY.put(PLACEHOLDER_MESSAGE, "");
+    }
+
+    private final String template;
+    private String context = "";
+    private String historyHeading = "";
+    private List<String> historyTurns = Collections.emptyList();
+    private String message = "";
+
+    /**
+     * The rendered prompt and the estimated size of each section after trimming.
+     */
+    public static final class Prompt {
+        public final String text;
+        public final int templateTokens;
+        public final int contextTokens;
+        public final int historyTokens;
+        public final int messageTokens;
+        public final int historyTurnsDropped;
+        public final boolean trimmed;
+
+        Prompt(String text, int templateTokens, int contextTokens, int historyTokens,
+               int messageTokens, int historyTurnsDropped, boolean trimmed) {
+            this.text = text;
+            this.templateTokens = templateTokens;
+            this.contextTokens = contextTokens;
+            this.historyTokens = historyTokens;
+            this.messageTokens = messageTokens;
+            this.historyTurnsDropped = historyTurnsDropped;
+            this.trimmed = trimmed;
+        }
+
+        public int getTotalTokens() {
+            return templateTokens + contextTokens + historyTokens + messageTokens;
+        }
+    }
+
+    public PromptBuilder(String template) {
+        this.template = template;
+    }
+
+    public PromptBuilder setContext(String context) {
+        this.context = context != null ? context : "";
+        return this;
+    }
+
+    /**
+     * @param heading text placed before the turns, dropped together with the last turn
+     * @param turns rendered turns, oldest first
+     */
+    public PromptBuilder setHistory(String heading, List<String> turns) {
+        this.historyHeading = heading != null ? heading : "";
+        this.historyTurns = turns != null ? turns : Collections.<String>emptyList();
+        return this;
+    }
+
+    public PromptBuilder setMessage(String message) {
+        this.message = message != null ? message : "";
+        return this;
+    }
+
+    public Prompt build(int tokenBudget) {
+        int templateTokens = estimateTokens(render(template, TEMPLATE_ONLY));
+        int messageTokens = estimateTokens(message);
+        int contextTokens = estimateTokens(context);
+        int headingTokens = estimateTokens(historyHeading);
+        int[] turnTokens = new int[historyTurns.size()];
+        int historyTokens = 0;
+        for (int i = 0; i < turnTokens.length; i++) {
+            turnTokens[i] = estimateTokens(historyTurns.get(i));
+            historyTokens += turnTokens[i];
+        }
+        if (historyTokens > 0) {
+            historyTokens += headingTokens;
+        }
+
+        boolean trimmed = false;
+        String keptMessage = message;
+        String keptContext = context;
+
+        // Lowest priority first: history turns, oldest first
+        int firstTurn = 0;
+        while (firstTurn < turnTokens.length
+                && templateTokens + messageTokens + contextTokens + historyTokens > tokenBudget) {
+            historyTokens -= turnTokens[firstTurn++];
+            if (firstTurn == turnTokens.length) {
+                historyTokens = 0;
+            }
+            trimmed = true;
+        }
+
+        // Then the end of the context
+        int contextAllowance = tokenBudget - templateTokens - messageTokens - historyTokens;
+        if (contextTokens > contextAllowance) {
+            keptContext = truncateToTokens(context, contextAllowance);
+            contextTokens = estimateTokens(keptContext);
+            trimmed = true;
+        }
+
+        // The message itself only when nothing else is left to trim
+        int messageAllowance = tokenBudget - templateTokens - contextTokens - historyTokens;
+        if (messageTokens > messageAllowance) {
+            keptMessage = truncateToTokens(message, Math.max(messageAllowance, 1));
+            messageTokens = estimateTokens(keptMessage);
+            trimmed = true;
+        }
+
+        StringBuilder history = new StringBuilder();
+        if (firstTurn < historyTurns.size()) {
+            history.append(historyHeading);
+            for (int i = firstTurn; i < historyTurns.size(); i++) {
+                history.append(historyTurns.get(i));
+            }
+        }
+
+        Map<String, String> values = new HashMap<>();
+        values.put(PLACEHOLDER_MESSAGE, keptMessage);
+        if (template.contains("{" + PLACEHOLDER_HISTORY + "}")) {
+            values.put(PLACEHOLDER_CONTEXT, keptContext);
+            values.put(PLACEHOLDER_HISTORY, history.toString());
+        } else {
+            values.put(PLACEHOLDER_CONTEXT, keptContext + history);
+        }
+
+        return new Prompt(render(template, values), templateTokens, contextTokens,
+                historyTokens, messageTokens, firstTurn, trimmed);
+    }
+
+    /**
+     * Default budget per model. Smaller models are used for latency, so they get shorter
+     * prompts; the override in GeminiConfig.promptTokenBudget takes precedence.
+     */
+    public static int defaultBudgetFor(String modelName) {
+        if (modelName == null) {
+            return DEFAULT_TOKEN_BUDGET;
+        }
+        String model = modelName.toLowerCase(Locale.ROOT);
+        if (model.contains("flash-8b") || model.contains("flash-lite")) {
+            return 600;
+        }
+        if (model.contains("flash")) {
+            return DEFAULT_TOKEN_BUDGET;
+        }
+        if (model.contains("pro")) {
+            return 2000;
+        }
+        return DEFAULT_TOKEN_BUDGET;
+    }
+
+    /**
+     * Replaces each {name} with its value in one pass. Values are not scanned again, so a
+     * message containing "{context}" stays as written; unknown placeholders are kept.
+     */
+    public static String render(String template, Map<String, String> values) {
+        int capacity = template.length();
+        for (String value : values.values()) {
+            capacity += value.length();
+        }
+        StringBuilder out = new StringBuilder(capacity);
+        int pos = 0;
+        int open;
+        while ((open = template.indexOf('{', pos)) >= 0) {
+            int close = template.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            String name = template.substring(open + 1, close);
+            String value = values.get(name);
+            if (value != null) {
+                out.append(template, pos, open).append(value);
+                pos = close + 1;
+            } else {
+                // Not a placeholder; keep the brace and look for the next one
+                out.append(template, pos, open + 1);
+                pos = open + 1;
+            }
+        }
+        out.append(template, pos, template.length());
+        return out.toString();
+    }
+
+    /**
+     * Estimates the token count without a tokenizer: runs of letters and digits count one
+     * token per four characters, each other visible character (punctuation, emoji, CJK) one
+     * token, and whitespace nothing. Errs on the high side for non-English text.
+     */
+    public static int estimateTokens(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        return (int) scan(text, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the longest prefix of text, cut at a word boundary where possible and followed
+     *         by an ellipsis, estimated at no more than maxTokens
+     */
+    static String truncateToTokens(String text, int maxTokens) {
+        if (estimateTokens(text) <= maxTokens) {
+            return text;
+        }
+        int allowance = maxTokens - estimateTokens(ELLIPSIS);
+        if (allowance <= 0) {
+            return "";
+        }
+        int end = (int) (scan(text, allowance) >>> 32);
+        if (Character.isLetterOrDigit(text.charAt(end)) && end > 0
+                && Character.isLetterOrDigit(text.charAt(end - 1))) {
+            // Cut mid-word: back up to the word boundary unless that drops most of the text
+            int space = end;
+            while (space > 0 && !Character.isWhitespace(text.charAt(space - 1))) {
+                space--;
+            }
+            if (space > end / 2) {
+                end = space;
+            }
+        }
+        return text.substring(0, end).trim() + ELLIPSIS;
+    }
+
+    /**
+     * Single pass over text shared by estimation and truncation. Stops before the character
+     * that would take the estimate past maxTokens.
+     * @return the estimate in the low 32 bits and the end of the scanned prefix in the high 32
+     */
+    private static long scan(CharSequence text, int maxTokens) {
+        int tokens = 0;
+        int run = 0;
+        int runStart = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) && !Character.isIdeographic(c)) {
+                if (run == 0) {
+                    runStart = i;
+                }
+                // A run costs one token per started group of four characters
+                if (run % 4 == 0 && tokens + run / 4 + 1 > maxTokens) {
+                    return pack(tokens + run / 4, runStart + run);
+                }
+                run++;
+                continue;
+            }
+            tokens += (run + 3) / 4;
+            run = 0;
+            if (!Character.isWhitespace(c) && !Character.isLowSurrogate(c)) {
+                if (tokens + 1 > maxTokens) {
+                    return pack(tokens, i);
+                }
+                tokens++;
+            }
+        }
+        tokens += (run + 3) / 4;
+        return pack(tokens, length);
+    }
+
+    private static long pack(int tokens, int end) {
+        return ((long) end << 32) | (tokens & 0xFFFFFFFFL);
+    }
+}
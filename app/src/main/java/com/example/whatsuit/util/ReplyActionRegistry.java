@@ -0,0 +1,94 @@
+package com.example.whatsuit.util;
+
+import android.app.Notification;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Latest reply-capable notification action per conversation, so replies sent after the
+ * notification was handled (retries, delayed or coalesced replies) go through the freshest
+ * action. Bounded to the most recently used conversations; entries are refreshed on every
+ * post and dropped when their notification is removed.
+ */
+public class ReplyActionRegistry {
+    private final int maxConversations;
+    // Access order, so the least recently posted or used conversation is evicted first
+    private final LinkedHashMap<String, Entry> entries;
+
+    private static final class Entry {
+        final String notificationKey;
+        final Notification.Action action;
+
+        Entry(String notificationKey, Notification.Action action) {
+            this.notificationKey = notificationKey;
+            this.action = action;
+        }
+    }
+
+    public ReplyActionRegistry(int maxConversations) {
+        this.maxConversations = maxConversations;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ReplyActionRegistry.this.maxConversations;
+            }
+        };
+    }
+
+    public synchronized void put(String conversationId, String notificationKey, Notification.Action action) {
+        if (conversationId == null || action == null) {
+            return;
+        }
+        entries.put(conversationId, new Entry(notificationKey, action));
+    }
+
+    /**
+     * @return the latest reply action for the conversation, or null if none is known
+     */
+    public synchronized Notification.Action get(String conversationId) {
+        Entry entry = entries.get(conversationId);
+        return entry != null ? entry.action : null;
+    }
+
+    /**
+     * Drops the action registered by the removed notification. A conversation whose action has
+     * since been replaced by a newer notification is kept.
+     */
+    public synchronized void removeNotification(String notificationKey) {
+        if (notificationKey == null) {
+            return;
+        }
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (notificationKey.equals(iterator.next().notificationKey)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops actions whose notification is no longer showing.
+     */
+    public synchronized void retainNotifications(Set<String> activeNotificationKeys) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (!activeNotificationKeys.contains(iterator.next().notificationKey)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void remove(String conversationId) {
+        entries.remove(conversationId);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
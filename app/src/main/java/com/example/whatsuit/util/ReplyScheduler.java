@@ -0,0 +1,307 @@
+package com.example.whatsuit.util;
+
+import com.example.whatsuit.metrics.LatencyHistogram;
+import com.example.whatsuit.metrics.Metrics;
+import com.example.whatsuit.metrics.PipelineTrace;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Orders auto-replies so a flood from one app or group chat cannot hold up the others.
+ *
+ * Replies are queued per conversation, conversations per app and apps per {@link Priority}.
+ * Priorities are served by smooth weighted round-robin, so keyword replies (no network) go
+ * before direct chats and direct chats before groups without starving any of them; within a
+ * priority, apps take turns and so do the conversations of an app. At most maxInFlight replies
+ * run at once and at most one per conversation, so a conversation's replies stay in order.
+ */
+public class ReplyScheduler {
+    public enum Priority {
+        KEYWORD(4),
+        DIRECT(2),
+        GROUP(1);
+
+        final int weight;
+
+        Priority(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A queued reply. Calls done exactly once when it no longer needs its slot, from any thread;
+     * asynchronous replies hold the slot until their callback.
+     */
+    public interface Task {
+        void run(Runnable done);
+    }
+
+    private static final class Entry {
+        final String conversationId;
+        final Priority priority;
+        final Task task;
+        final long enqueuedAt = LatencyHistogram.start();
+
+        Entry(String conversationId, Priority priority, Task task) {
+            this.conversationId = conversationId;
+            this.priority = priority;
+            this.task = task;
+        }
+    }
+
+    private static final class ConversationQueue {
+        final String conversationId;
+        final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+        ConversationQueue(String conversationId) {
+            this.conversationId = conversationId;
+        }
+    }
+
+    // Conversations of one app in one priority, served in turn
+    private static final class AppQueue {
+        final String packageName;
+        final ArrayDeque<ConversationQueue> conversations = new ArrayDeque<>();
+        final Map<String, ConversationQueue> byId = new HashMap<>();
+
+        AppQueue(String packageName) {
+            this.packageName = packageName;
+        }
+
+        void add(Entry entry) {
+            ConversationQueue queue = byId.get(entry.conversationId);
+            if (queue == null) {
+                queue = new ConversationQueue(entry.conversationId);
+                byId.put(entry.conversationId, queue);
+                conversations.addLast(queue);
+            }
+            queue.entries.addLast(entry);
+        }
+
+        boolean hasRunnable(Set<String> running) {
+            for (ConversationQueue queue : conversations) {
+                if (!running.contains(queue.conversationId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Takes the next entry of the first conversation that is not running and moves that
+         * conversation to the back.
+         */
+        Entry poll(Set<String> running) {
+            Iterator<ConversationQueue> iterator = conversations.iterator();
+            while (iterator.hasNext()) {
+                ConversationQueue queue = iterator.next();
+                if (running.contains(queue.conversationId)) {
+                    continue;
+                }
+                iterator.remove();
+                Entry entry = queue.entries.pollFirst();
+                if (queue.entries.isEmpty()) {
+                    byId.remove(queue.conversationId);
+                } else {
+                    conversations.addLast(queue);
+                }
+                return entry;
+            }
+            return null;
+        }
+    }
+
+    // Apps with replies of one priority, served in turn
+    private static final class PriorityLane {
+        final Priority priority;
+        final ArrayDeque<AppQueue> apps = new ArrayDeque<>();
+        final Map<String, AppQueue> byPackage = new HashMap<>();
+        // Smooth weighted round-robin state
+        int currentWeight;
+
+        PriorityLane(Priority priority) {
+            this.priority = priority;
+        }
+
+        void add(String packageName, Entry entry) {
+            AppQueue app = byPackage.get(packageName);
+            if (app == null) {
+                app = new AppQueue(packageName);
+                byPackage.put(packageName, app);
+                apps.addLast(app);
+            }
+            app.add(entry);
+        }
+
+        boolean hasRunnable(Set<String> running) {
+            for (AppQueue app : apps) {
+                if (app.hasRunnable(running)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Entry poll(Set<String> running) {
+            Iterator<AppQueue> iterator = apps.iterator();
+            while (iterator.hasNext()) {
+                AppQueue app = iterator.next();
+                Entry entry = app.poll(running);
+                if (entry == null) {
+                    continue;
+                }
+                iterator.remove();
+                if (app.conversations.isEmpty()) {
+                    byPackage.remove(app.packageName);
+                } else {
+                    apps.addLast(app);
+                }
+                if (apps.isEmpty()) {
+                    currentWeight = 0;
+                }
+                return entry;
+            }
+            return null;
+        }
+    }
+
+    private final int maxInFlight;
+    private final Executor executor;
+    private final PriorityLane[] lanes;
+    private final Set<String> runningConversations = new HashSet<>();
+    private int queued;
+    private int inFlight;
+
+    /**
+     * @param executor runs each task; the task may finish later through its done callback
+     */
+    public ReplyScheduler(int maxInFlight, Executor executor) {
+        this.maxInFlight = maxInFlight;
+        this.executor = executor;
+        Priority[] priorities = Priority.values();
+        lanes = new PriorityLane[priorities.length];
+        for (Priority priority : priorities) {
+            lanes[priority.ordinal()] = new PriorityLane(priority);
+        }
+    }
+
+    public void submit(String packageName, String conversationId, Priority priority, Task task) {
+        String key = conversationId != null ? conversationId : "";
+        synchronized (this) {
+            lanes[priority.ordinal()].add(packageName != null ? packageName : "", new Entry(key, priority, task));
+            queued++;
+            updateQueueDepth();
+        }
+        drain();
+    }
+
+    /**
+     * @return replies waiting for a slot
+     */
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    private void drain() {
+        List<Entry> started = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < maxInFlight) {
+                Entry entry = pollNext();
+                if (entry == null) {
+                    break;
+                }
+                inFlight++;
+                queued--;
+                runningConversations.add(entry.conversationId);
+                started.add(entry);
+            }
+            if (!started.isEmpty()) {
+                updateQueueDepth();
+            }
+        }
+        for (Entry entry : started) {
+            start(entry);
+        }
+    }
+
+    /**
+     * Smooth weighted round-robin over the priorities that have a runnable reply: each gains
+     * its weight, the highest is served and pays back the total.
+     */
+    private Entry pollNext() {
+        PriorityLane selected = null;
+        int totalWeight = 0;
+        for (PriorityLane lane : lanes) {
+            if (!lane.hasRunnable(runningConversations)) {
+                continue;
+            }
+            lane.currentWeight += lane.priority.weight;
+            totalWeight += lane.priority.weight;
+            if (selected == null || lane.currentWeight > selected.currentWeight) {
+                selected = lane;
+            }
+        }
+        if (selected == null) {
+            return null;
+        }
+        selected.currentWeight -= totalWeight;
+        return selected.poll(runningConversations);
+    }
+
+    private void start(Entry entry) {
+        long waitNanos = LatencyHistogram.start() - entry.enqueuedAt;
+        Metrics.REPLY_QUEUE_WAIT.recordNanos(waitNanos);
+        waitHistogram(entry.priority).recordNanos(waitNanos);
+
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable done = () -> {
+            if (finished.compareAndSet(false, true)) {
+                finish(entry);
+            }
+        };
+        executor.execute(() -> {
+            try {
+                entry.task.run(done);
+            } catch (RuntimeException e) {
+                done.run();
+                throw e;
+            }
+        });
+    }
+
+    private void finish(Entry entry) {
+        synchronized (this) {
+            inFlight--;
+            runningConversations.remove(entry.conversationId);
+        }
+        drain();
+    }
+
+    private void updateQueueDepth() {
+        Metrics.REPLY_QUEUE_DEPTH.set(queued);
+        PipelineTrace.setCounter(PipelineTrace.COUNTER_REPLY_QUEUE_DEPTH, queued);
+    }
+
+    private static LatencyHistogram waitHistogram(Priority priority) {
+        switch (priority) {
+            case KEYWORD:
+                return Metrics.REPLY_QUEUE_WAIT_KEYWORD;
+            case DIRECT:
+                return Metrics.REPLY_QUEUE_WAIT_DIRECT;
+            default:
+                return Metrics.REPLY_QUEUE_WAIT_GROUP;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.whatsuit.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Switch for detailed logging (message contents, per-step decisions). Off by default; callers
+ * check {@link #isEnabled()} before building the log message so a disabled log costs one
+ * volatile read.
+ */
+public final class VerboseLog {
+    public static final String PREF_VERBOSE_LOGGING = "verbose_logging";
+
+    private static volatile boolean enabled;
+    private static volatile boolean loaded;
+
+    private VerboseLog() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the stored setting. Cheap after the first call.
+     */
+    public static void init(Context context) {
+        if (!loaded) {
+            enabled = prefs(context).getBoolean(PREF_VERBOSE_LOGGING, false);
+            loaded = true;
+        }
+    }
+
+    public static void setEnabled(Context context, boolean value) {
+        prefs(context).edit().putBoolean(PREF_VERBOSE_LOGGING, value).apply();
+        enabled = value;
+        loaded = true;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences("whatsuit_settings", Context.MODE_PRIVATE);
+    }
+}
@@ -3,19 +3,26 @@ package com.example.whatsuit.viewmodel;
 import android.app.Application;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.MessageEntity;
 import com.example.whatsuit.data.NotificationEntity;
 import com.example.whatsuit.data.ConversationHistory;
 
 public class NotificationDetailViewModel extends AndroidViewModel {
     private final AppDatabase database;
     private final MutableLiveData<NotificationEntity> currentNotification;
-    private final MutableLiveData<List<NotificationEntity>> relatedNotifications;
+    // Messages of the conversation; the source query changes with the time filter
+    private final MediatorLiveData<List<MessageEntity>> messages;
+    private LiveData<List<MessageEntity>> messageSource;
+    private String loadedConversationId;
     private final MutableLiveData<List<ConversationHistory>> conversations;
     private final Executor executor;
 
@@ -23,7 +30,7 @@ public class NotificationDetailViewModel extends AndroidViewModel {
         super(application);
         database = AppDatabase.getDatabase(application);
         currentNotification = new MutableLiveData<>();
-        relatedNotifications = new MutableLiveData<>();
+        messages = new MediatorLiveData<>();
         conversations = new MutableLiveData<>();
         executor = Executors.newSingleThreadExecutor();
     }
@@ -32,16 +39,57 @@ public class NotificationDetailViewModel extends AndroidViewModel {
         database.notificationDao().getNotificationById(notificationId)
                 .observeForever(notification -> {
                     currentNotification.setValue(notification);
-                    loadRelatedNotifications(notificationId);
+                    loadMessages(notification);
                     loadConversations(notificationId);
                 });
     }
 
-    private void loadRelatedNotifications(long notificationId) {
-        database.notificationDao().getRelatedNotifications(notificationId)
-                .observeForever(notifications -> {
-                    relatedNotifications.setValue(notifications);
-                });
+    /**
+     * Shows the conversation's messages; the row is updated with every new message, so the
+     * query is only replaced when the conversation changes.
+     */
+    private void loadMessages(NotificationEntity notification) {
+        String conversationId = notification != null ? notification.getConversationId() : null;
+        if (conversationId == null) {
+            showMessages(null, notification);
+            return;
+        }
+        if (conversationId.equals(loadedConversationId)) {
+            return;
+        }
+        loadedConversationId = conversationId;
+        showMessages(database.messageDao().getMessagesForConversation(conversationId), notification);
+    }
+
+    /**
+     * @param fallback shown as the only message while the messages table has none for the
+     *                 conversation (rows stored before it existed, apps without messages)
+     */
+    private void showMessages(LiveData<List<MessageEntity>> source, NotificationEntity fallback) {
+        if (messageSource != null) {
+            messages.removeSource(messageSource);
+        }
+        messageSource = source;
+        if (source == null) {
+            messages.setValue(asMessages(fallback));
+            return;
+        }
+        messages.addSource(source, list -> {
+            if (list.isEmpty() && fallback != null) {
+                messages.setValue(asMessages(currentNotification.getValue()));
+            } else {
+                messages.setValue(list);
+            }
+        });
+    }
+
+    private static List<MessageEntity> asMessages(NotificationEntity notification) {
+        if (notification == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new MessageEntity(
+                Objects.toString(notification.getConversationId(), ""), notification.getTitle(),
+                notification.getContent(), notification.getTimestamp()));
     }
 
     private void loadConversations(long notificationId) {
@@ -83,38 +131,18 @@ public class NotificationDetailViewModel extends AndroidViewModel {
 
     public void filterNotificationsByTimeRange(long startTime, long endTime) {
         NotificationEntity notification = currentNotification.getValue();
-        if (notification == null) return;
-
-        String phoneNumber = "";
-        String titlePrefix = "";
-        
-        if (notification.getPackageName().contains("whatsapp") && 
-            notification.getContent().matches(".*\\d.*")) {
-            phoneNumber = notification.getContent().replaceAll("[^0-9]", "")
-                         .substring(0, Math.min(11, notification.getContent().length()));
-        } else {
-            titlePrefix = notification.getTitle()
-                         .substring(0, Math.min(5, notification.getTitle().length()));
-        }
+        if (notification == null || notification.getConversationId() == null) return;
 
-        database.notificationDao()
-                .getRelatedNotificationsByTimeRange(
-                        notification.getPackageName(),
-                        phoneNumber,
-                        titlePrefix,
-                        startTime,
-                        endTime)
-                .observeForever(notifications -> {
-                    relatedNotifications.setValue(notifications);
-                });
+        showMessages(database.messageDao().getMessagesForConversationInRange(
+                notification.getConversationId(), startTime, endTime), null);
     }
 
     public LiveData<NotificationEntity> getCurrentNotification() {
         return currentNotification;
     }
 
-    public LiveData<List<NotificationEntity>> getRelatedNotifications() {
-        return relatedNotifications;
+    public LiveData<List<MessageEntity>> getMessages() {
+        return messages;
     }
 
     public LiveData<List<ConversationHistory>> getConversations() {
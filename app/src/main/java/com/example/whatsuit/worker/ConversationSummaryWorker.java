@@ -0,0 +1,68 @@
+package com.example.whatsuit.worker;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.whatsuit.metrics.Metrics;
+import com.example.whatsuit.service.GeminiService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds the newest exchanges of a conversation into its rolling summary (see
+ * {@link GeminiService#refreshSummarySync(String)}). Enqueued by GeminiService after a reply
+ * once enough exchanges are not yet covered; at most one run per conversation is queued.
+ */
+public class ConversationSummaryWorker extends Worker {
+    private static final String TAG = "ConversationSummaryWorker";
+    private static final String WORK_NAME_PREFIX = "conversation_summary_";
+    private static final String KEY_CONVERSATION_ID = "conversation_id";
+    private static final long INITIAL_BACKOFF_SECONDS = 60;
+    private static final int MAX_ATTEMPTS = 3;
+
+    public ConversationSummaryWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void enqueue(Context context, String conversationId) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ConversationSummaryWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .setInputData(new Data.Builder()
+                        .putString(KEY_CONVERSATION_ID, conversationId)
+                        .build())
+                .build();
+        // A queued run picks up every exchange added before it starts, so keep it
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(WORK_NAME_PREFIX + conversationId, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String conversationId = getInputData().getString(KEY_CONVERSATION_ID);
+        if (conversationId == null) {
+            return Result.failure();
+        }
+        try {
+            GeminiService.getInstance(getApplicationContext()).refreshSummarySync(conversationId);
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Summary refresh failed for " + conversationId, e);
+            Metrics.SUMMARIES_FAILED.increment();
+            // The previous summary stays usable, so give up after a few attempts
+            return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+    }
+}
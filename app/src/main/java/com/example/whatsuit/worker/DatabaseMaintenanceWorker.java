@@ -0,0 +1,56 @@
+package com.example.whatsuit.worker;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.DatabaseConfig;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily background job for SQLite upkeep (see {@link DatabaseConfig#runMaintenance}).
+ */
+public class DatabaseMaintenanceWorker extends Worker {
+    private static final String TAG = "DatabaseMaintenanceWorker";
+    private static final String WORK_NAME = "database_maintenance";
+
+    public DatabaseMaintenanceWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedules the daily maintenance job. Safe to call repeatedly; an existing schedule is kept.
+     */
+    public static void schedule(Context context) {
+        // VACUUM rewrites the file, so only run while idle and charging
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                DatabaseMaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            AppDatabase database = AppDatabase.getDatabase(getApplicationContext());
+            DatabaseConfig.runMaintenance(database.getOpenHelper().getWritableDatabase());
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Database maintenance failed", e);
+            return Result.retry();
+        }
+    }
+}
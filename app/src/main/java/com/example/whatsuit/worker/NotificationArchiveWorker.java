@@ -0,0 +1,54 @@
+package com.example.whatsuit.worker;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.whatsuit.util.NotificationArchiver;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily background job that applies notification retention (see {@link NotificationArchiver}).
+ */
+public class NotificationArchiveWorker extends Worker {
+    private static final String TAG = "NotificationArchiveWorker";
+    private static final String WORK_NAME = "notification_archive";
+
+    public NotificationArchiveWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedules the daily archive job. Safe to call repeatedly; an existing schedule is kept.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                NotificationArchiveWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            int archived = new NotificationArchiver(getApplicationContext()).archiveExpired();
+            Log.d(TAG, "Retention run archived " + archived + " notifications");
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Retention run failed", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.whatsuit.worker;
+
+import android.app.Notification;
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.whatsuit.NotificationService;
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.NotificationEntity;
+import com.example.whatsuit.data.PendingReplyDao;
+import com.example.whatsuit.data.PendingReplyEntity;
+import com.example.whatsuit.metrics.Metrics;
+import com.example.whatsuit.service.GeminiService;
+import com.example.whatsuit.service.ReplyGenerator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import kotlinx.coroutines.Job;
+
+/**
+ * Retries auto-replies queued in pending_replies. Runs only with network access and backs off
+ * exponentially between runs. A reply is generated again if generation failed, or just resent
+ * if it was generated, as long as the notification is still showing with a reply action;
+ * otherwise it is dropped.
+ */
+public class ReplyDispatchWorker extends Worker {
+    private static final String TAG = "ReplyDispatchWorker";
+    private static final String WORK_NAME = "reply_dispatch";
+
+    // A reply arriving much later than the message reads as out of place, so give up after this
+    public static final long PENDING_REPLY_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    static final int MAX_ATTEMPTS = 5;
+    static final long INITIAL_BACKOFF_SECONDS = 30;
+    private static final int BATCH_SIZE = 20;
+    private static final long GENERATE_TIMEOUT_SECONDS = 60;
+
+    public ReplyDispatchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Queues a reply for retry and schedules the dispatcher.
+     * @param replyText the generated reply, or null if it still has to be generated
+     */
+    public static void enqueue(Context context, NotificationEntity notification, String notificationKey,
+                               String replyText, String error) {
+        PendingReplyEntity pending = newPendingReply(notification, notificationKey, replyText, error,
+                System.currentTimeMillis());
+        AppDatabase.getDatabase(context).pendingReplyDao().insert(pending);
+        Metrics.REPLIES_QUEUED.increment();
+        schedule(context);
+    }
+
+    static PendingReplyEntity newPendingReply(NotificationEntity notification, String notificationKey,
+                                              String replyText, String error, long now) {
+        PendingReplyEntity pending = new PendingReplyEntity();
+        pending.setNotificationId(notification.getId());
+        pending.setNotificationKey(notificationKey);
+        pending.setConversationId(notification.getConversationId());
+        pending.setMessage(notification.getContent());
+        pending.setReplyText(replyText);
+        pending.setLastError(error);
+        pending.setCreatedAt(now);
+        pending.setExpiresAt(now + PENDING_REPLY_TTL_MILLIS);
+        return pending;
+    }
+
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ReplyDispatchWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        // Appending makes sure rows queued while a run is in progress get their own run
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        AppDatabase database = AppDatabase.getDatabase(getApplicationContext());
+        PendingReplyDao dao = database.pendingReplyDao();
+
+        int expired = dao.deleteExpired(System.currentTimeMillis());
+        if (expired > 0) {
+            Metrics.REPLIES_EXPIRED.add(expired);
+            Log.d(TAG, "Dropped " + expired + " expired pending replies");
+        }
+
+        List<PendingReplyEntity> batch = dao.getOldest(BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return Result.success();
+        }
+
+        // Reply actions only exist in the notifications the listener currently sees
+        NotificationService service = NotificationService.getConnectedInstance();
+        if (service == null) {
+            Log.d(TAG, "Notification listener not connected, retrying later");
+            return Result.retry();
+        }
+
+        boolean retryNeeded = false;
+        for (PendingReplyEntity pending : batch) {
+            if (isStopped()) {
+                return Result.retry();
+            }
+            if (!dispatch(service, database, pending)) {
+                retryNeeded = true;
+            }
+        }
+        if (batch.size() == BATCH_SIZE) {
+            retryNeeded = true;
+        }
+        return retryNeeded ? Result.retry() : Result.success();
+    }
+
+    /**
+     * @return false if the row was kept for another attempt
+     */
+    private boolean dispatch(NotificationService service, AppDatabase database, PendingReplyEntity pending) {
+        PendingReplyDao dao = database.pendingReplyDao();
+        NotificationEntity notification = database.notificationDao().getNotificationByIdSync(pending.getNotificationId());
+        Notification.Action action = service.getReplyAction(pending.getConversationId(), pending.getNotificationKey());
+        if (notification == null || notification.isAutoReplied() || action == null) {
+            // Already answered, or the user dismissed the notification and its reply action with it
+            dao.deleteById(pending.getId());
+            Metrics.REPLIES_EXPIRED.increment();
+            return true;
+        }
+
+        try {
+            if (pending.getReplyText() == null) {
+                pending.setReplyText(generateReply(service.getReplyGenerator(), pending));
+                // Keep the text so a failed send is not generated a second time
+                dao.update(pending);
+            }
+            if (!service.deliverReply(notification, action, pending.getReplyText())) {
+                // Not sent, so not marked replied; a newer post of the conversation may bring a fresh action
+                return recordFailure(dao, pending, "Reply could not be sent");
+            }
+            dao.deleteById(pending.getId());
+            Metrics.REPLIES_RETRIED.increment();
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Pending reply " + pending.getId() + " failed: " + e.getMessage());
+            return recordFailure(dao, pending, e.getMessage());
+        }
+    }
+
+    /**
+     * Counts a failed attempt and drops the row after the last one.
+     * @return false if the row was kept for another attempt
+     */
+    private static boolean recordFailure(PendingReplyDao dao, PendingReplyEntity pending, String error) {
+        pending.setAttempts(pending.getAttempts() + 1);
+        pending.setLastError(error);
+        if (pending.getAttempts() >= MAX_ATTEMPTS) {
+            dao.deleteById(pending.getId());
+            Metrics.REPLIES_EXPIRED.increment();
+            return true;
+        }
+        dao.update(pending);
+        return false;
+    }
+
+    private static String generateReply(ReplyGenerator generator, PendingReplyEntity pending) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> reply = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Job job = generator.generateReply(pending.getNotificationId(), pending.getMessage(), new GeminiService.ResponseCallback() {
+            @Override
+            public void onPartialResponse(String text) {
+            }
+
+            @Override
+            public void onComplete(String fullResponse) {
+                reply.set(fullResponse);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                failure.set(error);
+                done.countDown();
+            }
+        });
+
+        if (!done.await(GENERATE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            job.cancel(null);
+            throw new IllegalStateException("Reply generation timed out");
+        }
+        if (failure.get() != null) {
+            throw new Exception(failure.get().getMessage(), failure.get());
+        }
+        return reply.get();
+    }
+}
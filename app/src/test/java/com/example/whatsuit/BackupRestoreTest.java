@@ -8,6 +8,9 @@ import android.net.Uri;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.MessageDao;
+import com.example.whatsuit.data.MessageEntity;
 import com.example.whatsuit.util.BackupRestoreManager;
 
 import org.junit.Before;
@@ -15,8 +18,15 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Test class for BackupRestoreManager functionality
@@ -24,6 +34,8 @@ import java.util.concurrent.TimeUnit;
 @RunWith(AndroidJUnit4.class)
 public class BackupRestoreTest {
     
+    private static final String CONVERSATION = "com.whatsapp_family";
+
     private Context context;
     private BackupRestoreManager backupRestoreManager;
     
@@ -63,6 +75,7 @@ public class BackupRestoreTest {
         assertNull(backup.appSettings);
         assertNull(backup.keywordActions);
         assertNull(backup.conversationReplyCounts);
+        assertNull(backup.messages);
     }
     
     @Test
@@ -119,4 +132,98 @@ public class BackupRestoreTest {
             fail("Callback test interrupted");
         }
     }
+
+    @Test
+    public void testFullBackupRoundTripsMessages() throws Exception {
+        MessageDao dao = AppDatabase.getDatabase(context).messageDao();
+        onBackgroundThread(() -> {
+            dao.deleteAll();
+            dao.insertAll(Arrays.asList(
+                    new MessageEntity(CONVERSATION, "Alice", "hi all", 1000L),
+                    new MessageEntity(CONVERSATION, null, "hey", 2000L)));
+            return null;
+        });
+        Uri archive = Uri.fromFile(new File(context.getCacheDir(), "messages_full.zip"));
+
+        await(callback -> backupRestoreManager.createBackup(archive, callback));
+        onBackgroundThread(() -> {
+            dao.deleteAll();
+            return null;
+        });
+        await(callback -> backupRestoreManager.restoreBackup(archive, callback));
+
+        List<MessageEntity> restored = onBackgroundThread(() -> dao.getMessagesAfterSync(CONVERSATION, 0, 10));
+        assertEquals(2, restored.size());
+        assertEquals("hey", restored.get(0).getText());
+        assertNull(restored.get(0).getSender());
+        assertEquals("Alice", restored.get(1).getSender());
+    }
+
+    @Test
+    public void testIncrementalBackupCarriesNewMessages() throws Exception {
+        MessageDao dao = AppDatabase.getDatabase(context).messageDao();
+        onBackgroundThread(() -> {
+            dao.deleteAll();
+            dao.insertAll(Collections.singletonList(new MessageEntity(CONVERSATION, "Alice", "hi all", 1000L)));
+            return null;
+        });
+        Uri full = Uri.fromFile(new File(context.getCacheDir(), "messages_base.zip"));
+        Uri increment = Uri.fromFile(new File(context.getCacheDir(), "messages_increment.zip"));
+
+        await(callback -> backupRestoreManager.createBackup(full, BackupRestoreManager.BackupFormat.BINARY, callback));
+        onBackgroundThread(() -> {
+            dao.insertAll(Collections.singletonList(new MessageEntity(CONVERSATION, "Bob", "hello", 2000L)));
+            return null;
+        });
+        await(callback -> backupRestoreManager.createIncrementalBackup(increment,
+                BackupRestoreManager.BackupFormat.BINARY, callback));
+        onBackgroundThread(() -> {
+            dao.deleteAll();
+            return null;
+        });
+        await(callback -> backupRestoreManager.restoreBackupChain(Arrays.asList(increment, full), callback));
+
+        List<MessageEntity> restored = onBackgroundThread(() -> dao.getMessagesAfterSync(CONVERSATION, 0, 10));
+        assertEquals(2, restored.size());
+        assertEquals("hello", restored.get(0).getText());
+        assertEquals("hi all", restored.get(1).getText());
+    }
+
+    private interface BackupCall {
+        void start(BackupRestoreManager.BackupRestoreCallback callback);
+    }
+
+    // Runs a backup or restore and waits for its result
+    private static void await(BackupCall call) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> error = new AtomicReference<>();
+        call.start(new BackupRestoreManager.BackupRestoreCallback() {
+            @Override
+            public void onProgress(String message, int progress) {
+            }
+
+            @Override
+            public void onSuccess(String message) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String message) {
+                error.set(message);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertNull(error.get(), error.get());
+    }
+
+    // Room refuses queries on the main thread
+    private static <T> T onBackgroundThread(Callable<T> work) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(work).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -31,7 +31,8 @@ class GeminiServiceTest {
         `when`(context.applicationContext).thenReturn(context)
         `when`(AppDatabase.getDatabase(context)).thenReturn(database)
         `when`(database.geminiDao()).thenReturn(geminiDao)
-        geminiService = GeminiService(context)
+        GeminiService.resetInstance()
+        geminiService = GeminiService.getInstance(context)
     }
 
     @Test
@@ -0,0 +1,128 @@
+package com.example.whatsuit.benchmark;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.DatabaseConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JVM version of the :benchmark microbenchmarks, runnable on a CI box without an emulator.
+ * Robolectric provides the Android SQLite bindings, so absolute numbers differ from a device
+ * but are stable enough to track regressions between runs on the same machine.
+ *
+ * Run with ./gradlew testDebugUnitTest --tests '*DaoBenchmarkTest' -Dwhatsuit.benchmark=true
+ * Results are written to app/build/benchmark-results/dao-benchmark.json.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DaoBenchmarkTest {
+    private static final String DATABASE_NAME = "dao_benchmark";
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MIN_ITERATIONS = 10;
+    private static final long TARGET_NANOS = 2_000_000_000L;
+
+    /**
+     * One benchmark result, in the shape written to the JSON report
+     */
+    static class Result {
+        String name;
+        int rows;
+        int iterations;
+        long minNs;
+        long medianNs;
+        long p90Ns;
+        long meanNs;
+    }
+
+    @Test
+    public void benchmarkDaoOperations() throws IOException {
+        assumeTrue(Boolean.getBoolean("whatsuit.benchmark"));
+
+        Context context = ApplicationProvider.getApplicationContext();
+        List<Result> results = new ArrayList<>();
+        for (int rows : BenchmarkDataset.SIZES) {
+            for (DaoOperation operation : DaoOperation.values()) {
+                if (rows > operation.maxRows) {
+                    continue;
+                }
+                context.deleteDatabase(DATABASE_NAME);
+                AppDatabase database = DatabaseConfig.configure(
+                        Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME))
+                        .allowMainThreadQueries()
+                        .build();
+                try {
+                    BenchmarkDataset dataset = BenchmarkDataset.populate(database, rows);
+                    Result result = measure(operation, database, dataset);
+                    results.add(result);
+                    System.out.printf("%-40s %,7d rows: median %,d ns, p90 %,d ns (%d iterations)%n",
+                            result.name, rows, result.medianNs, result.p90Ns, result.iterations);
+                } finally {
+                    database.close();
+                    context.deleteDatabase(DATABASE_NAME);
+                }
+            }
+        }
+        writeReport(results, new File("build/benchmark-results/dao-benchmark.json"));
+    }
+
+    private static Result measure(DaoOperation operation, AppDatabase database, BenchmarkDataset dataset) {
+        int iteration = 0;
+        for (; iteration < WARMUP_ITERATIONS; iteration++) {
+            operation.run(database, dataset, iteration);
+        }
+
+        List<Long> samples = new ArrayList<>();
+        long total = 0;
+        while (samples.size() < MIN_ITERATIONS || total < TARGET_NANOS) {
+            long start = System.nanoTime();
+            operation.run(database, dataset, iteration++);
+            long elapsed = System.nanoTime() - start;
+            samples.add(elapsed);
+            total += elapsed;
+        }
+
+        long[] sorted = new long[samples.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+
+        Result result = new Result();
+        result.name = operation.methodName;
+        result.rows = dataset.rows;
+        result.iterations = sorted.length;
+        result.minNs = sorted[0];
+        result.medianNs = sorted[sorted.length / 2];
+        result.p90Ns = sorted[(int) (sorted.length * 0.9)];
+        result.meanNs = total / sorted.length;
+        return result;
+    }
+
+    private static void writeReport(List<Result> results, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = new FileWriter(file)) {
+            gson.toJson(results, writer);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.whatsuit.data;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the per-conversation reads of the messages table
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MessageDaoTest {
+    private static final String CONVERSATION = "com.whatsapp_family";
+    private static final String OTHER = "com.whatsapp_12345678901";
+
+    private AppDatabase database;
+    private MessageDao dao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        dao = database.messageDao();
+        dao.insertAll(Arrays.asList(
+                new MessageEntity(CONVERSATION, "Alice", "hi all", 1000L),
+                new MessageEntity(OTHER, "Bob", "unrelated", 1500L),
+                new MessageEntity(CONVERSATION, "Bob", "hello", 2000L),
+                new MessageEntity(CONVERSATION, null, "hey", 3000L)));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testReadsOnlyTheConversationNewestFirst() {
+        List<MessageEntity> messages = dao.getMessagesAfterSync(CONVERSATION, 0, 10);
+
+        assertEquals(3, messages.size());
+        assertEquals("hey", messages.get(0).getText());
+        assertEquals("hi all", messages.get(2).getText());
+        assertEquals(3, dao.getCountForConversation(CONVERSATION));
+    }
+
+    @Test
+    public void testReadsAfterTimestamp() {
+        List<MessageEntity> messages = dao.getMessagesAfterSync(CONVERSATION, 1000L, 1);
+
+        assertEquals(1, messages.size());
+        assertEquals(3000L, messages.get(0).getTs());
+    }
+
+    @Test
+    public void testSendersSkipMessagesFromThisDevice() {
+        List<String> senders = dao.getSenders(CONVERSATION, 10);
+
+        assertEquals(2, senders.size());
+        assertTrue(senders.containsAll(Arrays.asList("Alice", "Bob")));
+    }
+
+    @Test
+    public void testRetentionReadsAndDeletesOnlyTheConversation() {
+        List<MessageEntity> expired = dao.getMessagesBefore(CONVERSATION, 3000L);
+
+        assertEquals(2, expired.size());
+        assertEquals("hi all", expired.get(0).getText());
+        assertEquals(2, dao.deleteMessagesBefore(CONVERSATION, 3000L));
+        assertEquals(1, dao.getCountForConversation(CONVERSATION));
+        assertEquals(1, dao.getCountForConversation(OTHER));
+    }
+}
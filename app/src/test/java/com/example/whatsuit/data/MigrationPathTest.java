@@ -0,0 +1,24 @@
+package com.example.whatsuit.data;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the schema versions a restored database file may have
+ */
+public class MigrationPathTest {
+
+    @Test
+    public void testEveryReleasedVersionMigratesToCurrent() {
+        for (int version = 1; version <= AppDatabase.DATABASE_VERSION; version++) {
+            assertTrue("No migration path from " + version, AppDatabase.canMigrateFrom(version));
+        }
+    }
+
+    @Test
+    public void testRejectsVersionsOutsideTheMigrationRange() {
+        assertFalse(AppDatabase.canMigrateFrom(0));
+        assertFalse(AppDatabase.canMigrateFrom(AppDatabase.DATABASE_VERSION + 1));
+    }
+}
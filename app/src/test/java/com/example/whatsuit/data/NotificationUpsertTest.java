@@ -0,0 +1,152 @@
+package com.example.whatsuit.data;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Tests for the delta path of NotificationDao.upsertNotification
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationUpsertTest {
+    private static final String CONVERSATION = "com.whatsapp_12345678901";
+
+    private AppDatabase database;
+    private NotificationDao dao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        dao = database.notificationDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testNewMessageUpdatesExistingRow() {
+        long id = dao.upsertNotification(message("hello", 1000L));
+        long updatedId = dao.upsertNotification(message("are you there?", 2000L));
+
+        assertEquals(id, updatedId);
+        NotificationEntity stored = dao.getNotificationByIdSync(id);
+        assertEquals("are you there?", stored.getContent());
+        assertEquals(2000L, stored.getTimestamp());
+        assertEquals(1, dao.getAllNotificationsSync().size());
+    }
+
+    @Test
+    public void testUnchangedRepostKeepsRow() {
+        long id = dao.upsertNotification(message("hello", 1000L));
+        NotificationEntity repost = message("hello", 1000L);
+
+        assertEquals(id, dao.upsertNotification(repost));
+        assertEquals(id, repost.getId());
+        assertEquals("hello", dao.getNotificationByIdSync(id).getContent());
+    }
+
+    @Test
+    public void testNewMessageClearsReplyState() {
+        long id = dao.upsertNotification(message("hello", 1000L));
+        NotificationEntity replied = dao.getNotificationByIdSync(id);
+        replied.setAutoReplied(true);
+        replied.setAutoReplyContent("Hi! I'll get back to you soon.");
+        dao.update(replied);
+
+        dao.upsertNotification(message("thanks", 2000L));
+
+        NotificationEntity stored = dao.getNotificationByIdSync(id);
+        assertEquals("thanks", stored.getContent());
+        assertFalse(stored.isAutoReplied());
+        assertNull(stored.getAutoReplyContent());
+    }
+
+    @Test
+    public void testNewMessageKeepsDisabledFlag() {
+        long id = dao.upsertNotification(message("hello", 1000L));
+        dao.markAutoReplied(id, "Hi! I'll get back to you soon.");
+        NotificationEntity disabled = dao.getNotificationByIdSync(id);
+        disabled.setAutoReplyDisabled(true);
+        dao.update(disabled);
+
+        NotificationEntity next = message("thanks", 2000L);
+        dao.upsertNotification(next);
+
+        NotificationEntity stored = dao.getNotificationByIdSync(id);
+        assertFalse(stored.isAutoReplied());
+        assertTrue(stored.isAutoReplyDisabled());
+        assertTrue(next.isAutoReplyDisabled());
+    }
+
+    @Test
+    public void testRepostKeepsReplyState() {
+        long id = dao.upsertNotification(message("hello", 1000L));
+        dao.markAutoReplied(id, "Hi! I'll get back to you soon.");
+
+        NotificationEntity repost = message("hello", 1000L);
+        dao.upsertNotification(repost);
+
+        assertTrue(dao.getNotificationByIdSync(id).isAutoReplied());
+        assertTrue(repost.isAutoReplied());
+    }
+
+    @Test
+    public void testMarkAutoRepliedKeepsDisabledFlag() {
+        long id = dao.upsertNotification(message("hello", 1000L));
+        NotificationEntity disabled = dao.getNotificationByIdSync(id);
+        disabled.setAutoReplyDisabled(true);
+        dao.update(disabled);
+
+        dao.markAutoReplied(id, "Hi! I'll get back to you soon.");
+
+        NotificationEntity stored = dao.getNotificationByIdSync(id);
+        assertTrue(stored.isAutoReplied());
+        assertEquals("Hi! I'll get back to you soon.", stored.getAutoReplyContent());
+        assertTrue(stored.isAutoReplyDisabled());
+    }
+
+    @Test
+    public void testKeepsGroupFlagWhenNotReported() {
+        NotificationEntity first = message("hello", 1000L);
+        first.setIsGroup(true);
+        dao.upsertNotification(first);
+
+        dao.upsertNotification(message("thanks", 2000L));
+
+        assertEquals(Boolean.TRUE, dao.getIsGroup(CONVERSATION));
+        assertNull(dao.getIsGroup("com.whatsapp_unknown"));
+    }
+
+    @Test
+    public void testComparesOnlyTheirOwnColumns() {
+        NotificationEntity a = message("hello", 1000L);
+        NotificationEntity b = message("bye", 2000L);
+        assertTrue(NotificationDao.hasNoReply(b));
+        assertFalse(NotificationDao.hasSameMessage(a, b));
+
+        b.setAutoReplied(true);
+        assertFalse(NotificationDao.hasNoReply(b));
+        assertTrue(NotificationDao.hasNoReply(a));
+    }
+
+    private static NotificationEntity message(String content, long timestamp) {
+        return new NotificationEntity("com.whatsapp", "WhatsApp", "12345678901", content,
+                CONVERSATION, timestamp, "7");
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.whatsuit.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for the log-linear latency histogram
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContiguous() {
+        long previousUpper = -1;
+        for (int index = 0; index < 1000; index++) {
+            long upper = LatencyHistogram.upperBound(index);
+            assertEquals("bucket " + index, index, LatencyHistogram.indexFor(previousUpper + 1));
+            assertEquals("bucket " + index, index, LatencyHistogram.indexFor(upper));
+            previousUpper = upper;
+        }
+    }
+
+    @Test
+    public void testPercentilesWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Spread over five orders of magnitude, like real pipeline latencies
+            values[i] = (long) Math.pow(10, 1 + random.nextDouble() * 5);
+            histogram.recordMicros(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = histogram.getPercentileMicros(percentile);
+            assertTrue("p" + percentile + " expected " + expected + " got " + actual,
+                    actual >= expected && actual <= expected * 1.03 + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.getMaxMicros());
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int i = 1; i <= 10; i++) {
+            histogram.recordMicros(i);
+        }
+        assertEquals(5, histogram.getPercentileMicros(50));
+        assertEquals(10, histogram.getPercentileMicros(100));
+        assertEquals(5, histogram.getMeanMicros());
+    }
+
+    @Test
+    public void testHugeAndNegativeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.recordMicros(-5);
+        histogram.recordMicros(Long.MAX_VALUE / 2);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(50));
+        assertEquals(Long.MAX_VALUE / 2, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void testResetClearsValues() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.recordMillis(250);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(99));
+    }
+}
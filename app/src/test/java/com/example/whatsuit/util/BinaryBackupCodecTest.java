@@ -0,0 +1,190 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import com.example.whatsuit.data.NotificationEntity;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the binary backup encoding
+ */
+public class BinaryBackupCodecTest {
+
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    @Test
+    public void testRoundTripPreservesBackup() throws IOException {
+        BackupRestoreManager.DatabaseBackup backup = createBackup(50);
+        backup.notificationIds = Arrays.asList(1L, 2L, 3L);
+
+        JsonElement tree = gson.toJsonTree(backup);
+        JsonElement decoded = BinaryBackupCodec.read(new ByteArrayInputStream(encode(tree)));
+
+        assertEquals(tree, decoded);
+        BackupRestoreManager.DatabaseBackup restored = gson.fromJson(decoded, BackupRestoreManager.DatabaseBackup.class);
+        assertEquals(50, restored.notifications.size());
+        NotificationEntity first = restored.notifications.get(0);
+        assertEquals("com.whatsapp", first.getPackageName());
+        assertEquals(1_700_000_000_000L, first.getTimestamp());
+        assertNull(first.getAutoReplyContent());
+        assertEquals(Arrays.asList(1L, 2L, 3L), restored.notificationIds);
+    }
+
+    @Test
+    public void testRoundTripPrimitives() throws IOException {
+        JsonElement tree = JsonParser.parseString(
+                "{\"negative\":-42,\"large\":9223372036854775807,\"fraction\":0.7," +
+                "\"flag\":true,\"empty\":[],\"mixed\":[1,\"a\",null,{\"k\":\"a\"}],\"unicode\":\"héllo ✓\"}");
+
+        assertEquals(tree, BinaryBackupCodec.read(new ByteArrayInputStream(encode(tree))));
+    }
+
+    @Test
+    public void testStreamedRowsDecodeLikeTheTree() throws IOException {
+        List<NotificationEntity> notifications = createBackup(20).notifications;
+        notifications.get(3).setAutoReplyContent("Thanks, talk soon");
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        BinaryBackupCodec.writeRows(notifications, gson, streamed);
+
+        assertEquals(BinaryBackupCodec.read(new ByteArrayInputStream(encode(gson.toJsonTree(notifications)))),
+                BinaryBackupCodec.read(new ByteArrayInputStream(streamed.toByteArray())));
+    }
+
+    @Test
+    public void testStreamedIdListRoundTrips() throws IOException {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        BinaryBackupCodec.writeRows(ids, gson, streamed);
+
+        assertEquals(gson.toJsonTree(ids), BinaryBackupCodec.read(new ByteArrayInputStream(streamed.toByteArray())));
+    }
+
+    @Test
+    public void testReadRowsMatchesTheTree() throws IOException {
+        List<NotificationEntity> notifications = createBackup(20).notifications;
+        notifications.get(3).setAutoReplyContent("Thanks, talk soon");
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        BinaryBackupCodec.writeRows(notifications, gson, streamed);
+
+        List<NotificationEntity> restored = BinaryBackupCodec.readRows(
+                new ByteArrayInputStream(streamed.toByteArray()), gson, NotificationEntity.class);
+
+        assertEquals(gson.toJsonTree(notifications), gson.toJsonTree(restored));
+    }
+
+    @Test
+    public void testReadRowsOfIdList() throws IOException {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        BinaryBackupCodec.writeRows(ids, gson, streamed);
+
+        assertEquals(ids, BinaryBackupCodec.readRows(new ByteArrayInputStream(streamed.toByteArray()), gson, Long.class));
+    }
+
+    @Test
+    public void testIteratedRowsMatchTheList() throws IOException {
+        List<NotificationEntity> notifications = createBackup(10).notifications;
+
+        ByteArrayOutputStream fromList = new ByteArrayOutputStream();
+        BinaryBackupCodec.writeRows(notifications, gson, fromList);
+        ByteArrayOutputStream iterated = new ByteArrayOutputStream();
+        BinaryBackupCodec.writeRows(notifications, notifications.size(), gson, iterated);
+
+        assertArrayEquals(fromList.toByteArray(), iterated.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsWrongRowCount() throws IOException {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+
+        BinaryBackupCodec.writeRows(ids, 2, gson, new ByteArrayOutputStream());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsJsonInput() throws IOException {
+        BinaryBackupCodec.read(new ByteArrayInputStream("{\"notifications\":[]}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJson() throws IOException {
+        JsonElement tree = gson.toJsonTree(createBackup(1000));
+
+        int jsonSize = gson.toJson(tree).getBytes(StandardCharsets.UTF_8).length;
+        int binarySize = encode(tree).length;
+
+        assertTrue("binary " + binarySize + " vs json " + jsonSize, binarySize * 2 < jsonSize);
+    }
+
+    /**
+     * Size and time comparison of one 200k-notification table, encoded the way backups write and
+     * restore their table files. Run with
+     * ./gradlew testDebugUnitTest -Dwhatsuit.benchmark=true
+     */
+    @Test
+    public void benchmarkJsonVsBinary() throws IOException {
+        assumeTrue(Boolean.getBoolean("whatsuit.benchmark"));
+
+        List<NotificationEntity> notifications = createBackup(200_000).notifications;
+        Type listType = new TypeToken<List<NotificationEntity>>() {}.getType();
+
+        long start = System.nanoTime();
+        byte[] json = gson.toJson(notifications).getBytes(StandardCharsets.UTF_8);
+        long jsonWrite = System.nanoTime() - start;
+        start = System.nanoTime();
+        gson.fromJson(new String(json, StandardCharsets.UTF_8), listType);
+        long jsonRead = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryBackupCodec.writeRows(notifications, gson, out);
+        byte[] binary = out.toByteArray();
+        long binaryWrite = System.nanoTime() - start;
+        start = System.nanoTime();
+        BinaryBackupCodec.readRows(new ByteArrayInputStream(binary), gson, NotificationEntity.class);
+        long binaryRead = System.nanoTime() - start;
+
+        System.out.printf("json:   %,d bytes, write %d ms, read %d ms%n", json.length, jsonWrite / 1_000_000, jsonRead / 1_000_000);
+        System.out.printf("binary: %,d bytes, write %d ms, read %d ms%n", binary.length, binaryWrite / 1_000_000, binaryRead / 1_000_000);
+    }
+
+    private static byte[] encode(JsonElement tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryBackupCodec.write(tree, out);
+        return out.toByteArray();
+    }
+
+    private static BackupRestoreManager.DatabaseBackup createBackup(int count) {
+        String[][] apps = {{"com.whatsapp", "WhatsApp"}, {"org.telegram.messenger", "Telegram"}};
+        List<NotificationEntity> notifications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] app = apps[i % apps.length];
+            String title = "Contact " + (i % 200);
+            NotificationEntity notification = new NotificationEntity(app[0], app[1], title,
+                    "Message number " + i + " with some typical chat text in it",
+                    app[0] + ":" + title, 1_700_000_000_000L + i * 1000L, null);
+            notification.setId(i + 1);
+            notifications.add(notification);
+        }
+        BackupRestoreManager.DatabaseBackup backup = new BackupRestoreManager.DatabaseBackup();
+        backup.notifications = notifications;
+        return backup;
+    }
+}
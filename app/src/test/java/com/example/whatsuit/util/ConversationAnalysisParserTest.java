@@ -0,0 +1,78 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+
+import com.example.whatsuit.data.ConversationAnalysisEntity;
+
+import org.junit.Test;
+
+/**
+ * Tests for splitting analysis responses into dialog sections
+ */
+public class ConversationAnalysisParserTest {
+
+    private static final String RESPONSE = "1. Next Steps:\n"
+            + "- Send the quote\n"
+            + "- Confirm delivery date\n"
+            + "\n"
+            + "2. Follow-up Actions:\n"
+            + "- Call on Monday\n"
+            + "\n"
+            + "3. Negotiation Points:\n"
+            + "- Offer 5% for 100 units\n"
+            + "\n"
+            + "4. Suggested Reply:\n"
+            + "Thanks! I'll send the quote for 100 units today.\n"
+            + "\n"
+            + "5. Summary:\n"
+            + "Customer wants 100 units delivered by Friday.";
+
+    @Test
+    public void testSplitsNumberedSections() {
+        ConversationAnalysisEntity analysis = ConversationAnalysisParser.parse("c1", RESPONSE, 42L, 1000L);
+
+        assertTrue(analysis.hasSections());
+        assertEquals("- Send the quote\n- Confirm delivery date", analysis.getNextSteps());
+        assertEquals("- Call on Monday", analysis.getFollowUp());
+        assertEquals("- Offer 5% for 100 units", analysis.getNegotiation());
+        assertEquals("Thanks! I'll send the quote for 100 units today.", analysis.getSuggestedReply());
+        assertEquals("Customer wants 100 units delivered by Friday.", analysis.getSummary());
+        assertEquals(42L, analysis.getLastHistoryId());
+        assertEquals(RESPONSE, analysis.getRawText());
+    }
+
+    @Test
+    public void testNumbersInsideSectionsDoNotSplit() {
+        String response = RESPONSE.replace("- Call on Monday", "- Call on Monday at 10. Then email 2. offers");
+
+        ConversationAnalysisEntity analysis = ConversationAnalysisParser.parse("c1", response, 1L, 1000L);
+
+        assertEquals("- Call on Monday at 10. Then email 2. offers", analysis.getFollowUp());
+        assertEquals("- Offer 5% for 100 units", analysis.getNegotiation());
+    }
+
+    @Test
+    public void testAcceptsMarkdownHeadings() {
+        String response = "**1. Next Steps:**\nA\n## 2. Follow-up Actions:\nB\n"
+                + "**3. Negotiation Points:** C\n4. Suggested Reply: D";
+
+        ConversationAnalysisEntity analysis = ConversationAnalysisParser.parse("c1", response, 1L, 1000L);
+
+        assertEquals("A", analysis.getNextSteps());
+        assertEquals("B", analysis.getFollowUp());
+        assertEquals("C", analysis.getNegotiation());
+        assertEquals("D", analysis.getSuggestedReply());
+        assertNull(analysis.getSummary());
+    }
+
+    @Test
+    public void testUnstructuredResponseKeepsOnlyRawText() {
+        String response = "The conversation is about a product order.";
+
+        ConversationAnalysisEntity analysis = ConversationAnalysisParser.parse("c1", response, 1L, 1000L);
+
+        assertFalse(analysis.hasSections());
+        assertNull(analysis.getNextSteps());
+        assertEquals(response, analysis.getRawText());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+
+import android.app.Notification;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.NotificationEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Tests for the per-conversation group classification
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class GroupConversationCacheTest {
+    private static final String CONVERSATION = "com.whatsapp_family";
+
+    private AppDatabase database;
+    private GroupConversationCache cache;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        cache = new GroupConversationCache(database.notificationDao());
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testReportedFlagIsKeptForTheConversation() {
+        Notification flagged = notification("Family", "hi");
+        flagged.extras.putBoolean(Notification.EXTRA_IS_GROUP_CONVERSATION, true);
+
+        GroupConversationCache.Classification first = cache.get(CONVERSATION, flagged);
+        assertTrue(first.isGroup);
+        assertTrue(first.reported);
+
+        // Later posts without the flag are not read again
+        GroupConversationCache.Classification next = cache.get(CONVERSATION, notification("Family", "ok"));
+        assertTrue(next.isGroup);
+        assertTrue(next.reported);
+    }
+
+    @Test
+    public void testMessagingStyleTitleMarksGroup() {
+        Notification direct = notification("Alice", "hi");
+        direct.extras.putString(Notification.EXTRA_TEMPLATE, Notification.MessagingStyle.class.getName());
+        Notification group = notification("Family", "hi");
+        group.extras.putString(Notification.EXTRA_TEMPLATE, Notification.MessagingStyle.class.getName());
+        group.extras.putCharSequence(Notification.EXTRA_CONVERSATION_TITLE, "Family");
+
+        assertFalse(cache.get("com.whatsapp_alice", direct).isGroup);
+        assertTrue(cache.get(CONVERSATION, group).isGroup);
+    }
+
+    @Test
+    public void testUsesStoredClassificationAfterRestart() {
+        NotificationEntity stored = new NotificationEntity("com.whatsapp", "WhatsApp", "Family", "hi",
+                CONVERSATION, 1000L, "7");
+        stored.setIsGroup(true);
+        database.notificationDao().upsertNotification(stored);
+
+        GroupConversationCache.Classification classification = cache.get(CONVERSATION, notification("Family", "hi"));
+
+        assertTrue(classification.isGroup);
+        assertTrue(classification.reported);
+    }
+
+    @Test
+    public void testGuessIsNotReportedAndYieldsToALaterFlag() {
+        GroupConversationCache.Classification guessed = cache.get(CONVERSATION, notification("Family (3 messages)", "hi"));
+        assertTrue(guessed.isGroup);
+        assertFalse(guessed.reported);
+
+        Notification flagged = notification("Family", "hi");
+        flagged.extras.putBoolean(Notification.EXTRA_IS_GROUP_CONVERSATION, false);
+        GroupConversationCache.Classification reported = cache.get(CONVERSATION, flagged);
+        assertFalse(reported.isGroup);
+        assertTrue(reported.reported);
+    }
+
+    @Test
+    public void testGuessIsNotCached() {
+        assertTrue(cache.get(CONVERSATION, notification("Family (3 messages)", "hi")).isGroup);
+
+        assertFalse(cache.get(CONVERSATION, notification("Family", "hi")).isGroup);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testColonInTextIsNotAGroup() {
+        assertFalse(cache.get("com.whatsapp_alice", notification("Alice", "meet at 10:30")).isGroup);
+    }
+
+    @Test
+    public void testGuessHandlesMissingExtras() {
+        Notification empty = new Notification();
+
+        assertFalse(cache.get(CONVERSATION, empty).isGroup);
+    }
+
+    private static Notification notification(String title, String text) {
+        Notification notification = new Notification();
+        notification.extras.putCharSequence(Notification.EXTRA_TITLE, title);
+        notification.extras.putCharSequence(Notification.EXTRA_TEXT, text);
+        return notification;
+    }
+}
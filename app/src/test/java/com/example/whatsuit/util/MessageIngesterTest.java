@@ -0,0 +1,143 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+
+import android.app.Notification;
+import android.app.Person;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.MessageDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Tests for storing the messages of stacked notifications
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MessageIngesterTest {
+    private static final String CONVERSATION = "com.whatsapp_12345678901";
+    private static final Person ALICE = new Person.Builder().setName("Alice").build();
+
+    private Context context;
+    private AppDatabase database;
+    private MessageDao dao;
+    private MessageIngester ingester;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        dao = database.messageDao();
+        ingester = new MessageIngester(dao);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testStoresEveryStackedMessage() {
+        Notification notification = stacked(
+                new Notification.MessagingStyle.Message("hi", 1000L, ALICE),
+                new Notification.MessagingStyle.Message("are you there?", 2000L, ALICE));
+
+        assertEquals(2, ingester.ingest(CONVERSATION, notification, "Alice", "2 new messages", 2500L));
+        assertEquals(2, dao.getCountForConversation(CONVERSATION));
+        assertEquals(2000L, dao.getLatestMessages(CONVERSATION).get(0).getTs());
+    }
+
+    @Test
+    public void testRepostOnlyAddsNewerMessages() {
+        Notification.MessagingStyle.Message first = new Notification.MessagingStyle.Message("hi", 1000L, ALICE);
+        Notification.MessagingStyle.Message second = new Notification.MessagingStyle.Message("hello?", 2000L, ALICE);
+        ingester.ingest(CONVERSATION, stacked(first), "Alice", "hi", 1000L);
+
+        assertEquals(1, ingester.ingest(CONVERSATION, stacked(first, second), "Alice", "hello?", 2000L));
+        assertEquals(0, ingester.ingest(CONVERSATION, stacked(first, second), "Alice", "hello?", 2000L));
+        assertEquals(2, dao.getCountForConversation(CONVERSATION));
+    }
+
+    @Test
+    public void testHighWaterMarkSurvivesRestart() {
+        Notification notification = stacked(new Notification.MessagingStyle.Message("hi", 1000L, ALICE));
+        ingester.ingest(CONVERSATION, notification, "Alice", "hi", 1000L);
+
+        MessageIngester restarted = new MessageIngester(dao);
+
+        assertEquals(0, restarted.ingest(CONVERSATION, notification, "Alice", "hi", 1000L));
+        assertEquals(1, dao.getCountForConversation(CONVERSATION));
+    }
+
+    @Test
+    public void testStoresPlainNotificationAsOneMessage() {
+        Notification plain = plain("Bob", "see you", 3000L);
+
+        assertEquals(1, ingester.ingest("com.whatsapp_bob", plain, "Bob", "see you", 3000L));
+        assertEquals(0, ingester.ingest("com.whatsapp_bob", plain, "Bob", "see you", 3000L));
+        assertEquals(3000L, dao.getLatestMessages("com.whatsapp_bob").get(0).getTs());
+    }
+
+    @Test
+    public void testUpdatedPlainNotificationIsNotStoredAgain() {
+        Notification plain = plain("Bob", "see you", 3000L);
+        ingester.ingest("com.whatsapp_bob", plain, "Bob", "see you", 3000L);
+
+        // The app updates the notification in place; only the post time moves
+        assertEquals(0, ingester.ingest("com.whatsapp_bob", plain, "Bob", "see you", 4000L));
+        assertEquals(0, new MessageIngester(dao).ingest("com.whatsapp_bob", plain, "Bob", "see you", 5000L));
+        assertEquals(1, ingester.ingest("com.whatsapp_bob", plain("Bob", "on my way", 6000L), "Bob", "on my way", 6000L));
+        assertEquals(2, dao.getCountForConversation("com.whatsapp_bob"));
+    }
+
+    @Test
+    public void testRepeatedTextIsANewMessage() {
+        ingester.ingest("com.whatsapp_bob", plain("Bob", "ok", 3000L), "Bob", "ok", 3000L);
+
+        assertEquals(1, ingester.ingest("com.whatsapp_bob", plain("Bob", "ok", 4000L), "Bob", "ok", 4000L));
+        assertEquals(2, dao.getCountForConversation("com.whatsapp_bob"));
+    }
+
+    @Test
+    public void testSendersWithTheSameTimestampAreBothStored() {
+        Person bob = new Person.Builder().setName("Bob").build();
+        Notification.MessagingStyle.Message fromAlice = new Notification.MessagingStyle.Message("yes", 1000L, ALICE);
+        Notification.MessagingStyle.Message fromBob = new Notification.MessagingStyle.Message("yes", 1000L, bob);
+        ingester.ingest(CONVERSATION, stacked(fromAlice), "Alice", "yes", 1000L);
+
+        assertEquals(1, ingester.ingest(CONVERSATION, stacked(fromAlice, fromBob), "Bob", "yes", 1000L));
+        assertEquals(0, new MessageIngester(dao).ingest(CONVERSATION, stacked(fromAlice, fromBob), "Bob", "yes", 1000L));
+        assertEquals(2, dao.getCountForConversation(CONVERSATION));
+    }
+
+    private Notification plain(String title, String text, long when) {
+        return new Notification.Builder(context, "test")
+                .setContentTitle(title)
+                .setContentText(text)
+                .setWhen(when)
+                .build();
+    }
+
+    private Notification stacked(Notification.MessagingStyle.Message... messages) {
+        Notification.MessagingStyle style = new Notification.MessagingStyle(
+                new Person.Builder().setName("Me").build());
+        for (Notification.MessagingStyle.Message message : messages) {
+            style.addMessage(message);
+        }
+        return new Notification.Builder(context, "test")
+                .setStyle(style)
+                .build();
+    }
+}
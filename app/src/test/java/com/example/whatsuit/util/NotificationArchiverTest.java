@@ -0,0 +1,112 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.ConversationHistory;
+import com.example.whatsuit.data.MessageEntity;
+import com.example.whatsuit.data.NotificationEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for moving expired notifications into the archive
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationArchiverTest {
+    private static final long CUTOFF = 10_000L;
+
+    private AppDatabase database;
+    private NotificationArchiver archiver;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        archiver = new NotificationArchiver(database, context);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    private long insertConversation(String sender, long timestamp) {
+        NotificationEntity notification = new NotificationEntity("com.whatsapp", "WhatsApp", sender,
+                "hello", "com.whatsapp_" + sender, timestamp, "1");
+        long id = database.notificationDao().upsertNotification(notification);
+        database.conversationHistoryDao().insertAll(Collections.singletonList(
+                ConversationHistory.Companion.create(id, "hello", "hi there")));
+        database.messageDao().insertAll(Collections.singletonList(
+                new MessageEntity("com.whatsapp_" + sender, sender, "hello", timestamp)));
+        return id;
+    }
+
+    @Test
+    public void testArchivesHistoryAndMessagesBeforeCascade() throws Exception {
+        long id = insertConversation("Alice", 1000L);
+
+        assertEquals(1, archiver.archiveOlderThan(CUTOFF));
+
+        assertNull(database.notificationDao().getNotificationByIdSync(id));
+        assertTrue(database.conversationHistoryDao()
+                .getHistoryForNotifications(Collections.singletonList(id)).isEmpty());
+        assertTrue(database.messageDao().getMessagesBefore("com.whatsapp_Alice", Long.MAX_VALUE).isEmpty());
+
+        List<NotificationArchiver.ArchivedNotification> results = archiver.search("Alice", 10);
+        assertEquals(1, results.size());
+        assertEquals(1, results.get(0).history.size());
+        assertEquals("hi there", results.get(0).history.get(0).getResponse());
+        assertEquals(1, results.get(0).messages.size());
+    }
+
+    @Test
+    public void testKeepsRecentConversations() throws Exception {
+        long oldId = insertConversation("Alice", 1000L);
+        long recentId = insertConversation("Bob", CUTOFF + 1000L);
+
+        assertEquals(1, archiver.archiveOlderThan(CUTOFF));
+
+        assertNull(database.notificationDao().getNotificationByIdSync(oldId));
+        assertNotNull(database.notificationDao().getNotificationByIdSync(recentId));
+        assertEquals(1, database.conversationHistoryDao()
+                .getHistoryForNotifications(Collections.singletonList(recentId)).size());
+    }
+
+    @Test
+    public void testDeleteSkipsConversationWithNewerMessage() {
+        long oldId = insertConversation("Alice", 1000L);
+        long otherId = insertConversation("Bob", 2000L);
+        List<NotificationEntity> candidates = database.notificationDao().getNotificationsOlderThan(CUTOFF, 10);
+        assertEquals(2, candidates.size());
+
+        // A new message arrives for Alice after the candidates were read
+        database.notificationDao().upsertNotification(new NotificationEntity("com.whatsapp", "WhatsApp",
+                "Alice", "are you there?", "com.whatsapp_Alice", CUTOFF + 1000L, "1"));
+
+        int deleted = database.notificationDao().deleteByIdsOlderThan(Arrays.asList(oldId, otherId), CUTOFF);
+
+        assertEquals(1, deleted);
+        assertNotNull(database.notificationDao().getNotificationByIdSync(oldId));
+        assertEquals(1, database.conversationHistoryDao()
+                .getHistoryForNotifications(Collections.singletonList(oldId)).size());
+        assertNull(database.notificationDao().getNotificationByIdSync(otherId));
+    }
+}
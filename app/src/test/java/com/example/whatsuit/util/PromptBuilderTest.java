@@ -0,0 +1,131 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for the token-budgeted prompt builder
+ */
+public class PromptBuilderTest {
+    private static final String TEMPLATE = "System: Reply briefly.\n{context}\nUser: {message}\nAssistant:";
+
+    @Test
+    public void testRenderIsSinglePass() {
+        Map<String, String> values = new HashMap<>();
+        values.put("context", "quoted {message}");
+        values.put("message", "hi");
+
+        assertEquals("C: quoted {message} M: hi {unknown}",
+                PromptBuilder.render("C: {context} M: {message} {unknown}", values));
+    }
+
+    @Test
+    public void testRenderKeepsUnmatchedBraces() {
+        Map<String, String> values = new HashMap<>();
+        values.put("message", "hi");
+
+        assertEquals("{ {message hi }", PromptBuilder.render("{ {message {message} }", values));
+    }
+
+    @Test
+    public void testEstimateTokens() {
+        assertEquals(0, PromptBuilder.estimateTokens(""));
+        assertEquals(0, PromptBuilder.estimateTokens("   \n"));
+        // "hello" is two groups of four, "!" one token
+        assertEquals(3, PromptBuilder.estimateTokens("hello!"));
+        assertEquals(2, PromptBuilder.estimateTokens("are you"));
+        assertEquals(1, PromptBuilder.estimateTokens("👋"));
+    }
+
+    @Test
+    public void testFitsWithoutTrimming() {
+        PromptBuilder.Prompt prompt = new PromptBuilder(TEMPLATE)
+                .setContext("Summary.")
+                .setHistory("Recent:\n", Arrays.asList("a\n", "b\n"))
+                .setMessage("hello")
+                .build(1000);
+
+        assertFalse(prompt.trimmed);
+        assertEquals("System: Reply briefly.\nSummary.Recent:\na\nb\n\nUser: hello\nAssistant:", prompt.text);
+        assertEquals(PromptBuilder.estimateTokens(prompt.text), prompt.getTotalTokens());
+    }
+
+    @Test
+    public void testDropsOldestHistoryFirst() {
+        String turn = "User: " + words(20) + "\n";
+        PromptBuilder builder = new PromptBuilder(TEMPLATE)
+                .setContext("Summary.")
+                .setHistory("Recent:\n", Arrays.asList("OLDEST " + turn, "MIDDLE " + turn, "NEWEST " + turn))
+                .setMessage("hello");
+        int full = builder.build(10_000).getTotalTokens();
+        int turnTokens = PromptBuilder.estimateTokens("MIDDLE " + turn);
+
+        PromptBuilder.Prompt prompt = builder.build(full - turnTokens / 2);
+
+        assertTrue(prompt.trimmed);
+        assertEquals(1, prompt.historyTurnsDropped);
+        assertFalse(prompt.text.contains("OLDEST"));
+        assertTrue(prompt.text.contains("MIDDLE"));
+        assertTrue(prompt.text.contains("NEWEST"));
+        assertTrue(prompt.text.contains("Summary."));
+    }
+
+    @Test
+    public void testTruncatesContextOnceHistoryIsGone() {
+        PromptBuilder.Prompt prompt = new PromptBuilder(TEMPLATE)
+                .setContext(words(200))
+                .setHistory("Recent:\n", Arrays.asList("old turn\n"))
+                .setMessage("what is the price?")
+                .build(60);
+
+        assertTrue(prompt.trimmed);
+        assertFalse(prompt.text.contains("Recent:"));
+        assertTrue(prompt.text.contains(PromptBuilder.ELLIPSIS));
+        assertTrue(prompt.text.contains("User: what is the price?"));
+        assertTrue(prompt.getTotalTokens() <= 60);
+    }
+
+    @Test
+    public void testUsesHistoryPlaceholder() {
+        PromptBuilder.Prompt prompt = new PromptBuilder("{context}|{history}|{message}")
+                .setContext("ctx")
+                .setHistory("H:", Arrays.asList("t1", "t2"))
+                .setMessage("msg")
+                .build(1000);
+
+        assertEquals("ctx|H:t1t2|msg", prompt.text);
+    }
+
+    @Test
+    public void testTruncateToTokensCutsAtWordBoundary() {
+        String text = "alpha beta gamma delta epsilon zeta eta theta";
+        String truncated = PromptBuilder.truncateToTokens(text, 8);
+
+        assertTrue(truncated.endsWith(PromptBuilder.ELLIPSIS));
+        assertTrue(text.startsWith(truncated.substring(0, truncated.length() - PromptBuilder.ELLIPSIS.length())));
+        assertFalse(truncated.endsWith(" " + PromptBuilder.ELLIPSIS));
+        assertTrue(PromptBuilder.estimateTokens(truncated) <= 8);
+        assertEquals(text, PromptBuilder.truncateToTokens(text, 100));
+    }
+
+    @Test
+    public void testDefaultBudgetPerModel() {
+        assertEquals(600, PromptBuilder.defaultBudgetFor("gemini-1.5-flash-8b"));
+        assertEquals(1000, PromptBuilder.defaultBudgetFor("gemini-1.5-flash"));
+        assertEquals(2000, PromptBuilder.defaultBudgetFor("gemini-1.5-pro"));
+        assertEquals(PromptBuilder.DEFAULT_TOKEN_BUDGET, PromptBuilder.defaultBudgetFor(null));
+    }
+
+    private static String words(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("word").append(i).append(' ');
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+
+import android.app.Notification;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Tests for the per-conversation reply action cache
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReplyActionRegistryTest {
+
+    @Test
+    public void testLatestActionWins() {
+        ReplyActionRegistry registry = new ReplyActionRegistry(10);
+        Notification.Action first = action("first");
+        Notification.Action second = action("second");
+
+        registry.put("whatsapp_123", "key1", first);
+        registry.put("whatsapp_123", "key2", second);
+
+        assertSame(second, registry.get("whatsapp_123"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        ReplyActionRegistry registry = new ReplyActionRegistry(2);
+        registry.put("a", "ka", action("a"));
+        registry.put("b", "kb", action("b"));
+        // Touch "a" so "b" becomes the eldest
+        assertNotNull(registry.get("a"));
+        registry.put("c", "kc", action("c"));
+
+        assertNotNull(registry.get("a"));
+        assertNull(registry.get("b"));
+        assertNotNull(registry.get("c"));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testRemovedNotificationOnlyDropsItsOwnAction() {
+        ReplyActionRegistry registry = new ReplyActionRegistry(10);
+        registry.put("a", "key1", action("old"));
+        Notification.Action newer = action("new");
+        registry.put("a", "key2", newer);
+        registry.put("b", "key3", action("b"));
+
+        registry.removeNotification("key1");
+        assertSame(newer, registry.get("a"));
+
+        registry.removeNotification("key3");
+        assertNull(registry.get("b"));
+    }
+
+    @Test
+    public void testRetainsOnlyShowingNotifications() {
+        ReplyActionRegistry registry = new ReplyActionRegistry(10);
+        registry.put("a", "key1", action("a"));
+        registry.put("b", "key2", action("b"));
+
+        registry.retainNotifications(new HashSet<>(Collections.singletonList("key2")));
+
+        assertNull(registry.get("a"));
+        assertNotNull(registry.get("b"));
+    }
+
+    @Test
+    public void testIgnoresMissingAction() {
+        ReplyActionRegistry registry = new ReplyActionRegistry(10);
+        Notification.Action existing = action("existing");
+        registry.put("a", "key1", existing);
+        registry.put("a", "key2", null);
+
+        assertSame(existing, registry.get("a"));
+    }
+
+    private static Notification.Action action(String title) {
+        return new Notification.Action.Builder(null, title, null).build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.whatsuit.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the auto-reply scheduler
+ */
+public class ReplySchedulerTest {
+
+    /**
+     * Runs tasks inline and records their names; each task keeps its slot until released.
+     */
+    private static final class Recorder {
+        final List<String> started = new ArrayList<>();
+        final List<Runnable> pending = new ArrayList<>();
+
+        ReplyScheduler.Task task(String name) {
+            return done -> {
+                started.add(name);
+                pending.add(done);
+            };
+        }
+
+        void releaseOldest() {
+            pending.remove(0).run();
+        }
+
+        void releaseAll() {
+            while (!pending.isEmpty()) {
+                releaseOldest();
+            }
+        }
+    }
+
+    @Test
+    public void testLimitsRepliesInFlight() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(2, Runnable::run);
+
+        scheduler.submit("app", "a", ReplyScheduler.Priority.DIRECT, recorder.task("a"));
+        scheduler.submit("app", "b", ReplyScheduler.Priority.DIRECT, recorder.task("b"));
+        scheduler.submit("app", "c", ReplyScheduler.Priority.DIRECT, recorder.task("c"));
+
+        assertEquals(2, recorder.started.size());
+        assertEquals(1, scheduler.getQueuedCount());
+
+        recorder.releaseOldest();
+        assertEquals(3, recorder.started.size());
+        assertEquals(0, scheduler.getQueuedCount());
+        assertEquals(2, scheduler.getInFlightCount());
+    }
+
+    @Test
+    public void testOneReplyPerConversationAtATime() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(4, Runnable::run);
+
+        scheduler.submit("app", "a", ReplyScheduler.Priority.DIRECT, recorder.task("a1"));
+        scheduler.submit("app", "a", ReplyScheduler.Priority.DIRECT, recorder.task("a2"));
+        scheduler.submit("app", "b", ReplyScheduler.Priority.DIRECT, recorder.task("b1"));
+
+        assertEquals(List.of("a1", "b1"), recorder.started);
+
+        recorder.releaseOldest();
+        assertEquals(List.of("a1", "b1", "a2"), recorder.started);
+    }
+
+    @Test
+    public void testKeywordRepliesThenDirectChatsThenGroups() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(1, Runnable::run);
+        scheduler.submit("app", "busy", ReplyScheduler.Priority.DIRECT, recorder.task("busy"));
+
+        scheduler.submit("app", "group", ReplyScheduler.Priority.GROUP, recorder.task("group"));
+        scheduler.submit("app", "direct", ReplyScheduler.Priority.DIRECT, recorder.task("direct"));
+        scheduler.submit("app", "keyword", ReplyScheduler.Priority.KEYWORD, recorder.task("keyword"));
+        recorder.releaseAll();
+
+        assertEquals(List.of("busy", "keyword", "direct", "group"), recorder.started);
+    }
+
+    @Test
+    public void testGroupsAreNotStarved() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(1, Runnable::run);
+        scheduler.submit("app", "busy", ReplyScheduler.Priority.DIRECT, recorder.task("busy"));
+
+        for (int i = 0; i < 6; i++) {
+            scheduler.submit("app", "direct" + i, ReplyScheduler.Priority.DIRECT, recorder.task("direct" + i));
+        }
+        scheduler.submit("app", "group", ReplyScheduler.Priority.GROUP, recorder.task("group"));
+        recorder.releaseAll();
+
+        // Weights 2:1, so the group gets a turn within the first three
+        assertTrue(recorder.started.indexOf("group") <= 3);
+        assertEquals(8, recorder.started.size());
+    }
+
+    @Test
+    public void testAppsTakeTurns() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(1, Runnable::run);
+        scheduler.submit("noisy", "busy", ReplyScheduler.Priority.GROUP, recorder.task("busy"));
+
+        scheduler.submit("noisy", "g1", ReplyScheduler.Priority.GROUP, recorder.task("noisy1"));
+        scheduler.submit("noisy", "g2", ReplyScheduler.Priority.GROUP, recorder.task("noisy2"));
+        scheduler.submit("noisy", "g3", ReplyScheduler.Priority.GROUP, recorder.task("noisy3"));
+        scheduler.submit("quiet", "q1", ReplyScheduler.Priority.GROUP, recorder.task("quiet1"));
+        recorder.releaseAll();
+
+        assertEquals(List.of("busy", "noisy1", "quiet1", "noisy2", "noisy3"), recorder.started);
+    }
+
+    @Test
+    public void testConversationsOfAnAppTakeTurns() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(1, Runnable::run);
+        scheduler.submit("app", "busy", ReplyScheduler.Priority.DIRECT, recorder.task("busy"));
+
+        scheduler.submit("app", "a", ReplyScheduler.Priority.DIRECT, recorder.task("a1"));
+        scheduler.submit("app", "a", ReplyScheduler.Priority.DIRECT, recorder.task("a2"));
+        scheduler.submit("app", "b", ReplyScheduler.Priority.DIRECT, recorder.task("b1"));
+        recorder.releaseAll();
+
+        assertEquals(List.of("busy", "a1", "b1", "a2"), recorder.started);
+    }
+
+    @Test
+    public void testFailingTaskReleasesItsSlot() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(1, runnable -> {
+            try {
+                runnable.run();
+            } catch (IllegalStateException expected) {
+                // The executor swallows it, like a coroutine's exception handler would log it
+            }
+        });
+
+        scheduler.submit("app", "a", ReplyScheduler.Priority.DIRECT, done -> {
+            throw new IllegalStateException("boom");
+        });
+        scheduler.submit("app", "b", ReplyScheduler.Priority.DIRECT, recorder.task("b"));
+
+        assertEquals(List.of("b"), recorder.started);
+    }
+
+    @Test
+    public void testDoneIsIdempotent() {
+        Recorder recorder = new Recorder();
+        ReplyScheduler scheduler = new ReplyScheduler(1, Runnable::run);
+        List<Runnable> dones = new ArrayList<>();
+        scheduler.submit("app", "a", ReplyScheduler.Priority.DIRECT, dones::add);
+        scheduler.submit("app", "b", ReplyScheduler.Priority.DIRECT, recorder.task("b"));
+        scheduler.submit("app", "c", ReplyScheduler.Priority.DIRECT, recorder.task("c"));
+
+        dones.get(0).run();
+        dones.get(0).run();
+
+        assertEquals(List.of("b"), recorder.started);
+        assertEquals(1, scheduler.getInFlightCount());
+    }
+}
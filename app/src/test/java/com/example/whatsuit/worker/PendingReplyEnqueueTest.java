@@ -0,0 +1,60 @@
+package com.example.whatsuit.worker;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.NotificationEntity;
+import com.example.whatsuit.data.PendingReplyEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+/**
+ * Tests for queueing a reply of a conversation seen for the first time
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PendingReplyEnqueueTest {
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testNewConversationReplyReferencesStoredRow() {
+        NotificationEntity notification = new NotificationEntity("com.whatsapp", "WhatsApp", "12345678901",
+                "hello", "com.whatsapp_12345678901", 1000L, "1");
+
+        long id = database.notificationDao().upsertNotification(notification);
+        assertEquals(id, notification.getId());
+
+        // Fails the pending_replies foreign key if the entity still has id 0
+        database.pendingReplyDao().insert(
+                ReplyDispatchWorker.newPendingReply(notification, "key", null, "timeout", 2000L));
+
+        List<PendingReplyEntity> pending = database.pendingReplyDao().getOldest(10);
+        assertEquals(1, pending.size());
+        assertEquals(id, pending.get(0).getNotificationId());
+    }
+}
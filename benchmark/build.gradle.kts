@@ -0,0 +1,36 @@
+plugins {
+    alias(libs.plugins.android.test)
+}
+
+android {
+    namespace = "com.example.whatsuit.benchmark"
+    compileSdk = 35
+
+    defaultConfig {
+        minSdk = 34
+        targetSdk = 35
+
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+        // The target is the debuggable app build and CI runs on emulators; results are still
+        // comparable between runs on the same device, which is what regression tracking needs
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "DEBUGGABLE,EMULATOR"
+    }
+
+    targetProjectPath = ":app"
+
+    sourceSets {
+        getByName("main").java.srcDir("src/shared/java")
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_17
+        targetCompatibility = JavaVersion.VERSION_17
+    }
+}
+
+dependencies {
+    implementation(libs.benchmark.junit4)
+    implementation(libs.ext.junit)
+    implementation(libs.junit)
+    implementation("androidx.room:room-runtime:2.6.1")
+}
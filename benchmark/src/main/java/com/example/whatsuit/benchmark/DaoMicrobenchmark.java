@@ -0,0 +1,83 @@
+package com.example.whatsuit.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.room.Room;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.DatabaseConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Microbenchmarks for the DAO calls in {@link DaoOperation}, against an on-disk database
+ * built with the production {@link DatabaseConfig} and filled with a {@link BenchmarkDataset}.
+ *
+ * Run with ./gradlew :benchmark:connectedCheck. androidx.benchmark writes the results as JSON
+ * to benchmark/build/outputs/connected_android_test_additional_output/.
+ */
+@RunWith(Parameterized.class)
+public class DaoMicrobenchmark {
+    private static final String DATABASE_NAME = "dao_benchmark";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameter(0)
+    public DaoOperation operation;
+
+    @Parameterized.Parameter(1)
+    public int rows;
+
+    private Context context;
+    private AppDatabase database;
+    private BenchmarkDataset dataset;
+
+    @Parameterized.Parameters(name = "{0}_{1}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (DaoOperation operation : DaoOperation.values()) {
+            for (int rows : BenchmarkDataset.SIZES) {
+                if (rows <= operation.maxRows) {
+                    parameters.add(new Object[]{operation, rows});
+                }
+            }
+        }
+        return parameters;
+    }
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = DatabaseConfig.configure(Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME))
+                .build();
+        dataset = BenchmarkDataset.populate(database, rows);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void measure() {
+        BenchmarkState state = benchmarkRule.getState();
+        int iteration = 0;
+        while (state.keepRunning()) {
+            operation.run(database, dataset, iteration++);
+        }
+    }
+}
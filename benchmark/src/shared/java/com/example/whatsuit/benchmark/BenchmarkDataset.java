@@ -0,0 +1,140 @@
+package com.example.whatsuit.benchmark;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.ConversationReplyCount;
+import com.example.whatsuit.data.KeywordActionEntity;
+import com.example.whatsuit.data.NotificationEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synthetic notification history for the DAO benchmarks.
+ *
+ * Roughly matches a real inbox: 60% WhatsApp notifications titled with phone numbers, the rest
+ * from Telegram and Gmail titled with contact names, spread over the last 30 days. Supporting
+ * tables scale with the dataset: one reply count per 10 notifications and one keyword action
+ * per 100.
+ */
+public final class BenchmarkDataset {
+    public static final int[] SIZES = {1_000, 10_000, 100_000};
+
+    static final String WHATSAPP = "com.whatsapp";
+    static final String TELEGRAM = "org.telegram.messenger";
+    static final String GMAIL = "com.google.android.gm";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    public final int rows;
+    public final long now;
+    private final int contacts;
+
+    private BenchmarkDataset(int rows, long now) {
+        this.rows = rows;
+        this.now = now;
+        // About 20 notifications per contact, as in an active chat list
+        this.contacts = Math.max(10, rows / 20);
+    }
+
+    /**
+     * Fills an empty database with {@code rows} notifications and the matching supporting tables.
+     */
+    public static BenchmarkDataset populate(AppDatabase database, int rows) {
+        BenchmarkDataset dataset = new BenchmarkDataset(rows, System.currentTimeMillis());
+        Random random = new Random(rows);
+
+        List<NotificationEntity> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            NotificationEntity notification = dataset.notification(random.nextInt(dataset.contacts), i);
+            notification.setTimestamp(dataset.now - (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(30)));
+            notification.setAutoReplyDisabled(random.nextInt(50) == 0);
+            batch.add(notification);
+            if (batch.size() == INSERT_BATCH_SIZE || i == rows - 1) {
+                List<NotificationEntity> toInsert = new ArrayList<>(batch);
+                database.runInTransaction(() -> database.notificationDao().insertAll(toInsert));
+                batch.clear();
+            }
+        }
+
+        List<ConversationReplyCount> replyCounts = new ArrayList<>();
+        for (int i = 0; i < rows / 10; i++) {
+            replyCounts.add(new ConversationReplyCount(dataset.conversationId(i), 1 + random.nextInt(4),
+                    dataset.now - random.nextInt(1_000_000), dataset.now - 1_000_000));
+        }
+        database.conversationReplyCountDao().insertAll(replyCounts);
+
+        List<KeywordActionEntity> actions = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, rows / 100); i++) {
+            actions.add(new KeywordActionEntity("keyword" + i, "TEXT", "Reply for keyword " + i));
+        }
+        database.keywordActionDao().insertAll(actions);
+        return dataset;
+    }
+
+    /**
+     * A new notification for a contact, with the conversation id NotificationService would assign.
+     */
+    public NotificationEntity notification(int contact, int sequence) {
+        String packageName = packageName(contact);
+        String title = title(contact);
+        return new NotificationEntity(packageName, appName(packageName), title,
+                message(sequence), conversationId(contact), now, null);
+    }
+
+    public int contact(int index) {
+        return Math.floorMod(index * 31, contacts);
+    }
+
+    public String packageName(int contact) {
+        int bucket = contact % 20;
+        return bucket < 12 ? WHATSAPP : bucket < 17 ? TELEGRAM : GMAIL;
+    }
+
+    public String title(int contact) {
+        if (WHATSAPP.equals(packageName(contact))) {
+            String digits = phoneNumber(contact);
+            return "+" + digits.substring(0, 3) + " " + digits.substring(3, 6) + " " +
+                    digits.substring(6, 9) + " " + digits.substring(9);
+        }
+        return "Contact " + contact;
+    }
+
+    /**
+     * 11 digits, so WhatsApp titles take the phone-number branch of the grouping queries
+     */
+    public String phoneNumber(int contact) {
+        return String.format("234%08d", contact);
+    }
+
+    public String conversationId(int contact) {
+        String packageName = packageName(contact);
+        if (WHATSAPP.equals(packageName)) {
+            return packageName + "_" + phoneNumber(contact);
+        }
+        return packageName + "_" + title(contact).replaceAll("[^a-zA-Z0-9]", "");
+    }
+
+    /**
+     * Message text; every 10th message contains a keyword so keyword lookups see both outcomes
+     */
+    public String message(int sequence) {
+        String text = "Message number " + sequence + " with some typical chat text in it";
+        if (sequence % 10 == 0) {
+            text += " keyword" + (sequence / 10) % Math.max(1, rows / 100);
+        }
+        return text;
+    }
+
+    private static String appName(String packageName) {
+        switch (packageName) {
+            case WHATSAPP:
+                return "WhatsApp";
+            case TELEGRAM:
+                return "Telegram";
+            default:
+                return "Gmail";
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.whatsuit.benchmark;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.example.whatsuit.data.AppDatabase;
+import com.example.whatsuit.data.NotificationDao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DAO calls on the notification ingestion and main-screen paths, as run by both the
+ * instrumented microbenchmarks and the JVM harness.
+ *
+ * The smart grouping queries return LiveData, so they are measured by running the DAO's SQL
+ * directly and stepping through every row, which is the work Room does when the LiveData
+ * becomes active.
+ */
+public enum DaoOperation {
+    UPSERT_NOTIFICATION("upsertNotification", Integer.MAX_VALUE) {
+        @Override
+        public void run(AppDatabase database, BenchmarkDataset dataset, int iteration) {
+            // Alternates between existing conversations (update) and new ones (insert)
+            int contact = iteration % 2 == 0 ? dataset.contact(iteration) : dataset.rows + iteration;
+            database.notificationDao().upsertNotification(dataset.notification(contact, iteration));
+        }
+    },
+    // The grouping queries self-join notifications of the same app, so their cost grows with the
+    // square of the table size; 100k rows takes minutes per run and is left out
+    SMART_GROUPED("getSmartGroupedNotifications", 10_000) {
+        @Override
+        public void run(AppDatabase database, BenchmarkDataset dataset, int iteration) {
+            drain(database, NotificationDao.SMART_GROUPED_QUERY);
+        }
+    },
+    SMART_GROUPED_IN_RANGE("getSmartGroupedNotificationsInRange", 10_000) {
+        @Override
+        public void run(AppDatabase database, BenchmarkDataset dataset, int iteration) {
+            long end = dataset.now;
+            drain(database, NotificationDao.SMART_GROUPED_IN_RANGE_QUERY,
+                    end - TimeUnit.DAYS.toMillis(7), end);
+        }
+    },
+    SMART_GROUPED_BY_TIME_RANGE("getSmartGroupedNotificationsByTimeRange", 10_000) {
+        @Override
+        public void run(AppDatabase database, BenchmarkDataset dataset, int iteration) {
+            drain(database, NotificationDao.SMART_GROUPED_BY_TIME_RANGE_QUERY, "-1 day");
+        }
+    },
+    IS_AUTO_REPLY_DISABLED("isAutoReplyDisabled", Integer.MAX_VALUE) {
+        @Override
+        public void run(AppDatabase database, BenchmarkDataset dataset, int iteration) {
+            int contact = dataset.contact(iteration);
+            String title = dataset.title(contact);
+            database.notificationDao().isAutoReplyDisabled(dataset.packageName(contact),
+                    dataset.phoneNumber(contact), title.substring(0, Math.min(5, title.length())));
+        }
+    },
+    FIND_MATCHING_KEYWORD("findMatchingKeyword", Integer.MAX_VALUE) {
+        @Override
+        public void run(AppDatabase database, BenchmarkDataset dataset, int iteration) {
+            database.keywordActionDao().findMatchingKeyword(dataset.message(iteration));
+        }
+    },
+    INCREMENT_REPLY_COUNT("incrementReplyCount", Integer.MAX_VALUE) {
+        @Override
+        public void run(AppDatabase database, BenchmarkDataset dataset, int iteration) {
+            database.conversationReplyCountDao().incrementReplyCount(
+                    dataset.conversationId(dataset.contact(iteration)));
+        }
+    };
+
+    public final String methodName;
+    public final int maxRows;
+
+    DaoOperation(String methodName, int maxRows) {
+        this.methodName = methodName;
+        this.maxRows = maxRows;
+    }
+
+    public abstract void run(AppDatabase database, BenchmarkDataset dataset, int iteration);
+
+    private static void drain(AppDatabase database, String sql, Object... args) {
+        try (Cursor cursor = database.query(new SimpleSQLiteQuery(sql, args))) {
+            while (cursor.moveToNext()) {
+                cursor.getLong(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+plugins {
+    alias(libs.plugins.android.test)
+}
+
+android {
+    namespace = "com.example.whatsuit.macrobenchmark"
+    compileSdk = 35
+
+    defaultConfig {
+        minSdk = 34
+        targetSdk = 35
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // Results on emulators are still comparable between runs on the same device
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    buildTypes {
+        // Measures the app's minified, non-debuggable "benchmark" build type
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = getByName("debug").signingConfig
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    targetProjectPath = ":app"
+    // The benchmark drives the app from its own process
+    experimentalProperties["android.experimental.self-instrumenting"] = true
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_17
+        targetCompatibility = JavaVersion.VERSION_17
+    }
+}
+
+dependencies {
+    implementation(libs.benchmark.macro.junit4)
+    implementation(libs.ext.junit)
+    implementation(libs.junit)
+    implementation(libs.uiautomator)
+}
+
+androidComponents {
+    // Only the benchmark variant targets an optimized app build
+    beforeVariants(selector().all()) {
+        it.enable = it.buildType == "benchmark"
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.whatsuit.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Collects the baseline profile for startup, list scrolling and opening a notification.
+ *
+ * Run with ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.whatsuit.macrobenchmark.BaselineProfileGenerator
+ * on an API 34+ device, then copy the generated *-baseline-prof.txt from
+ * macrobenchmark/build/outputs/connected_android_test_additional_output/ over
+ * app/src/main/baseline-prof.txt.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    @Rule
+    public BaselineProfileRule baselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        baselineProfileRule.collect(Journeys.TARGET_PACKAGE, scope -> {
+            scope.pressHome();
+            Journeys.startAndWaitForContent(scope);
+            Journeys.scrollNotificationList(scope);
+            Journeys.openFirstNotificationDetail(scope);
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.whatsuit.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/**
+ * User journeys shared by the benchmarks and {@link BaselineProfileGenerator}, so the profile
+ * covers exactly the code paths that are measured.
+ *
+ * The scroll and detail journeys need captured notifications on the device, and notification
+ * access granted so MainActivity does not open its permission dialog.
+ */
+final class Journeys {
+    static final String TARGET_PACKAGE = "com.example.whatsuit";
+    private static final long TIMEOUT_MILLIS = 5_000;
+    private static final int FLINGS = 3;
+
+    private Journeys() {
+    }
+
+    /**
+     * Cold launch until the main layout has replaced the launch screen.
+     */
+    static void startAndWaitForContent(MacrobenchmarkScope scope) {
+        scope.startActivityAndWait();
+        scope.getDevice().wait(Until.hasObject(By.res(TARGET_PACKAGE, "main")), TIMEOUT_MILLIS);
+    }
+
+    static void scrollNotificationList(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = findNotificationList(device);
+        // Keep gestures clear of the system navigation areas
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        for (int i = 0; i < FLINGS; i++) {
+            list.fling(Direction.DOWN);
+            device.waitForIdle();
+        }
+        list.fling(Direction.UP);
+        device.waitForIdle();
+    }
+
+    /**
+     * Opens the first notification and waits for NotificationDetailActivity to show its pages.
+     */
+    static void openFirstNotificationDetail(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        findNotificationList(device);
+        UiObject2 firstNotification = device.wait(
+                Until.findObject(By.res(TARGET_PACKAGE, "notificationTitle")), TIMEOUT_MILLIS);
+        if (firstNotification == null) {
+            throw new IllegalStateException("No notifications listed; capture some before benchmarking");
+        }
+        firstNotification.click();
+        device.wait(Until.hasObject(By.res(TARGET_PACKAGE, "viewPager")), TIMEOUT_MILLIS);
+    }
+
+    private static UiObject2 findNotificationList(UiDevice device) {
+        UiObject2 list = device.wait(
+                Until.findObject(By.res(TARGET_PACKAGE, "notificationsRecyclerView")), TIMEOUT_MILLIS);
+        if (list == null) {
+            throw new IllegalStateException("Notification list not shown; capture notifications "
+                    + "and grant notification access before benchmarking");
+        }
+        return list;
+    }
+}
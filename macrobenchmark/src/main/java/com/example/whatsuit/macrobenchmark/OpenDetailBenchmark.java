@@ -0,0 +1,56 @@
+package com.example.whatsuit.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Frame timing from tapping a notification until NotificationDetailActivity shows its pages.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OpenDetailBenchmark {
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void openDetailWithoutCompilation() {
+        openDetail(new CompilationMode.None());
+    }
+
+    @Test
+    public void openDetailWithBaselineProfile() {
+        openDetail(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    private void openDetail(CompilationMode compilationMode) {
+        benchmarkRule.measureRepeated(
+            Journeys.TARGET_PACKAGE,
+            Collections.singletonList(new FrameTimingMetric()),
+            compilationMode,
+            StartupMode.WARM,
+            ITERATIONS,
+            scope -> {
+                // Back to the list left by the previous iteration
+                scope.pressHome();
+                Journeys.startAndWaitForContent(scope);
+                return Unit.INSTANCE;
+            },
+            scope -> {
+                Journeys.openFirstNotificationDetail(scope);
+                return Unit.INSTANCE;
+            });
+    }
+}
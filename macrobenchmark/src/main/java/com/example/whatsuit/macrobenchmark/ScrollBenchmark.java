@@ -0,0 +1,55 @@
+package com.example.whatsuit.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Frame timing while flinging through the grouped notification list.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScrollBenchmark {
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void scrollWithoutCompilation() {
+        scroll(new CompilationMode.None());
+    }
+
+    @Test
+    public void scrollWithBaselineProfile() {
+        scroll(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    private void scroll(CompilationMode compilationMode) {
+        benchmarkRule.measureRepeated(
+            Journeys.TARGET_PACKAGE,
+            Collections.singletonList(new FrameTimingMetric()),
+            compilationMode,
+            StartupMode.WARM,
+            ITERATIONS,
+            scope -> {
+                scope.pressHome();
+                Journeys.startAndWaitForContent(scope);
+                return Unit.INSTANCE;
+            },
+            scope -> {
+                Journeys.scrollNotificationList(scope);
+                return Unit.INSTANCE;
+            });
+    }
+}
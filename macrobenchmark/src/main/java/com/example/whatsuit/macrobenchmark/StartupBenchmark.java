@@ -0,0 +1,60 @@
+package com.example.whatsuit.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Cold start of MainActivity. StartupTimingMetric reports timeToInitialDisplayMs (first frame)
+ * and timeToFullDisplayMs, which MainActivity marks with reportFullyDrawn once the cached
+ * first page of groups is bound and its reveal animation has finished.
+ *
+ * Run with ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest, which installs the
+ * app's minified "benchmark" build. Results are written as JSON to
+ * macrobenchmark/build/outputs/connected_android_test_additional_output/.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void startupWithoutCompilation() {
+        startup(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupWithBaselineProfile() {
+        startup(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    private void startup(CompilationMode compilationMode) {
+        benchmarkRule.measureRepeated(
+            Journeys.TARGET_PACKAGE,
+            Collections.singletonList(new StartupTimingMetric()),
+            compilationMode,
+            StartupMode.COLD,
+            ITERATIONS,
+            scope -> {
+                scope.pressHome();
+                return Unit.INSTANCE;
+            },
+            scope -> {
+                Journeys.startAndWaitForContent(scope);
+                return Unit.INSTANCE;
+            });
+    }
+}
@@ -22,4 +22,6 @@ dependencyResolutionManagement {
 }
 
 rootProject.name = "Whatsuit"
-include(":app")
\ No newline at end of file
+include(":app")
+include(":benchmark")
+include(":macrobenchmark")
\ No newline at end of file